@@ -0,0 +1,88 @@
+import benchmarks.GraphWorkload;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The graph side of {@code benchmarks.GraphBenchmarks}: a synthetic Zipf corpus
+ * ({@link SyntheticCorpusGenerator}) and the graph built from it, with a fixed seed so every
+ * run measures the same graph and the same queries.
+ */
+public class GraphBenchmarkWorkload implements GraphWorkload {
+
+    private Path corpus;
+    private CustomGraph graph;
+    private RandomWalkEngine walks;
+    private String[] firstWords;
+    private String[] secondWords;
+    private String[] sentences;
+
+    @Override
+    public void setUp(String corpusSize, int vocabulary, double exponent, long seed)
+            throws IOException {
+        corpus = Files.createTempFile("corpus", ".txt");
+        SyntheticCorpusGenerator generator =
+                new SyntheticCorpusGenerator(vocabulary, exponent, seed);
+        generator.write(corpus, SyntheticCorpusGenerator.parseSize(corpusSize),
+                Runtime.getRuntime().availableProcessors());
+        graph = new CustomGraph();
+        graph.ingestFile(corpus.toString(), Runtime.getRuntime().availableProcessors());
+        walks = graph.randomWalkEngine();
+
+        // 查询词取自语料本身，使其频率分布与真实查询一致
+        String[] words = generator.text(1 << 20).split("[^a-z]+");
+        SplittableRandom random = new SplittableRandom(seed);
+        firstWords = new String[QUERIES];
+        secondWords = new String[QUERIES];
+        sentences = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int at = 1 + random.nextInt(words.length - 12);
+            firstWords[i] = words[at];
+            // 一半相隔一个词（常有桥接词），一半随机配对
+            secondWords[i] = i % 2 == 0
+                    ? words[at + 2] : words[1 + random.nextInt(words.length - 1)];
+            sentences[i] = String.join(" ", Arrays.copyOfRange(words, at, at + 10));
+        }
+        // 先构建桥接词索引，避免第一次查询把构建时间算进去
+        graph.bridgeIndex();
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(corpus);
+    }
+
+    @Override
+    public Object buildGraph() throws IOException {
+        CustomGraph built = new CustomGraph();
+        built.ingestFile(corpus.toString(), 1);
+        return built.graph();
+    }
+
+    @Override
+    public String[] readFile() {
+        return CustomGraph.readFile(corpus.toString());
+    }
+
+    @Override
+    public String queryBridgeWords(int query) {
+        return graph.queryBridgeWords(firstWords[query], secondWords[query]);
+    }
+
+    @Override
+    public String calcShortestPath(int query) {
+        return graph.calcShortestPath(firstWords[query], secondWords[query]);
+    }
+
+    @Override
+    public String generateNewText(int query) {
+        return graph.generateNewText(sentences[query]);
+    }
+
+    @Override
+    public int[] randomWalk(SplittableRandom random) {
+        return walks.walk(walks.randomVertex(random), 64, random);
+    }
+}
@@ -0,0 +1,139 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks of the graph operations on a synthetic Zipf corpus
+ * ({@code SyntheticCorpusGenerator}), built once per trial with a fixed seed so every run
+ * measures the same graph and the same queries. The graph is reached through
+ * {@link GraphWorkload}, since JMH needs a named package and the graph lives in the default
+ * one; the single interface call per operation is inlined by the JIT.
+ * Run {@link #main(String[])} with the usual JMH options, e.g. {@code -p corpusSize=256M};
+ * it adds the GC profiler (allocation rate per operation) and writes the results as JSON to
+ * {@code jmh-result.json} so runs can be compared.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class GraphBenchmarks {
+
+    private static final long SEED = 42;
+    private static final String WORKLOAD = "GraphBenchmarkWorkload";
+
+    @Param({"1M", "16M"})
+    public String corpusSize;
+
+    @Param({"50000"})
+    public int vocabulary;
+
+    @Param({"1.0"})
+    public double exponent;
+
+    private GraphWorkload workload;
+
+    /**
+     * The position of a thread in the query arrays, so consecutive calls ask different
+     * questions and the path cache does not answer them all.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        final SplittableRandom random = new SplittableRandom(SEED);
+
+        int next() {
+            next = (next + 1) & (GraphWorkload.QUERIES - 1);
+            return next;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ReflectiveOperationException {
+        try {
+            workload = (GraphWorkload) Class.forName(WORKLOAD).getConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create the workload", e.getCause());
+        }
+        workload.setUp(corpusSize, vocabulary, exponent, SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object buildGraph() throws IOException {
+        return workload.buildGraph();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public String[] readFile() {
+        return workload.readFile();
+    }
+
+    @Benchmark
+    public String queryBridgeWords(Cursor cursor) {
+        return workload.queryBridgeWords(cursor.next());
+    }
+
+    @Benchmark
+    public String calcShortestPath(Cursor cursor) {
+        return workload.calcShortestPath(cursor.next());
+    }
+
+    @Benchmark
+    public String generateNewText(Cursor cursor) {
+        return workload.generateNewText(cursor.next());
+    }
+
+    @Benchmark
+    public int[] randomWalk(Cursor cursor) {
+        return workload.randomWalk(cursor.random);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(GraphBenchmarks.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
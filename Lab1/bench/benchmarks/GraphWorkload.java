@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * The operations measured by {@link GraphBenchmarks}.
+ * The graph classes live in the default package, which a named package cannot import, and
+ * JMH refuses benchmarks in the default package; so the benchmarks call the graph through
+ * this interface, implemented by {@code GraphBenchmarkWorkload} in the default package and
+ * loaded by name once per trial.
+ */
+public interface GraphWorkload {
+
+    /** The number of prepared queries; a power of two. */
+    int QUERIES = 1024;
+
+    /**
+     * Generates the corpus, builds the graph from it and prepares {@link #QUERIES} queries.
+     */
+    void setUp(String corpusSize, int vocabulary, double exponent, long seed)
+            throws IOException;
+
+    void tearDown() throws IOException;
+
+    Object buildGraph() throws IOException;
+
+    String[] readFile();
+
+    String queryBridgeWords(int query);
+
+    String calcShortestPath(int query);
+
+    String generateNewText(int query);
+
+    int[] randomWalk(SplittableRandom random);
+}
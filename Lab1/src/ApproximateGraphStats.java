@@ -0,0 +1,418 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * ApproximateGraphStats estimates distance statistics of a {@link CompactGraph} that would
+ * need a search from every vertex to compute exactly: the average shortest path length (in
+ * hops, like {@code calcShortestPath}), the effective diameter and the size of the set of
+ * words reachable from a word.
+ * A breadth-first search runs from each vertex of a uniform random sample, in parallel on a
+ * {@link ForkJoinPool}, and records how many vertices it reaches at every distance. Every
+ * estimate comes with a 95% confidence interval: from the normal approximation for the means
+ * (the delta method for the average distance, a ratio of two means), and from a bootstrap
+ * over the sampled sources for the effective diameter. The interval narrows with the square
+ * root of the sample size, which is the tradeoff the caller picks, either directly or as a
+ * relative error to reach ({@link #sampleUntil}). A sample as large as the graph searches
+ * from every vertex once and gives exact values.
+ */
+public class ApproximateGraphStats {
+
+    /** The two-sided 95% quantile of the standard normal distribution. */
+    static final double Z_95 = 1.959964;
+    static final int BOOTSTRAP_ROUNDS = 200;
+    static final int FIRST_ROUND_SAMPLES = 32;
+    /** The share of reachable pairs within the effective diameter. */
+    static final double EFFECTIVE_DIAMETER_QUANTILE = 0.9;
+
+    private final CompactGraph graph;
+    private final boolean exact;
+    private final long seed;
+    private int size;
+    private int[] sources;
+    // 每个样本：可达顶点数（不含自身）、距离之和、各距离上的顶点数
+    private long[] reached;
+    private long[] distanceSums;
+    private long[][] histograms;
+
+    private ApproximateGraphStats(CompactGraph graph, int capacity, boolean exact, long seed) {
+        this.graph = graph;
+        this.exact = exact;
+        this.seed = seed;
+        sources = new int[capacity];
+        reached = new long[capacity];
+        distanceSums = new long[capacity];
+        histograms = new long[capacity][];
+    }
+
+    /**
+     * An estimate with its 95% confidence interval.
+     */
+    public static final class Estimate {
+        private final double value;
+        private final double low;
+        private final double high;
+
+        Estimate(double value, double low, double high) {
+            this.value = value;
+            this.low = low;
+            this.high = high;
+        }
+
+        public double value() {
+            return value;
+        }
+
+        public double low() {
+            return low;
+        }
+
+        public double high() {
+            return high;
+        }
+
+        /**
+         * Returns half the width of the interval relative to the value.
+         */
+        public double relativeError() {
+            return value == 0 ? (high == low ? 0 : Double.POSITIVE_INFINITY)
+                    : (high - low) / 2 / Math.abs(value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.4g [%.4g, %.4g]", value, low, high);
+        }
+    }
+
+    /**
+     * Searches from {@code sampleSize} vertices drawn uniformly with replacement, or from
+     * every vertex once if the sample would be at least as large as the graph.
+     *
+     * @param seed The seed of the sample, so that a run can be repeated.
+     */
+    public static ApproximateGraphStats sample(CompactGraph graph, int sampleSize, long seed,
+                                               int parallelism) {
+        if (sampleSize >= graph.vertexCount) {
+            return everyVertex(graph, seed, parallelism);
+        }
+        ApproximateGraphStats stats = new ApproximateGraphStats(graph, sampleSize, false, seed);
+        stats.grow(sampleSize, new SplittableRandom(seed), parallelism);
+        return stats;
+    }
+
+    /**
+     * Doubles the sample, starting from {@link #FIRST_ROUND_SAMPLES} sources, until the
+     * average distance and the reachable set size are both known to within
+     * {@code relativeError} (half the width of their confidence intervals relative to the
+     * estimate), or the sample reaches {@code maxSamples}.
+     */
+    public static ApproximateGraphStats sampleUntil(CompactGraph graph, double relativeError,
+                                                    int maxSamples, long seed,
+                                                    int parallelism) {
+        int target = Math.min(FIRST_ROUND_SAMPLES, maxSamples);
+        if (target >= graph.vertexCount) {
+            return everyVertex(graph, seed, parallelism);
+        }
+        ApproximateGraphStats stats = new ApproximateGraphStats(graph, target, false, seed);
+        SplittableRandom random = new SplittableRandom(seed);
+        while (true) {
+            stats.grow(target, random, parallelism);
+            // 样本中没有可达的词对时平均距离无从估计，只看可达集合的大小
+            Estimate distance = stats.averageDistance();
+            if (target >= maxSamples || stats.reachableSetSize().relativeError() <= relativeError
+                    && (Double.isNaN(distance.value())
+                    || distance.relativeError() <= relativeError)) {
+                return stats;
+            }
+            target = (int) Math.min(maxSamples, 2L * target);
+            if (target >= graph.vertexCount) {
+                return everyVertex(graph, seed, parallelism);
+            }
+        }
+    }
+
+    private static ApproximateGraphStats everyVertex(CompactGraph graph, long seed,
+                                                     int parallelism) {
+        int n = graph.vertexCount;
+        ApproximateGraphStats stats = new ApproximateGraphStats(graph, n, true, seed);
+        for (int v = 0; v < n; v++) {
+            stats.sources[v] = v;
+        }
+        stats.search(0, n, parallelism);
+        return stats;
+    }
+
+    /**
+     * Draws sources until the sample has {@code target} of them and searches from the new
+     * ones.
+     */
+    private void grow(int target, SplittableRandom random, int parallelism) {
+        if (target > sources.length) {
+            sources = Arrays.copyOf(sources, target);
+            reached = Arrays.copyOf(reached, target);
+            distanceSums = Arrays.copyOf(distanceSums, target);
+            histograms = Arrays.copyOf(histograms, target);
+        }
+        for (int i = size; i < target; i++) {
+            sources[i] = random.nextInt(graph.vertexCount);
+        }
+        search(size, target, parallelism);
+    }
+
+    private void search(int from, int to, int parallelism) {
+        int threads = Math.max(1, Math.min(parallelism, to - from));
+        if (threads == 1) {
+            searchStripe(from, to, 0, 1);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                // 每个线程一份搜索缓冲区，按步长交错分配样本以平衡负载
+                pool.submit(() -> IntStream.range(0, threads).parallel()
+                        .forEach(stripe -> searchStripe(from, to, stripe, threads))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while sampling the graph", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Sampling the graph failed", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        size = to;
+    }
+
+    private void searchStripe(int from, int to, int stripe, int stripes) {
+        int n = graph.vertexCount;
+        int[] seen = new int[n];
+        int[] queue = new int[n];
+        long[] levels = new long[16];
+        for (int i = from + stripe; i < to; i += stripes) {
+            int generation = i - from + 1;
+            int source = sources[i];
+            seen[source] = generation;
+            queue[0] = source;
+            int head = 0;
+            int tail = 1;
+            int depth = 0;
+            long sum = 0;
+            // 逐层扩展，levels[d] 为距离恰为 d 的顶点数
+            while (head < tail) {
+                int levelEnd = tail;
+                depth++;
+                for (; head < levelEnd; head++) {
+                    int u = queue[head];
+                    for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                        int v = graph.targets[e];
+                        if (seen[v] != generation) {
+                            seen[v] = generation;
+                            queue[tail++] = v;
+                        }
+                    }
+                }
+                if (tail > levelEnd) {
+                    if (depth == levels.length) {
+                        levels = Arrays.copyOf(levels, 2 * depth);
+                    }
+                    levels[depth] = tail - levelEnd;
+                    sum += (long) depth * (tail - levelEnd);
+                }
+            }
+            // 最后一层没有新顶点，最远距离为 depth - 1
+            reached[i] = tail - 1;
+            distanceSums[i] = sum;
+            histograms[i] = Arrays.copyOf(levels, depth);
+            Arrays.fill(levels, 0);
+        }
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    public int sampleSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether every vertex was searched, so the estimates are exact.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Returns the mean number of other words reachable from a word.
+     */
+    public Estimate reachableSetSize() {
+        if (size == 0) {
+            return new Estimate(0, 0, 0);
+        }
+        double mean = 0;
+        for (int i = 0; i < size; i++) {
+            mean += reached[i];
+        }
+        mean /= size;
+        double squares = 0;
+        for (int i = 0; i < size; i++) {
+            squares += (reached[i] - mean) * (reached[i] - mean);
+        }
+        double halfWidth = halfWidth(squares);
+        return new Estimate(mean, Math.max(0, mean - halfWidth),
+                Math.min(graph.vertexCount - 1, mean + halfWidth));
+    }
+
+    /**
+     * Returns the share of ordered pairs of distinct words connected by a path.
+     */
+    public Estimate reachablePairFraction() {
+        Estimate reachable = reachableSetSize();
+        double others = Math.max(1, graph.vertexCount - 1);
+        return new Estimate(reachable.value / others, reachable.low / others,
+                reachable.high / others);
+    }
+
+    /**
+     * Returns the mean length, in hops, of the shortest paths between connected words; NaN if
+     * no word of the sample reaches another.
+     */
+    public Estimate averageDistance() {
+        double totalReached = 0;
+        double totalDistance = 0;
+        for (int i = 0; i < size; i++) {
+            totalReached += reached[i];
+            totalDistance += distanceSums[i];
+        }
+        if (totalReached == 0) {
+            return new Estimate(Double.NaN, Double.NaN, Double.NaN);
+        }
+        double ratio = totalDistance / totalReached;
+        // 比值估计的线性化方差：残差 S_i - ratio * R_i 除以 R 的均值
+        double squares = 0;
+        for (int i = 0; i < size; i++) {
+            double residual = distanceSums[i] - ratio * reached[i];
+            squares += residual * residual;
+        }
+        double halfWidth = halfWidth(squares) / (totalReached / size);
+        return new Estimate(ratio, Math.max(1, ratio - halfWidth), ratio + halfWidth);
+    }
+
+    /**
+     * Returns the half width of the 95% interval of a mean, given the sum of squared
+     * deviations of the sample.
+     */
+    private double halfWidth(double squares) {
+        if (exact) {
+            return 0;
+        }
+        if (size < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Z_95 * Math.sqrt(squares / (size - 1) / size);
+    }
+
+    /**
+     * Returns the effective diameter: the distance within which
+     * {@link #EFFECTIVE_DIAMETER_QUANTILE} of the connected pairs lie, interpolated between
+     * whole hops; NaN if no word of the sample reaches another. The interval is the 2.5% and
+     * 97.5% percentiles of {@link #BOOTSTRAP_ROUNDS} resamples of the sources.
+     */
+    public Estimate effectiveDiameter() {
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) {
+            all[i] = i;
+        }
+        double value = effectiveDiameter(all);
+        if (exact || Double.isNaN(value)) {
+            return new Estimate(value, value, value);
+        }
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        double[] rounds = new double[BOOTSTRAP_ROUNDS];
+        int[] resample = new int[size];
+        for (int round = 0; round < BOOTSTRAP_ROUNDS; round++) {
+            for (int i = 0; i < size; i++) {
+                resample[i] = random.nextInt(size);
+            }
+            double diameter = effectiveDiameter(resample);
+            // 重抽样可能只抽到不可达的源点
+            rounds[round] = Double.isNaN(diameter) ? 0 : diameter;
+        }
+        Arrays.sort(rounds);
+        return new Estimate(value, rounds[(int) (0.025 * BOOTSTRAP_ROUNDS)],
+                rounds[(int) Math.ceil(0.975 * BOOTSTRAP_ROUNDS) - 1]);
+    }
+
+    private double effectiveDiameter(int[] samples) {
+        long[] pooled = new long[1];
+        long total = 0;
+        for (int i : samples) {
+            long[] histogram = histograms[i];
+            if (histogram.length > pooled.length) {
+                pooled = Arrays.copyOf(pooled, histogram.length);
+            }
+            for (int d = 1; d < histogram.length; d++) {
+                pooled[d] += histogram[d];
+                total += histogram[d];
+            }
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double wanted = EFFECTIVE_DIAMETER_QUANTILE * total;
+        long cumulative = 0;
+        for (int d = 1; d < pooled.length; d++) {
+            if (cumulative + pooled[d] >= wanted) {
+                return d - 1 + (wanted - cumulative) / pooled[d];
+            }
+            cumulative += pooled[d];
+        }
+        return pooled.length - 1;
+    }
+
+    /**
+     * Returns the longest distance seen from a sampled word, a lower bound of the diameter
+     * (exact if every vertex was searched).
+     */
+    public int maxObservedDistance() {
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, histograms[i].length - 1);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the estimated number of ordered pairs of words at every distance from 1,
+     * indexed by the distance, scaled from the sample to the whole graph.
+     */
+    public double[] distanceDistribution() {
+        double[] pairs = new double[maxObservedDistance() + 1];
+        double scale = (double) graph.vertexCount / Math.max(1, size);
+        for (int i = 0; i < size; i++) {
+            long[] histogram = histograms[i];
+            for (int d = 1; d < histogram.length; d++) {
+                pairs[d] += histogram[d] * scale;
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns the estimates with their 95% confidence intervals, one per line.
+     */
+    public String report() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%s from %d of %d words%n",
+                exact ? "Exact values" : "Estimates (95% confidence)", size, graph.vertexCount));
+        text.append("average distance:      ").append(averageDistance()).append('\n');
+        text.append("effective diameter:    ").append(effectiveDiameter()).append('\n');
+        text.append("reachable words:       ").append(reachableSetSize()).append('\n');
+        text.append("reachable pairs share: ").append(reachablePairFraction()).append('\n');
+        text.append(exact ? "diameter:              " : "longest distance seen: ")
+                .append(maxObservedDistance()).append('\n');
+        return text.toString();
+    }
+}
@@ -0,0 +1,86 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ApproximateGraphStatsTest {
+
+    private static CompactGraph randomGraph(long seed, int vertices, int edges) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder();
+        for (int v = 0; v < vertices; v++) {
+            builder.addVertex("v" + v);
+        }
+        for (int i = 0; i < edges; i++) {
+            builder.addEdge(random.nextInt(vertices), random.nextInt(vertices));
+        }
+        return builder.build();
+    }
+
+    private static void assertWithin(ApproximateGraphStats.Estimate estimate, double exact) {
+        assertTrue(estimate + " should contain " + exact,
+                estimate.low() <= exact && exact <= estimate.high());
+    }
+
+    @Test
+    public void testExactOnAChain() {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("a b c d");
+        ApproximateGraphStats stats = graph.approximateStats(10, 1);
+        assertTrue(stats.isExact());
+        assertEquals(4, stats.sampleSize());
+        // 距离 1 的有 3 对，距离 2 的 2 对，距离 3 的 1 对
+        assertEquals(10.0 / 6, stats.averageDistance().value(), 1e-12);
+        assertEquals(stats.averageDistance().value(), stats.averageDistance().high(), 0);
+        assertEquals(1.5, stats.reachableSetSize().value(), 0);
+        assertEquals(0.5, stats.reachablePairFraction().value(), 0);
+        assertEquals(2.4, stats.effectiveDiameter().value(), 1e-12);
+        assertEquals(3, stats.maxObservedDistance());
+        assertEquals(2, stats.distanceDistribution()[2], 0);
+    }
+
+    @Test
+    public void testSampleBracketsTheExactValues() {
+        CompactGraph g = randomGraph(22, 3000, 4500);
+        ApproximateGraphStats exact = ApproximateGraphStats.sample(g, g.vertexCount(), 0, 2);
+        assertTrue(exact.isExact());
+        // 与逐点 Dijkstra 的结果一致
+        ShortestPathEngine engine = new ShortestPathEngine(g);
+        double sum = 0;
+        long pairs = 0;
+        for (int v = 0; v < g.vertexCount(); v++) {
+            for (double d : engine.distancesFrom(v, PathMode.HOPS)) {
+                if (d > 0 && d != Double.POSITIVE_INFINITY) {
+                    sum += d;
+                    pairs++;
+                }
+            }
+        }
+        assertEquals(sum / pairs, exact.averageDistance().value(), 1e-9);
+        assertEquals((double) pairs / g.vertexCount(), exact.reachableSetSize().value(), 1e-9);
+
+        ApproximateGraphStats sample = ApproximateGraphStats.sample(g, 300, 5, 1);
+        assertFalse(sample.isExact());
+        assertEquals(300, sample.sampleSize());
+        assertWithin(sample.averageDistance(), exact.averageDistance().value());
+        assertWithin(sample.reachableSetSize(), exact.reachableSetSize().value());
+        assertWithin(sample.effectiveDiameter(), exact.effectiveDiameter().value());
+        assertTrue(sample.maxObservedDistance() <= exact.maxObservedDistance());
+        // 结果只取决于种子，与并行度无关
+        assertEquals(sample.report(), ApproximateGraphStats.sample(g, 300, 5, 4).report());
+    }
+
+    @Test
+    public void testSamplingStopsAtTheRequestedError() {
+        CompactGraph g = randomGraph(23, 5000, 10000);
+        ApproximateGraphStats stats = ApproximateGraphStats.sampleUntil(g, 0.05, 4096, 7, 2);
+        assertTrue(stats.sampleSize() >= ApproximateGraphStats.FIRST_ROUND_SAMPLES);
+        assertTrue(stats.averageDistance().relativeError() <= 0.05);
+        assertTrue(stats.reachableSetSize().relativeError() <= 0.05);
+        ApproximateGraphStats capped = ApproximateGraphStats.sampleUntil(g, 1e-6, 100, 7, 2);
+        assertEquals(100, capped.sampleSize());
+        assertTrue(capped.averageDistance().relativeError() > 1e-6);
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BatchQueryRunner answers a file of queries against one shared graph without any
+ * interaction. Every non-empty line that does not start with {@code #} is one query:
+ * <pre>
+ *   bridge WORD1 WORD2
+ *   predict WORD [K]
+ *   path WORD1 WORD2 [hops|weight|frequency]
+ *   path WORD
+ *   paths WORD1 WORD2 [K] [hops|weight|frequency]
+ *   ties WORD1 WORD2 [LIMIT] [hops|weight|frequency]
+ *   generate TEXT...
+ *   walk [MAX_STEPS]
+ * </pre>
+ * Queries are answered in batches of {@link #BATCH_QUERIES} on a thread pool and written
+ * one result per line (multi-line results have their line breaks replaced by {@code " | "})
+ * in input order. Random walks are seeded from the job seed and the line number, so a job
+ * gives the same walks whatever the parallelism.
+ */
+public class BatchQueryRunner {
+
+    static final int BATCH_QUERIES = 256;
+
+    private final CustomGraph graph;
+    private final int parallelism;
+    private final long seed;
+
+    public BatchQueryRunner(CustomGraph graph, int parallelism, long seed) {
+        this.graph = graph;
+        this.parallelism = Math.max(1, parallelism);
+        this.seed = seed;
+    }
+
+    /**
+     * Throughput and latency figures of a finished job.
+     */
+    public static final class Summary {
+        private final long queries;
+        private final long errors;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Summary(long queries, long errors, long elapsedNanos, long[] sortedLatencies) {
+            this.queries = queries;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public long queries() {
+            return queries;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        public double queriesPerSecond() {
+            return elapsedNanos == 0 ? 0 : queries * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the latency below which {@code percentile} percent of the queries finished,
+         * in microseconds.
+         */
+        public double latencyMicros(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int last = sortedLatencies.length - 1;
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, last))] / 1e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d queries (%d errors) in %.2f s, %.0f queries/s; latency p50 %.1f us,"
+                            + " p90 %.1f us, p99 %.1f us, max %.1f us",
+                    queries, errors, elapsedNanos / 1e9, queriesPerSecond(),
+                    latencyMicros(50), latencyMicros(90), latencyMicros(99), latencyMicros(100));
+        }
+    }
+
+    private static final class Batch {
+        final String[] queries = new String[BATCH_QUERIES];
+        final long[] lines = new long[BATCH_QUERIES];
+        int size;
+        StringBuilder output;
+        long[] latencies;
+        int errors;
+    }
+
+    /**
+     * Runs every query read from {@code in} and writes the results to {@code out}.
+     *
+     * @return The summary of the job.
+     * @throws IOException If reading or writing fails.
+     */
+    public Summary run(Reader in, Writer out) throws IOException {
+        // 在并发查询之前先构建好共享的只读结构
+        graph.graph();
+        graph.bridgeIndex();
+        graph.randomWalkEngine();
+
+        ExecutorService executor =
+                parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        long[][] latencies = new long[1][1024];
+        long[] counts = new long[2];
+        OrderedPipeline<Batch> pipeline = new OrderedPipeline<>(executor, 2 * parallelism,
+                batch -> {
+                    out.append(batch.output);
+                    int size = batch.latencies.length;
+                    if (counts[0] + size > latencies[0].length) {
+                        latencies[0] = Arrays.copyOf(latencies[0],
+                                (int) Math.max(2 * latencies[0].length, counts[0] + size));
+                    }
+                    System.arraycopy(batch.latencies, 0, latencies[0], (int) counts[0], size);
+                    counts[0] += size;
+                    counts[1] += batch.errors;
+                });
+        long start = System.nanoTime();
+        try {
+            BufferedReader reader = in instanceof BufferedReader
+                    ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+            Batch batch = new Batch();
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                text = text.trim();
+                if (text.isEmpty() || text.startsWith("#")) {
+                    continue;
+                }
+                batch.queries[batch.size] = text;
+                batch.lines[batch.size++] = line;
+                if (batch.size == BATCH_QUERIES) {
+                    submit(pipeline, batch);
+                    batch = new Batch();
+                }
+            }
+            if (batch.size > 0) {
+                submit(pipeline, batch);
+            }
+            pipeline.finish();
+        } finally {
+            pipeline.cancel();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        out.flush();
+        long elapsed = System.nanoTime() - start;
+        long[] sorted = Arrays.copyOf(latencies[0], (int) counts[0]);
+        Arrays.sort(sorted);
+        return new Summary(counts[0], counts[1], elapsed, sorted);
+    }
+
+    private void submit(OrderedPipeline<Batch> pipeline, Batch batch) throws IOException {
+        pipeline.submit(() -> answer(batch));
+    }
+
+    private Batch answer(Batch batch) {
+        int size = batch.size;
+        StringBuilder output = new StringBuilder(size * 32);
+        long[] latencies = new long[size];
+        for (int i = 0; i < size; i++) {
+            long line = batch.lines[i];
+            long start = System.nanoTime();
+            String result;
+            try {
+                result = answer(batch.queries[i], line);
+            } catch (IllegalArgumentException e) {
+                result = "ERROR line " + line + ": " + e.getMessage();
+                batch.errors++;
+            }
+            latencies[i] = System.nanoTime() - start;
+            output.append(result.replace("\n", " | ")).append('\n');
+        }
+        batch.output = output;
+        batch.latencies = latencies;
+        return batch;
+    }
+
+    /**
+     * Answers one query.
+     *
+     * @throws IllegalArgumentException If the query is malformed.
+     */
+    String answer(String query, long line) {
+        String[] parts = query.split("\\s+");
+        switch (parts[0].toLowerCase(Locale.ROOT)) {
+            case "bridge":
+                expectArguments(parts, 2, 2);
+                return graph.queryBridgeWords(parts[1], parts[2]);
+            case "predict":
+                expectArguments(parts, 1, 2);
+                return graph.queryNextWords(parts[1], parts.length == 3
+                        ? count(parts[2], "prediction") : CustomGraph.DEFAULT_PREDICTIONS);
+            case "path":
+                expectArguments(parts, 1, 3);
+                if (parts.length == 2) {
+                    return graph.calcShortestPath(parts[1]);
+                }
+                PathMode mode = parts.length == 4 ? mode(parts[3]) : PathMode.HOPS;
+                return graph.calcShortestPath(parts[1], parts[2], mode, false);
+            case "paths":
+            case "ties":
+                // K 条最短的简单路径，或所有同样最短的路径
+                expectArguments(parts, 2, 4);
+                boolean tied = parts[0].equalsIgnoreCase("ties");
+                int limit = parts.length >= 4 ? count(parts[3], "path") : tied
+                        ? CustomGraph.DEFAULT_TIED_PATHS : CustomGraph.DEFAULT_ALTERNATIVE_PATHS;
+                return graph.queryAlternativePaths(parts[1], parts[2],
+                        parts.length == 5 ? mode(parts[4]) : PathMode.HOPS, limit, tied);
+            case "generate":
+                expectArguments(parts, 1, Integer.MAX_VALUE);
+                return graph.generateNewText(query.substring(parts[0].length()).trim());
+            case "walk":
+                expectArguments(parts, 0, 1);
+                return walk(parts.length == 2 ? steps(parts[1]) : 0, line);
+            default:
+                throw new IllegalArgumentException("unknown operation " + parts[0]);
+        }
+    }
+
+    private String walk(int maxSteps, long line) {
+        RandomWalkEngine engine = graph.randomWalkEngine();
+        CompactGraph g = engine.graph();
+        if (g.vertexCount() == 0) {
+            return "The graph is empty.";
+        }
+        SplittableRandom random = new SplittableRandom(TextGenerator.mix(seed, line));
+        int[] path = graph.walk(engine, engine.randomVertex(random), maxSteps, random);
+        StringBuilder text = new StringBuilder();
+        for (int vertex : path) {
+            if (text.length() > 0) {
+                text.append(" -> ");
+            }
+            text.append(g.word(vertex));
+        }
+        return text.toString();
+    }
+
+    private static void expectArguments(String[] parts, int min, int max) {
+        int count = parts.length - 1;
+        if (count < min || count > max) {
+            throw new IllegalArgumentException("wrong number of arguments for " + parts[0]);
+        }
+    }
+
+    private static PathMode mode(String name) {
+        try {
+            return PathMode.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown path mode " + name);
+        }
+    }
+
+    private static int count(String text, String what) {
+        try {
+            int count = Integer.parseInt(text);
+            if (count > 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // 与非正数一样按格式错误处理
+        }
+        throw new IllegalArgumentException("bad " + what + " count " + text);
+    }
+
+    private static int steps(String text) {
+        try {
+            int steps = Integer.parseInt(text);
+            if (steps >= 0) {
+                return steps;
+            }
+        } catch (NumberFormatException e) {
+            // 与负数一样按格式错误处理
+        }
+        throw new IllegalArgumentException("bad step count " + text);
+    }
+}
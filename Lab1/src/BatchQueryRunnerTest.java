@@ -0,0 +1,70 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class BatchQueryRunnerTest {
+
+    private CustomGraph sampleGraph() {
+        CustomGraph graph = new CustomGraph();
+        String[] words = "the quick fox jumps over the lazy dog and the quick cat".split(" ");
+        for (int i = 0; i < words.length - 1; i++) {
+            graph.addEdge(words[i], words[i + 1]);
+        }
+        return graph;
+    }
+
+    @Test
+    public void testResultsFollowInputOrder() throws IOException {
+        CustomGraph graph = sampleGraph();
+        StringBuilder queries = new StringBuilder("# nightly job\n\n");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3 * BatchQueryRunner.BATCH_QUERIES; i++) {
+            queries.append("bridge the fox\n");
+            expected.append(graph.queryBridgeWords("the", "fox")).append('\n');
+            queries.append("path fox dog weight\n");
+            expected.append(graph.calcShortestPath("fox", "dog", PathMode.WEIGHT, false))
+                    .append('\n');
+            queries.append("path over\n");
+            expected.append(graph.calcShortestPath("over").replace("\n", " | ")).append('\n');
+            queries.append("generate the fox jumps the dog\n");
+            expected.append(graph.generateNewText("the fox jumps the dog")).append('\n');
+        }
+        StringWriter out = new StringWriter();
+        BatchQueryRunner.Summary summary = new BatchQueryRunner(graph, 4, 1)
+                .run(new StringReader(queries.toString()), out);
+        assertEquals(expected.toString(), out.toString());
+        assertEquals(12 * BatchQueryRunner.BATCH_QUERIES, summary.queries());
+        assertEquals(0, summary.errors());
+        assertTrue(summary.latencyMicros(50) <= summary.latencyMicros(99));
+        assertTrue(summary.toString().contains("queries/s"));
+    }
+
+    @Test
+    public void testWalksAreReproducibleAndErrorsReported() throws IOException {
+        CustomGraph graph = sampleGraph();
+        StringBuilder queries = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            queries.append(i % 100 == 0 ? "walk -1\n" : "walk 5\n");
+        }
+        queries.append("path the\tfox hops extra\n");
+        queries.append("teleport the fox\n");
+        StringWriter serial = new StringWriter();
+        new BatchQueryRunner(graph, 1, 7).run(new StringReader(queries.toString()), serial);
+        StringWriter parallel = new StringWriter();
+        BatchQueryRunner.Summary summary = new BatchQueryRunner(graph, 4, 7)
+                .run(new StringReader(queries.toString()), parallel);
+        assertEquals(serial.toString(), parallel.toString());
+        assertEquals(12, summary.errors());
+
+        String[] lines = parallel.toString().split("\n");
+        assertEquals(1002, lines.length);
+        assertEquals("ERROR line 1: bad step count -1", lines[0]);
+        assertTrue(lines[1].split(" -> ").length <= 6);
+        assertEquals("ERROR line 1001: wrong number of arguments for path", lines[1000]);
+        assertEquals("ERROR line 1002: unknown operation teleport", lines[1001]);
+    }
+}
@@ -0,0 +1,236 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * BridgeIndex answers bridge-word queries ({@code word1 -> bridge -> word2}) on a
+ * {@link CompactGraph}.
+ * The bridge sets of the highest out-degree words, the ones whose on-the-fly intersection is
+ * the most expensive and which dominate a Zipf-distributed corpus, are materialized up to a
+ * memory budget; every other pair is answered by intersecting the out-neighbours of word1
+ * with the in-neighbours of word2.
+ * Either way the bridges come back sorted by vertex id. Instances are immutable and safe to
+ * share between threads.
+ */
+public class BridgeIndex {
+
+    private static final int[] NONE = new int[0];
+    private static final int PARALLEL_BATCH = 1024;
+
+    private final CompactGraph graph;
+    private final int[] sourceSlot; // vertex -> row of the index, -1 if not materialized
+    private final int[][] secondWords;
+    private final int[][] bridgeOffsets;
+    private final int[][] bridgeWords;
+    private final long bytes;
+
+    private BridgeIndex(CompactGraph graph, int[] sourceSlot, int[][] secondWords,
+                        int[][] bridgeOffsets, int[][] bridgeWords, long bytes) {
+        this.graph = graph;
+        this.sourceSlot = sourceSlot;
+        this.secondWords = secondWords;
+        this.bridgeOffsets = bridgeOffsets;
+        this.bridgeWords = bridgeWords;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Materializes the bridge sets of the highest out-degree vertices until the next one
+     * would exceed {@code memoryBudgetBytes}.
+     * A budget of 0 gives an index that always intersects on the fly.
+     *
+     * @param graph The graph to index.
+     * @param memoryBudgetBytes The maximum heap to spend on materialized bridge sets.
+     * @return The index.
+     */
+    public static BridgeIndex build(CompactGraph graph, long memoryBudgetBytes) {
+        int vertexCount = graph.vertexCount;
+        if (memoryBudgetBytes < 4L * vertexCount) {
+            return new BridgeIndex(graph, null, null, null, null, 0);
+        }
+        // 按出度降序排列顶点：键为 (-出度 << 32 | 顶点)
+        long[] byDegree = new long[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            byDegree[v] = ((long) -graph.outDegree(v) << 32) | v;
+        }
+        Arrays.sort(byDegree);
+
+        int[] sourceSlot = new int[vertexCount];
+        Arrays.fill(sourceSlot, -1);
+        long bytes = 4L * vertexCount;
+        int[][] secondWords = new int[16][];
+        int[][] bridgeOffsets = new int[16][];
+        int[][] bridgeWords = new int[16][];
+        int slots = 0;
+        for (long key : byDegree) {
+            int source = (int) key;
+            if (graph.outDegree(source) < 2) {
+                break;
+            }
+            long paths = 0;
+            for (int e = graph.offsets[source]; e < graph.offsets[source + 1]; e++) {
+                paths += graph.outDegree(graph.targets[e]);
+            }
+            // 上界估计：每条两跳路径最多占12字节
+            long cost = 12 * paths + 64;
+            if (paths == 0 || paths > Integer.MAX_VALUE || bytes + cost > memoryBudgetBytes) {
+                continue;
+            }
+            if (slots == secondWords.length) {
+                secondWords = Arrays.copyOf(secondWords, slots * 2);
+                bridgeOffsets = Arrays.copyOf(bridgeOffsets, slots * 2);
+                bridgeWords = Arrays.copyOf(bridgeWords, slots * 2);
+            }
+            bytes += materialize(graph, source, (int) paths, slots,
+                    secondWords, bridgeOffsets, bridgeWords);
+            sourceSlot[source] = slots++;
+        }
+        return new BridgeIndex(graph, sourceSlot, Arrays.copyOf(secondWords, slots),
+                Arrays.copyOf(bridgeOffsets, slots), Arrays.copyOf(bridgeWords, slots), bytes);
+    }
+
+    private static long materialize(CompactGraph graph, int source, int paths, int slot,
+                                    int[][] secondWords, int[][] bridgeOffsets,
+                                    int[][] bridgeWords) {
+        // (word2 << 32 | bridge) 排序后按word2分组，组内bridge升序
+        long[] pairs = new long[paths];
+        int n = 0;
+        for (int e = graph.offsets[source]; e < graph.offsets[source + 1]; e++) {
+            int bridge = graph.targets[e];
+            for (int f = graph.offsets[bridge]; f < graph.offsets[bridge + 1]; f++) {
+                pairs[n++] = ((long) graph.targets[f] << 32) | bridge;
+            }
+        }
+        Arrays.sort(pairs);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || (pairs[i] >>> 32) != (pairs[i - 1] >>> 32)) {
+                distinct++;
+            }
+        }
+        int[] seconds = new int[distinct];
+        int[] offsets = new int[distinct + 1];
+        int[] bridges = new int[n];
+        int k = -1;
+        for (int i = 0; i < n; i++) {
+            int second = (int) (pairs[i] >>> 32);
+            if (k < 0 || seconds[k] != second) {
+                seconds[++k] = second;
+                offsets[k] = i;
+            }
+            bridges[i] = (int) pairs[i];
+        }
+        offsets[distinct] = n;
+        secondWords[slot] = seconds;
+        bridgeOffsets[slot] = offsets;
+        bridgeWords[slot] = bridges;
+        return 4L * (seconds.length + offsets.length + bridges.length);
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the heap used by the materialized bridge sets in bytes.
+     */
+    public long estimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns true if the bridge sets of {@code from} are materialized.
+     */
+    public boolean isIndexed(int from) {
+        return sourceSlot != null && sourceSlot[from] >= 0;
+    }
+
+    /**
+     * Returns the ids of the bridge words from {@code from} to {@code to}, sorted ascending.
+     * The returned array must not be modified.
+     *
+     * @param from The id of the first word.
+     * @param to The id of the second word.
+     * @return The bridge word ids, empty if there are none.
+     */
+    public int[] bridges(int from, int to) {
+        if (isIndexed(from)) {
+            int slot = sourceSlot[from];
+            int i = Arrays.binarySearch(secondWords[slot], to);
+            if (i < 0) {
+                return NONE;
+            }
+            int[] offsets = bridgeOffsets[slot];
+            return Arrays.copyOfRange(bridgeWords[slot], offsets[i], offsets[i + 1]);
+        }
+        return intersect(from, to);
+    }
+
+    /**
+     * Answers many bridge queries at once, in parallel for large batches.
+     *
+     * @param from The ids of the first words.
+     * @param to The ids of the second words, parallel to {@code from}.
+     * @return The bridge word ids of every pair, in input order.
+     */
+    public int[][] bridges(int[] from, int[] to) {
+        if (from.length != to.length) {
+            throw new IllegalArgumentException("from and to must have the same length");
+        }
+        int[][] result = new int[from.length][];
+        IntStream range = IntStream.range(0, from.length);
+        if (from.length >= PARALLEL_BATCH) {
+            range = range.parallel();
+        }
+        range.forEach(i -> result[i] = from[i] < 0 || to[i] < 0 ? NONE : bridges(from[i], to[i]));
+        return result;
+    }
+
+    /**
+     * Intersects the sorted out-neighbours of {@code from} with the sorted in-neighbours of
+     * {@code to}, walking the shorter list and galloping through the longer one, so the cost
+     * is O(m log(n / m)) for lists of lengths m &lt;= n.
+     */
+    private int[] intersect(int from, int to) {
+        CompactGraph.InEdges in = graph.inEdges();
+        int[] shortList = graph.targets;
+        int shortStart = graph.offsets[from];
+        int shortEnd = graph.offsets[from + 1];
+        int[] longList = in.sources;
+        int longStart = in.offsets[to];
+        int longEnd = in.offsets[to + 1];
+        if (shortEnd - shortStart > longEnd - longStart) {
+            shortList = in.sources;
+            longList = graph.targets;
+            shortStart = in.offsets[to];
+            shortEnd = in.offsets[to + 1];
+            longStart = graph.offsets[from];
+            longEnd = graph.offsets[from + 1];
+        }
+        int[] found = null;
+        int count = 0;
+        int position = longStart;
+        for (int i = shortStart; i < shortEnd && position < longEnd; i++) {
+            int bridge = shortList[i];
+            // 指数步长找到上界，再在区间内二分
+            int step = 1;
+            int high = position;
+            while (high < longEnd && longList[high] < bridge) {
+                position = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int end = Math.min(high + 1, longEnd);
+            int index = Arrays.binarySearch(longList, position, end, bridge);
+            if (index >= 0) {
+                if (found == null) {
+                    found = new int[shortEnd - i];
+                }
+                found[count++] = bridge;
+                position = index + 1;
+            } else {
+                position = -index - 1;
+            }
+        }
+        return found == null ? NONE : Arrays.copyOf(found, count);
+    }
+}
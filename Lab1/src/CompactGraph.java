@@ -0,0 +1,162 @@
+import java.util.Arrays;
+
+/**
+ * CompactGraph is the frozen, read-only form of the word graph.
+ * Vertices are the dense ids of a {@link VertexDictionary}; the out-edges of vertex {@code v}
+ * occupy {@code targets[offsets[v] .. offsets[v + 1])} (CSR layout), sorted by target id,
+ * with the edge counts in the parallel {@code weights} array.
+ * Instances are built by {@link GraphBuilder} and never change afterwards.
+ */
+public class CompactGraph {
+
+    final VertexDictionary dictionary;
+    final int vertexCount;
+    final int[] offsets;
+    final int[] targets;
+    final int[] weights;
+    private volatile InEdges inEdges;
+    private volatile long[] outWeights;
+
+    CompactGraph(VertexDictionary dictionary, int vertexCount,
+                 int[] offsets, int[] targets, int[] weights) {
+        this.dictionary = dictionary;
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the id of a (lower-case) word, or -1 if it is not a vertex of this graph.
+     */
+    public int id(String word) {
+        int id = dictionary.find(word);
+        return id < vertexCount ? id : -1;
+    }
+
+    public String word(int id) {
+        return dictionary.word(id);
+    }
+
+    public int outDegree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    /**
+     * Finds the edge {@code from -> to} by binary search over the sorted row of {@code from}.
+     *
+     * @return The index of the edge in {@code targets}/{@code weights}, or -1 if absent.
+     */
+    public int edgeIndex(int from, int to) {
+        int low = offsets[from];
+        int high = offsets[from + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int target = targets[mid];
+            if (target < to) {
+                low = mid + 1;
+            } else if (target > to) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the count of the edge {@code from -> to}, or 0 if there is no such edge.
+     */
+    public int weight(int from, int to) {
+        int edge = edgeIndex(from, to);
+        return edge < 0 ? 0 : weights[edge];
+    }
+
+    /**
+     * Returns the summed count of the out-edges of {@code vertex}, i.e. how often the word is
+     * followed by another one.
+     */
+    public long outWeight(int vertex) {
+        long[] sums = outWeights;
+        if (sums == null) {
+            sums = new long[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    sums[v] += weights[e];
+                }
+            }
+            outWeights = sums;
+        }
+        return sums[vertex];
+    }
+
+    public int inDegree(int vertex) {
+        InEdges in = inEdges();
+        return in.offsets[vertex + 1] - in.offsets[vertex];
+    }
+
+    /**
+     * Returns the reverse (CSR) adjacency of the graph, building it on first use.
+     */
+    InEdges inEdges() {
+        InEdges in = inEdges;
+        if (in == null) {
+            synchronized (this) {
+                in = inEdges;
+                if (in == null) {
+                    in = new InEdges(this);
+                    inEdges = in;
+                }
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Returns an estimate of the heap used by the graph and its dictionary in bytes.
+     */
+    public long estimatedBytes() {
+        return dictionary.estimatedBytes()
+                + 4L * (offsets.length + targets.length + weights.length);
+    }
+
+    /**
+     * The in-edges of every vertex: the sources of the edges into {@code v} are
+     * {@code sources[offsets[v] .. offsets[v + 1])}, sorted by source id, and {@code edges}
+     * holds the index of each of them in the forward arrays.
+     */
+    static final class InEdges {
+        final int[] offsets;
+        final int[] sources;
+        final int[] edges;
+
+        private InEdges(CompactGraph graph) {
+            int vertexCount = graph.vertexCount;
+            offsets = new int[vertexCount + 1];
+            sources = new int[graph.targets.length];
+            edges = new int[graph.targets.length];
+            for (int target : graph.targets) {
+                offsets[target + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] cursor = Arrays.copyOf(offsets, vertexCount);
+            for (int from = 0; from < vertexCount; from++) {
+                for (int e = graph.offsets[from]; e < graph.offsets[from + 1]; e++) {
+                    int slot = cursor[graph.targets[e]]++;
+                    sources[slot] = from;
+                    edges[slot] = e;
+                }
+            }
+        }
+    }
+}
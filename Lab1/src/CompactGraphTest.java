@@ -0,0 +1,60 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class CompactGraphTest {
+
+    @Test
+    public void testDictionaryInternsOnce() {
+        VertexDictionary dictionary = new VertexDictionary();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, dictionary.intern("word" + i));
+        }
+        assertEquals(42, dictionary.intern("word42"));
+        assertEquals(1000, dictionary.size());
+        assertEquals("word999", dictionary.word(999));
+        assertEquals(-1, dictionary.find("missing"));
+    }
+
+    @Test
+    public void testBuildSortsRowsAndSumsCounts() {
+        GraphBuilder builder = new GraphBuilder();
+        int a = builder.addVertex("a");
+        int b = builder.addVertex("b");
+        int c = builder.addVertex("c");
+        builder.addEdge(a, c);
+        builder.addEdge(a, b);
+        builder.addEdge(a, c);
+        builder.addEdge(c, a);
+
+        CompactGraph graph = builder.build();
+        assertEquals(3, graph.vertexCount());
+        assertEquals(3, graph.edgeCount());
+        assertEquals(2, graph.outDegree(a));
+        assertEquals(b, graph.targets[graph.offsets[a]]);
+        assertEquals(c, graph.targets[graph.offsets[a] + 1]);
+        assertEquals(2, graph.weight(a, c));
+        assertEquals(0, graph.weight(b, a));
+        assertEquals(-1, graph.edgeIndex(b, c));
+    }
+
+    @Test
+    public void testRebuildAfterMoreEdges() {
+        GraphBuilder builder = new GraphBuilder();
+        int a = builder.addVertex("a");
+        int b = builder.addVertex("b");
+        builder.addEdge(a, b);
+        CompactGraph first = builder.build();
+        assertSame(first, builder.build());
+
+        builder.addEdge(a, b);
+        int c = builder.addVertex("c");
+        builder.addEdge(b, c);
+        CompactGraph second = builder.build();
+        assertEquals(2, second.weight(a, b));
+        assertEquals(1, second.weight(b, c));
+        assertEquals(-1, first.id("c"));
+        assertEquals(c, second.id("c"));
+    }
+}
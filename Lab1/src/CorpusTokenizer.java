@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * CorpusTokenizer splits a byte stream into lower-case words in a single pass.
+ * Only ASCII letters belong to words; every other byte (digits, punctuation, white space,
+ * line breaks and non-ASCII bytes) separates them, which matches the
+ * {@code replaceAll("[^a-zA-Z ]", " ").toLowerCase().split("\\s+")} cleaning of
+ * {@link CustomGraph#readFile(String)}.
+ * Words are handed to a {@link TokenSink} as slices of a reused buffer, so no {@code String}
+ * is created per token.
+ */
+public class CorpusTokenizer {
+
+    /**
+     * Files are mapped window by window so that corpora larger than 2 GB can be read.
+     */
+    static final int WINDOW_SIZE = 64 << 20;
+
+    private final TokenSink sink;
+    private byte[] token = new byte[64];
+    private int length;
+
+    /**
+     * Receives the words of the corpus in order.
+     * The buffer is only valid for the duration of the call.
+     */
+    public interface TokenSink {
+        void token(byte[] buf, int off, int len);
+    }
+
+    public CorpusTokenizer(TokenSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Tokenizes a whole file through memory-mapped windows.
+     *
+     * @param file The file to read.
+     * @param sink The sink receiving the words.
+     * @return The number of bytes read.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long tokenizeFile(Path file, TokenSink sink) throws IOException {
+        CorpusTokenizer tokenizer = new CorpusTokenizer(sink);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                long windowSize = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window =
+                        channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                tokenizer.feed(window);
+            }
+            tokenizer.finish();
+            return size;
+        }
+    }
+
+    /**
+     * Consumes the remaining bytes of a buffer; a word cut at the end of the buffer is kept
+     * until the next call to {@code feed} or {@link #finish()}.
+     */
+    public void feed(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            int b = buffer.get(i);
+            if (b >= 'a' && b <= 'z') {
+                append(b);
+            } else if (b >= 'A' && b <= 'Z') {
+                append(b + ('a' - 'A'));
+            } else if (length > 0) {
+                sink.token(token, 0, length);
+                length = 0;
+            }
+        }
+        buffer.position(limit);
+    }
+
+    /**
+     * Flushes the word pending at the end of the input.
+     */
+    public void finish() {
+        if (length > 0) {
+            sink.token(token, 0, length);
+            length = 0;
+        }
+    }
+
+    private void append(int b) {
+        if (length == token.length) {
+            token = Arrays.copyOf(token, length * 2);
+        }
+        token[length++] = (byte) b;
+    }
+}
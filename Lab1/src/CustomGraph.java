@@ -1,7 +1,12 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.graphstream.graph.Edge;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.implementations.SingleGraph;
@@ -11,12 +16,43 @@ import org.graphstream.graph.implementations.SingleGraph;
  * CustomGraph class represents a directed graph that can be used to perform various operations
  * such as finding bridge words,
  * generating new text, and calculating the shortest path between two words.
- * The graph is represented as an adjacency list where each vertex
- * is mapped to a list of its neighbors along with the edge weights.
+ * Words are interned to int ids by a {@link VertexDictionary}; additions go to a
+ * {@link GraphBuilder} and queries run on the frozen CSR form ({@link CompactGraph}),
+ * which is rebuilt lazily after the graph changes.
  */
 public class CustomGraph {
 
-    private Map<String, Map<String, Integer>> adjacencyMap;
+    static final int DEFAULT_PATH_CACHE_SIZE = 16;
+    static final int DEFAULT_PREDICTIONS = 5;
+    static final int DEFAULT_ALTERNATIVE_PATHS = 5;
+    static final int DEFAULT_TIED_PATHS = 100;
+    // 列举备选路径的时间上限，之后停止产生新路径
+    static final long DEFAULT_ENUMERATION_MILLIS = 2000;
+    // 按相对误差抽样时最多搜索的词数
+    static final int MAX_STAT_SAMPLES = 4096;
+    static final long DEFAULT_NGRAM_BUDGET = 512L << 20;
+    // 显示整个图的上限，更大的图只显示局部或权重最大的边
+    static final int MAX_RENDERED_EDGES = 500;
+    static final int MAX_RENDERED_VERTICES = 150;
+
+    private final GraphBuilder builder;
+    private final LiveGraph live; // 非null时为并发模式
+    private final NGramModel nGrams; // 非null时同时统计更长上下文的 n 元组
+    private CompactGraph compact; // 为null时表示有尚未压缩的修改
+    // 以下派生结构都记录所依据的图，并发模式下可能被多个读者重复构建，但不会用错版本
+    private volatile BridgeIndex bridgeIndex;
+    private volatile long bridgeIndexBudget;
+    // 空闲的搜索引擎，查询时借出、结束后归还；数量不超过同时进行的查询数
+    private final Queue<ShortestPathEngine> engines = new ConcurrentLinkedQueue<>();
+    private final ShortestPathCache pathCache = new ShortestPathCache(DEFAULT_PATH_CACHE_SIZE);
+    private volatile LandmarkIndex landmarks;
+    private volatile int landmarkCount;
+    private volatile PathMode landmarkMode;
+    private volatile RandomWalkEngine walkEngine;
+    private volatile NextWordIndex nextWordIndex;
+    private volatile SccIndex sccIndex;
+    private volatile GraphAnalytics analytics;
+    private final GraphMetrics metrics = new GraphMetrics();
 
     // Enhanced styling
     String stylesheet =
@@ -38,90 +74,424 @@ public class CustomGraph {
                     + "   text-background-color: white;"
                     + "   text-padding: 3px;"
                     + "   text-offset: 5px, 0px;"
+                    + "}"
+                    + "edge.highlighted {"
+                    + "   size: 4px;"
+                    + "   fill-color: #e31a1c;"
                     + "}";
 
     public CustomGraph() {
-        this.adjacencyMap = new HashMap<>();
+        this(new GraphBuilder());
+    }
+
+    private CustomGraph(GraphBuilder builder) {
+        this(builder, null);
+    }
+
+    private CustomGraph(GraphBuilder builder, NGramModel nGrams) {
+        this.builder = builder;
+        this.live = null;
+        this.nGrams = nGrams;
+    }
+
+    private CustomGraph(LiveGraph live) {
+        this.builder = null;
+        this.live = live;
+        this.nGrams = null;
+    }
+
+    /**
+     * Creates a graph in concurrent mode: any number of threads may add vertices, edges,
+     * documents and files while others run queries (see {@link LiveGraph}).
+     * Every query runs on the last published snapshot of the graph, so it sees either all or
+     * none of a document. Queries never publish: additions are published in the background
+     * after {@link LiveGraph#DEFAULT_PUBLISH_MILLIS}, longer on a large graph, or at once
+     * through {@code liveGraph().publish()}; {@code liveGraph().close()} stops the background
+     * publishing.
+     */
+    public static CustomGraph concurrent() {
+        return new CustomGraph(new LiveGraph());
+    }
+
+    /**
+     * Creates a graph in order-N mode: besides the bigram edges, documents and files added to
+     * it are counted as n-grams of {@code order} words (see {@link NGramModel}), and bridge
+     * words and random walks are drawn given the last {@code order - 1} words instead of the
+     * last one. Words added with {@link #addVertex} or {@link #addEdge} only become bigrams.
+     *
+     * @param order The number of words of an n-gram.
+     * @param memoryBudgetBytes The most memory the n-gram tables may use.
+     * @throws IllegalArgumentException If the order is out of range.
+     */
+    public static CustomGraph withOrder(int order, long memoryBudgetBytes) {
+        GraphBuilder builder = new GraphBuilder();
+        return new CustomGraph(builder,
+                new NGramModel(builder.dictionary(), order, memoryBudgetBytes));
+    }
+
+    /**
+     * Returns the n-gram model of a graph in order-N mode, or null.
+     */
+    public NGramModel nGramModel() {
+        return nGrams;
+    }
+
+    /**
+     * Returns the live graph behind a concurrent graph, or null in the default mode.
+     */
+    public LiveGraph liveGraph() {
+        return live;
+    }
+
+    /**
+     * Returns the metrics of this graph; they are off unless enabled there or with
+     * {@code -Dwordgraph.metrics=true}.
+     */
+    public GraphMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns a readable snapshot of the operation latencies and ingestion counters.
+     */
+    public String metricsSnapshot() {
+        return metrics.dump(graph());
+    }
+
+    /**
+     * Loads a graph saved by {@link #saveSnapshot(String)}; it can be queried right away and
+     * extended like any other graph.
+     *
+     * @param filePath The snapshot file.
+     * @return The graph.
+     * @throws IOException If the file cannot be read or is not a valid snapshot.
+     */
+    public static CustomGraph loadSnapshot(String filePath) throws IOException {
+        CompactGraph graph = GraphSnapshot.load(Paths.get(filePath));
+        CustomGraph customGraph = new CustomGraph(new GraphBuilder(graph));
+        customGraph.compact = graph;
+        return customGraph;
+    }
+
+    /**
+     * Saves the current graph as a binary snapshot (see {@link GraphSnapshot}).
+     *
+     * @param filePath The snapshot file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveSnapshot(String filePath) throws IOException {
+        GraphSnapshot.save(graph(), Paths.get(filePath));
     }
 
     public void addVertex(String vertex) {
-        adjacencyMap.putIfAbsent(vertex.toLowerCase(), new HashMap<>());
+        if (live != null) {
+            live.addVertex(vertex.toLowerCase());
+            return;
+        }
+        int before = builder.dictionary().size();
+        builder.addVertex(vertex.toLowerCase());
+        if (builder.dictionary().size() != before) {
+            changed();
+        }
     }
 
+    /**
+     * Adds one occurrence of the edge {@code from -> to}; endpoints that are not vertices yet
+     * are added as well.
+     */
     public void addEdge(String from, String to) {
-        Map<String, Integer> neighbors = adjacencyMap.get(from.toLowerCase());
-        neighbors.put(to.toLowerCase(), neighbors.getOrDefault(to, 0) + 1);
+        if (live != null) {
+            live.addEdge(from.toLowerCase(), to.toLowerCase());
+            return;
+        }
+        builder.addEdge(builder.addVertex(from.toLowerCase()), builder.addVertex(to.toLowerCase()));
+        changed();
+    }
+
+    /**
+     * Marks the compact graph as stale and drops everything computed from it.
+     */
+    private void changed() {
+        compact = null;
+        pathCache.clear();
+    }
+
+    /**
+     * Returns the compact form of the graph, compacting pending additions first; in
+     * concurrent mode, the last published snapshot.
+     */
+    CompactGraph graph() {
+        if (live != null) {
+            return live.published();
+        }
+        if (compact == null) {
+            compact = builder.build();
+        }
+        return compact;
     }
 
     /**
      * Prints the graph in the form of adjacency list.
      */
     public void printGraph() {
-        for (String vertex : adjacencyMap.keySet()) {
-            System.out.print(vertex + " -> ");
-            for (Map.Entry<String, Integer> entry : adjacencyMap.get(vertex).entrySet()) {
-                System.out.print(entry.getKey() + "(" + entry.getValue() + ") ");
+        CompactGraph g = graph();
+        for (int vertex = 0; vertex < g.vertexCount; vertex++) {
+            System.out.print(g.word(vertex) + " -> ");
+            for (int e = g.offsets[vertex]; e < g.offsets[vertex + 1]; e++) {
+                System.out.print(g.word(g.targets[e]) + "(" + g.weights[e] + ") ");
             }
             System.out.println();
         }
     }
 
-    String queryBridgeWords(String word1, String word2) {
-        if (!adjacencyMap.containsKey(word1.toLowerCase())
-                || !adjacencyMap.containsKey(word2.toLowerCase())) {
-            return "No bridge words from "
-                    + word1.toLowerCase() + " to " + word2.toLowerCase() + "!";
+    /**
+     * Materializes the bridge sets of the most connected words, using at most
+     * {@code memoryBudgetBytes} of heap; other pairs keep being answered on the fly.
+     * The index follows the graph and is rebuilt with the same budget after it changes.
+     *
+     * @param memoryBudgetBytes The memory budget, 0 to disable the index.
+     */
+    public void setBridgeIndexBudget(long memoryBudgetBytes) {
+        bridgeIndexBudget = memoryBudgetBytes;
+        bridgeIndex = null;
+    }
+
+    /**
+     * Returns the bridge index of the current graph, building it if needed.
+     */
+    BridgeIndex bridgeIndex() {
+        CompactGraph g = graph();
+        if (bridgeIndex == null || bridgeIndex.graph() != g) {
+            bridgeIndex = BridgeIndex.build(g, bridgeIndexBudget);
         }
+        return bridgeIndex;
+    }
 
-        // word1->string, string->word2 其中string为bridge word
-        StringBuilder bridgeWords = new StringBuilder();
-        for (String bridgeWord : adjacencyMap.get(word1.toLowerCase()).keySet()) {
-            if (adjacencyMap.get(bridgeWord).containsKey(word2.toLowerCase())) {
-                bridgeWords.append(bridgeWord).append(" ");
+    /**
+     * Returns the bridge words from word1 to word2, i.e. the words b with edges word1 -> b and
+     * b -> word2.
+     *
+     * @param word1 The first word.
+     * @param word2 The second word.
+     * @return The bridge words, empty if there are none or either word is not in the graph.
+     */
+    public List<String> queryBridgeWordList(String word1, String word2) {
+        long start = metrics.start();
+        try {
+            BridgeIndex index = bridgeIndex();
+            CompactGraph g = index.graph();
+            int from = g.id(word1.toLowerCase());
+            int to = g.id(word2.toLowerCase());
+            if (from < 0 || to < 0) {
+                return Collections.emptyList();
+            }
+            return wordsOf(g, index.bridges(from, to));
+        } finally {
+            metrics.stop(GraphMetrics.Operation.BRIDGE_WORDS, start, word1, word2);
+        }
+    }
+
+    /**
+     * Answers many bridge word queries at once.
+     *
+     * @param firstWords The first word of every query.
+     * @param secondWords The second word of every query.
+     * @return The bridge words of every query, in input order.
+     */
+    public List<List<String>> queryBridgeWordsBatch(String[] firstWords, String[] secondWords) {
+        long start = metrics.start();
+        BridgeIndex index = bridgeIndex();
+        CompactGraph g = index.graph();
+        int[] from = new int[firstWords.length];
+        int[] to = new int[secondWords.length];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = g.id(firstWords[i].toLowerCase());
+        }
+        for (int i = 0; i < to.length; i++) {
+            to[i] = g.id(secondWords[i].toLowerCase());
+        }
+        List<List<String>> result = new ArrayList<>(from.length);
+        for (int[] bridges : index.bridges(from, to)) {
+            result.add(wordsOf(g, bridges));
+        }
+        metrics.stop(GraphMetrics.Operation.BRIDGE_WORDS_BATCH, start, null, null);
+        return result;
+    }
+
+    private static List<String> wordsOf(CompactGraph g, int[] ids) {
+        List<String> words = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            words.add(g.word(id));
+        }
+        return words;
+    }
+
+    /**
+     * Returns the next-word index of the current graph, sorting the successors of every word
+     * by frequency the first time it is needed after the graph changes.
+     */
+    public NextWordIndex nextWordIndex() {
+        CompactGraph g = graph();
+        NextWordIndex index = nextWordIndex;
+        if (index == null || index.graph() != g) {
+            index = new NextWordIndex(g);
+            nextWordIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Predicts the words most likely to follow {@code word}.
+     *
+     * @param word The word.
+     * @param k The maximum number of predictions.
+     * @return At most {@code k} successors, most frequent first; empty for an unknown word.
+     */
+    public List<String> predictNextWords(String word, int k) {
+        long start = metrics.start();
+        try {
+            NextWordIndex index = nextWordIndex();
+            CompactGraph g = index.graph();
+            int vertex = g.id(word.toLowerCase());
+            if (vertex < 0) {
+                return Collections.emptyList();
             }
+            return wordsOf(g, index.predictNext(vertex, k));
+        } finally {
+            metrics.stop(GraphMetrics.Operation.PREDICT_NEXT, start, word, null);
         }
+    }
 
+    /**
+     * Predicts the likely successors of many words at once, e.g. for autocompletion.
+     *
+     * @param words The words.
+     * @param k The maximum number of predictions per word.
+     * @return The predictions of every word, in input order.
+     */
+    public List<List<String>> predictNextWordsBatch(String[] words, int k) {
+        long start = metrics.start();
+        NextWordIndex index = nextWordIndex();
+        CompactGraph g = index.graph();
+        int[] vertices = new int[words.length];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = g.id(words[i].toLowerCase());
+        }
+        int[] predictions = index.predictNext(vertices, k);
+        List<List<String>> result = new ArrayList<>(words.length);
+        for (int i = 0; i < vertices.length; i++) {
+            List<String> next = new ArrayList<>();
+            for (int j = i * k; j < (i + 1) * k && predictions[j] >= 0; j++) {
+                next.add(g.word(predictions[j]));
+            }
+            result.add(next);
+        }
+        metrics.stop(GraphMetrics.Operation.PREDICT_NEXT_BATCH, start, null, null);
+        return result;
+    }
+
+    String queryNextWords(String word, int k) {
+        List<String> next = predictNextWords(word, k);
+        if (next.isEmpty()) {
+            return "No words follow " + word.toLowerCase() + "!";
+        }
+        return String.join(" ", next);
+    }
+
+    String queryBridgeWords(String word1, String word2) {
+        // word1->string, string->word2 其中string为bridge word
+        List<String> bridgeWords = queryBridgeWordList(word1, word2);
         if (bridgeWords.isEmpty()) {
             return "No bridge words from "
                     + word1.toLowerCase() + " to " + word2.toLowerCase() + "!";
         } else {
-            return bridgeWords.toString().trim();
+            return String.join(" ", bridgeWords);
         }
     }
 
     /**
      * Generates new text by inserting bridge words between adjacent words in the input text.
+     * Letters are lower-cased, any white space (line breaks included) separates words and
+     * every other character is dropped, as in the streaming
+     * {@link #generateNewText(Reader, Writer)}.
      *
      *@param inputText The input text to generate new text from.
      *@return The new text with bridge words inserted between adjacent words.
      **/
     public String generateNewText(String inputText) {
-        String[] words = inputText.replaceAll("[^a-zA-Z ]", "").split("\\s+");
+        long start = metrics.start();
+        // 换行等空白也分隔单词，与流式版本一致
+        String[] words = inputText.replaceAll("[^a-zA-Z\\p{javaWhitespace}]", "").strip()
+                .split("\\p{javaWhitespace}+");
 
         StringBuilder newText = new StringBuilder();
+        BridgeIndex index = bridgeIndex();
+        CompactGraph g = index.graph();
 
+        Random random = new Random();
+        // n 元模式下记录已输出的词，按前面的上下文挑选桥接词
+        int[] history = nGrams == null ? null : new int[2 * words.length];
+        int historyLength = 0;
+        int next = words.length > 0 ? g.id(words[0].toLowerCase()) : -1;
         for (int i = 0; i < words.length - 1; i++) {
             String word1 = words[i].toLowerCase();
-            String word2 = words[i + 1].toLowerCase();
+            int from = next;
+            next = g.id(words[i + 1].toLowerCase());
             newText.append(word1).append(" ");
+            if (history != null) {
+                history[historyLength++] = from;
+            }
 
-            String bridgeWords = queryBridgeWords(word1, word2);
-            if (!bridgeWords.startsWith("No bridge words")) {
-                String[] bridgeWordsArray = bridgeWords.split(" ");
-                // import random
-                Random random = new Random();
-                int randomIndex = random.nextInt(bridgeWordsArray.length);
-                newText.append(bridgeWordsArray[randomIndex]).append(" ");
+            int[] bridgeWords = from < 0 || next < 0 ? new int[0] : index.bridges(from, next);
+            if (bridgeWords.length > 0) {
+                int randomIndex = history == null ? random.nextInt(bridgeWords.length)
+                        : nGrams.chooseBridge(history, historyLength, bridgeWords,
+                                random.nextDouble());
+                newText.append(g.word(bridgeWords[randomIndex])).append(" ");
+                if (history != null) {
+                    history[historyLength++] = bridgeWords[randomIndex];
+                }
             }
         }
 
         // 添加最后一个单词
-        newText.append(words[words.length - 1]);
+        newText.append(words[words.length - 1].toLowerCase());
 
+        metrics.stop(GraphMetrics.Operation.GENERATE_TEXT, start, inputText, null);
         return newText.toString();
     }
 
 
+    /**
+     * Generates new text like {@link #generateNewText(String)} for a whole stream, with
+     * memory bounded by a few segments of words whatever the size of the input.
+     *
+     * @param in The input text.
+     * @param out Where the generated text is written.
+     * @throws IOException If reading or writing fails.
+     */
+    public void generateNewText(Reader in, Writer out) throws IOException {
+        generateNewText(in, out, new Random().nextLong(), 1);
+    }
+
+    /**
+     * Generates new text for a whole stream, processing segments of the input on
+     * {@code parallelism} threads while keeping the output in input order.
+     * The same seed always produces the same text, whatever the parallelism.
+     *
+     * @param in The input text.
+     * @param out Where the generated text is written.
+     * @param seed The seed for choosing among several bridge words.
+     * @param parallelism The number of worker threads.
+     * @throws IOException If reading or writing fails.
+     */
+    public void generateNewText(Reader in, Writer out, long seed, int parallelism)
+            throws IOException {
+        long start = metrics.start();
+        new TextGenerator(bridgeIndex(), nGrams).generate(in, out, seed, parallelism);
+        metrics.stop(GraphMetrics.Operation.GENERATE_TEXT, start, "(stream)", null);
+    }
+
     /**
      * Calculates the shortest path between two words in the graph using Dijkstra's algorithm.
      *
@@ -130,52 +500,481 @@ public class CustomGraph {
      * @return The shortest path between the two words, or a message if no path exists.
      **/
     public String calcShortestPath(String word1, String word2) {
+        return calcShortestPath(word1, word2, PathMode.HOPS, false);
+    }
+
+    /**
+     * Calculates the shortest path between two words, measuring edges as {@code mode} says.
+     *
+     * @param word1 The starting word.
+     * @param word2 The ending word.
+     * @param mode How the length of a path is measured.
+     * @param bidirectional Whether to search from both ends at once.
+     * @return The shortest path between the two words, or a message if no path exists.
+     */
+    public String calcShortestPath(String word1, String word2, PathMode mode,
+                                   boolean bidirectional) {
+        long start = metrics.start();
         word1 = word1.toLowerCase();
         word2 = word2.toLowerCase();
-        if (!adjacencyMap.containsKey(word1) || !adjacencyMap.containsKey(word2)) {
-            return "No path from " + word1 + " to " + word2;
+        ShortestPathEngine engine = borrowEngine();
+        try {
+            int[] path = shortestPathIds(engine, word1, word2, mode, bidirectional);
+            if (path == null) {
+                return "No path from " + word1 + " to " + word2;
+            }
+            return joinPath(engine.graph(), path);
+        } finally {
+            engines.offer(engine);
+            metrics.stop(GraphMetrics.Operation.SHORTEST_PATH, start, word1, word2);
         }
+    }
 
-        Map<String, Integer> distances = new HashMap<>();
-        Map<String, String> previousVertices = new HashMap<>();
+    /**
+     * Calculates the shortest paths from one word to every word reachable from it.
+     *
+     * @param word The starting word.
+     * @return One path per line, or a message if the word is not in the graph.
+     */
+    public String calcShortestPath(String word) {
+        long start = metrics.start();
+        word = word.toLowerCase();
+        try {
+            ShortestPathTree tree = shortestPathTree(word, PathMode.HOPS);
+            if (tree == null) {
+                return "No path from " + word;
+            }
+            CompactGraph g = tree.graph();
+            StringBuilder paths = new StringBuilder();
+            for (int target = 0; target < g.vertexCount; target++) {
+                if (target != tree.source() && tree.isReachable(target)) {
+                    paths.append(joinPath(g, tree.pathTo(target))).append("\n");
+                }
+            }
+            return paths.length() == 0 ? "No path from " + word : paths.toString().trim();
+        } finally {
+            metrics.stop(GraphMetrics.Operation.ALL_SHORTEST_PATHS, start, word, null);
+        }
+    }
 
-        // 初始化距离和前驱节点
-        for (String vertex : adjacencyMap.keySet()) {
-            distances.put(vertex, Integer.MAX_VALUE); // 初始化为无穷大
-            previousVertices.put(vertex, null); // 前驱节点初始化为null
+    /**
+     * Returns the shortest path tree of a (lower-case) word, from the cache if possible.
+     *
+     * @param word The source word.
+     * @param mode How the length of a path is measured.
+     * @return The tree, or null if the word is not in the graph.
+     */
+    public ShortestPathTree shortestPathTree(String word, PathMode mode) {
+        CompactGraph g = graph();
+        int source = g.id(word);
+        if (source < 0) {
+            return null;
         }
-        distances.put(word1, 0); // 起始节点距离为0
+        ShortestPathTree tree = pathCache.get(source, mode);
+        if (tree == null || tree.graph() != g) {
+            ShortestPathEngine engine = borrowEngine(g);
+            try {
+                tree = engine.shortestPathTree(source, mode);
+            } finally {
+                engines.offer(engine);
+            }
+            pathCache.put(tree);
+        }
+        return tree;
+    }
 
-        PriorityQueue<String> queue
-                = new PriorityQueue<>((a, b) -> distances.get(a) - distances.get(b)); // 优先队列，按距离降序
-        queue.offer(word1); // 将起始节点加入队列
+    /**
+     * Returns the cache of shortest path trees, e.g. to read its hit and miss counters.
+     */
+    public ShortestPathCache pathCache() {
+        return pathCache;
+    }
 
-        while (!queue.isEmpty()) {
-            String currentVertex = queue.poll(); // 弹出距离最小的节点
+    /**
+     * Prepares {@code count} landmarks for {@code mode} so that point-to-point queries in
+     * that mode run as A* searches (ALT) instead of plain Dijkstra.
+     * The landmarks are recomputed, in parallel, the first time they are needed after the
+     * graph changes; a count of 0 turns them off.
+     * The paths found are as short as before, but where several paths are equally short the
+     * one returned may differ from the one Dijkstra returns (see
+     * {@link ShortestPathEngine#shortestPath(int, int, LandmarkIndex)}).
+     *
+     * @param count The number of landmarks.
+     * @param mode The path mode the landmarks serve.
+     */
+    public void prepareLandmarks(int count, PathMode mode) {
+        landmarkCount = count;
+        landmarkMode = mode;
+        landmarks = null;
+        if (count > 0) {
+            landmarks();
+        }
+    }
 
-            if (currentVertex.equals(word2)) {
-                // 已找到最短路径,构建路径字符串
-                List<String> path = new ArrayList<>();
-                String vertex = word2;
-                while (vertex != null) {
-                    path.add(0, vertex);
-                    vertex = previousVertices.get(vertex);
-                }
-                return String.join(" -> ", path);
+    /**
+     * Returns the landmark index of the current graph, or null if landmarks are off.
+     */
+    LandmarkIndex landmarks() {
+        if (landmarkCount == 0) {
+            return null;
+        }
+        CompactGraph g = graph();
+        LandmarkIndex index = landmarks;
+        if (index == null || index.graph() != g) {
+            index = LandmarkIndex.build(g, landmarkCount, landmarkMode,
+                    Runtime.getRuntime().availableProcessors());
+            landmarks = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the ids along a shortest path between two lower-case words, or null if there is
+     * none.
+     */
+    int[] shortestPathIds(String word1, String word2, PathMode mode, boolean bidirectional) {
+        ShortestPathEngine engine = borrowEngine();
+        try {
+            return shortestPathIds(engine, word1, word2, mode, bidirectional);
+        } finally {
+            engines.offer(engine);
+        }
+    }
+
+    private int[] shortestPathIds(ShortestPathEngine engine, String word1, String word2,
+                                  PathMode mode, boolean bidirectional) {
+        CompactGraph g = engine.graph();
+        int source = g.id(word1);
+        int target = g.id(word2);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        // 已缓存的最短路径树可直接回答（不计入命中统计）
+        ShortestPathTree tree = pathCache.peek(source, mode);
+        if (tree != null && tree.graph() == g) {
+            return tree.pathTo(target);
+        }
+        // 强连通分量标签证明不可达时无需搜索
+        if (!stronglyConnectedComponents(g).mayReach(source, target)) {
+            return null;
+        }
+        if (bidirectional) {
+            return engine.shortestPathBidirectional(source, target, mode);
+        }
+        LandmarkIndex index = mode == landmarkMode ? landmarks() : null;
+        return index != null && index.graph() == g
+                ? engine.shortestPath(source, target, index)
+                : engine.shortestPath(source, target, mode);
+    }
+
+    /**
+     * Returns the strongly connected components of the current graph, e.g. for the size of
+     * the largest one; after the graph changes they are updated on first use.
+     */
+    public SccIndex stronglyConnectedComponents() {
+        return stronglyConnectedComponents(graph());
+    }
+
+    private SccIndex stronglyConnectedComponents(CompactGraph g) {
+        SccIndex index = sccIndex;
+        if (index == null || index.graph() != g) {
+            // 图只会增长，先尝试沿用已有的分量划分
+            index = index == null || index.graph().vertexCount > g.vertexCount
+                    ? SccIndex.build(g) : index.update(g);
+            sccIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Lends an idle search engine for the current graph, or a new one if all are in use;
+     * give it back to {@code engines} when the query ends.
+     * Unlike one engine per thread, a query on a fresh thread (e.g. a virtual thread per
+     * request) reuses the O(V) buffers of an earlier query instead of allocating its own.
+     */
+    ShortestPathEngine borrowEngine() {
+        return borrowEngine(graph());
+    }
+
+    private ShortestPathEngine borrowEngine(CompactGraph g) {
+        ShortestPathEngine engine;
+        while ((engine = engines.poll()) != null) {
+            if (engine.graph() == g) {
+                return engine;
             }
+            // 图已更新，旧引擎直接丢弃
+        }
+        return new ShortestPathEngine(g);
+    }
 
-            Map<String, Integer> neighbors = adjacencyMap.get(currentVertex);
-            for (String neighbor : neighbors.keySet()) {
-                int altDistance = distances.get(currentVertex) + 1;
-                if (altDistance < distances.get(neighbor)) {
-                    distances.put(neighbor, altDistance);
-                    previousVertices.put(neighbor, currentVertex);
-                    queue.offer(neighbor);
-                }
+    /**
+     * Lists the {@code k} shortest loopless paths between two words, shortest first (see
+     * {@link PathEnumerator#kShortestPaths}). Each path is computed when the stream reaches
+     * it, and the stream ends early once {@link #DEFAULT_ENUMERATION_MILLIS} have passed since
+     * it was first consumed.
+     *
+     * @param word1 The starting word.
+     * @param word2 The ending word.
+     * @param mode How the length of a path is measured.
+     * @param k The maximum number of paths.
+     * @return The words along each path; empty if there is no path.
+     */
+    public Stream<List<String>> kShortestPaths(String word1, String word2, PathMode mode,
+                                               int k) {
+        PathEnumerator enumerator = new PathEnumerator(graph());
+        PathEnumerator.Paths paths = enumerate(enumerator, word1.toLowerCase(),
+                word2.toLowerCase(), mode, k, false);
+        return paths == null ? Stream.empty()
+                : paths.stream().map(path -> wordsOf(enumerator.graph(), path));
+    }
+
+    /**
+     * Lists the paths between two words that are all as short as the shortest one (see
+     * {@link PathEnumerator#allShortestPaths}), lazily and with the same time limit as
+     * {@link #kShortestPaths}.
+     *
+     * @param word1 The starting word.
+     * @param word2 The ending word.
+     * @param mode How the length of a path is measured.
+     * @param limit The maximum number of paths.
+     * @return The words along each path; empty if there is no path.
+     */
+    public Stream<List<String>> allShortestPaths(String word1, String word2, PathMode mode,
+                                                 int limit) {
+        PathEnumerator enumerator = new PathEnumerator(graph());
+        PathEnumerator.Paths paths = enumerate(enumerator, word1.toLowerCase(),
+                word2.toLowerCase(), mode, limit, true);
+        return paths == null ? Stream.empty()
+                : paths.stream().map(path -> wordsOf(enumerator.graph(), path));
+    }
+
+    /**
+     * Lists alternative paths between two words, one numbered line each with its length.
+     *
+     * @param tied Whether to list the equally short paths instead of the k shortest.
+     */
+    String queryAlternativePaths(String word1, String word2, PathMode mode, int limit,
+                                 boolean tied) {
+        return alternativePaths(word1, word2, mode, limit, tied).toString();
+    }
+
+    /**
+     * Alternative paths between two words, kept so that one of them can be displayed after
+     * they were listed without searching again.
+     */
+    static final class AlternativePaths {
+        final CompactGraph graph;
+        final String word1;
+        final String word2;
+        final PathMode mode;
+        final List<int[]> paths = new ArrayList<>();
+        private final List<Double> lengths = new ArrayList<>();
+        private boolean timedOut;
+
+        AlternativePaths(CompactGraph graph, String word1, String word2, PathMode mode) {
+            this.graph = graph;
+            this.word1 = word1;
+            this.word2 = word2;
+            this.mode = mode;
+        }
+
+        /**
+         * Returns the paths, one numbered line each with its length.
+         */
+        @Override
+        public String toString() {
+            if (paths.isEmpty()) {
+                return "No path from " + word1 + " to " + word2;
+            }
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < paths.size(); i++) {
+                text.append(i + 1).append(". ").append(joinPath(graph, paths.get(i)))
+                        .append(" (length ").append(formatLength(lengths.get(i), mode))
+                        .append(")\n");
+            }
+            if (timedOut) {
+                text.append("Time limit reached after ").append(paths.size()).append(" paths");
+            }
+            return text.toString().trim();
+        }
+    }
+
+    /**
+     * Finds alternative paths between two words (see {@link #queryAlternativePaths}).
+     */
+    AlternativePaths alternativePaths(String word1, String word2, PathMode mode, int limit,
+                                      boolean tied) {
+        long start = metrics.start();
+        word1 = word1.toLowerCase();
+        word2 = word2.toLowerCase();
+        try {
+            PathEnumerator enumerator = new PathEnumerator(graph());
+            AlternativePaths result =
+                    new AlternativePaths(enumerator.graph(), word1, word2, mode);
+            PathEnumerator.Paths paths = enumerate(enumerator, word1, word2, mode, limit, tied);
+            while (paths != null && paths.hasNext()) {
+                result.paths.add(paths.next());
+                result.lengths.add(paths.lastLength());
+            }
+            result.timedOut = paths != null && paths.timedOut();
+            return result;
+        } finally {
+            metrics.stop(GraphMetrics.Operation.ALTERNATIVE_PATHS, start, word1, word2);
+        }
+    }
+
+    private PathEnumerator.Paths enumerate(PathEnumerator enumerator, String word1,
+                                           String word2, PathMode mode, int limit,
+                                           boolean tied) {
+        CompactGraph g = enumerator.graph();
+        int source = g.id(word1);
+        int target = g.id(word2);
+        if (source < 0 || target < 0
+                || !stronglyConnectedComponents(g).mayReach(source, target)) {
+            return null;
+        }
+        long timeLimit = TimeUnit.MILLISECONDS.toNanos(DEFAULT_ENUMERATION_MILLIS);
+        return tied ? enumerator.allShortestPaths(source, target, mode, limit, timeLimit)
+                : enumerator.kShortestPaths(source, target, mode, limit, timeLimit);
+    }
+
+    private static String formatLength(double length, PathMode mode) {
+        // 只有按频率计算的长度不是整数
+        return mode == PathMode.FREQUENCY
+                ? String.format(Locale.ROOT, "%.3f", length) : Long.toString((long) length);
+    }
+
+    private static String joinPath(CompactGraph g, int[] path) {
+        StringBuilder text = new StringBuilder();
+        for (int vertex : path) {
+            if (text.length() > 0) {
+                text.append(" -> ");
             }
+            text.append(g.word(vertex));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the random walk engine of the current graph, building its alias tables the
+     * first time it is needed after the graph changes.
+     */
+    public RandomWalkEngine randomWalkEngine() {
+        CompactGraph g = graph();
+        RandomWalkEngine engine = walkEngine;
+        if (engine == null || engine.graph() != g) {
+            engine = new RandomWalkEngine(g);
+            walkEngine = engine;
+        }
+        return engine;
+    }
+
+    /**
+     * Runs one walk from {@code start}: in order-N mode drawn from the n-gram model with
+     * {@code engine} as its backoff, like the interactive walk, otherwise on the bigram edges.
+     */
+    int[] walk(RandomWalkEngine engine, int start, int maxSteps, SplittableRandom random) {
+        if (nGrams == null) {
+            return engine.walk(start, maxSteps, random);
+        }
+        NGramModel.Walker walker = nGrams.walker(engine);
+        try {
+            return walker.walk(start, maxSteps, random);
+        } finally {
+            nGrams.release(walker);
         }
+    }
 
-        return "No path from " + word1 + " to " + word2;
+    /**
+     * Returns the centrality analytics (PageRank, degree distributions, hubs) of the current
+     * graph; the ranks are recomputed the first time they are needed after the graph changes.
+     */
+    public GraphAnalytics analytics() {
+        CompactGraph g = graph();
+        GraphAnalytics result = analytics;
+        if (result == null || result.graph() != g) {
+            result = new GraphAnalytics(g);
+            analytics = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the {@code k} words of highest PageRank, best first.
+     */
+    public List<String> topWords(int k) {
+        GraphAnalytics result = analytics();
+        List<String> words = new ArrayList<>();
+        for (int v : GraphAnalytics.topK(result.pageRank().ranks(), k)) {
+            words.add(result.graph().word(v));
+        }
+        return words;
+    }
+
+    /**
+     * Estimates the average distance, effective diameter and reachable set size from
+     * breadth-first searches of {@code sampleSize} random words, using every core (see
+     * {@link ApproximateGraphStats}).
+     *
+     * @param sampleSize The number of words to search from; the graph's size gives exact
+     *                   values.
+     * @param seed The seed of the sample.
+     * @return The estimates with their confidence intervals.
+     */
+    public ApproximateGraphStats approximateStats(int sampleSize, long seed) {
+        return ApproximateGraphStats.sample(graph(), sampleSize, seed,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Estimates the same statistics as {@link #approximateStats(int, long)}, sampling as many
+     * words as it takes to know them to within {@code relativeError}, at most
+     * {@link #MAX_STAT_SAMPLES}.
+     *
+     * @param relativeError The wanted half width of the 95% intervals, e.g. 0.05 for 5%.
+     * @param seed The seed of the sample.
+     * @return The estimates with their confidence intervals.
+     */
+    public ApproximateGraphStats approximateStats(double relativeError, long seed) {
+        return ApproximateGraphStats.sampleUntil(graph(), relativeError, MAX_STAT_SAMPLES, seed,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs {@link #approximateStats} for a sample size ("200") or a relative error ("0.05")
+     * and returns the report.
+     *
+     * @throws NumberFormatException If the argument is neither.
+     */
+    String approximateStatsReport(String sampleSizeOrError, long seed) {
+        ApproximateGraphStats stats = sampleSizeOrError.contains(".")
+                ? approximateStats(Double.parseDouble(sampleSizeOrError), seed)
+                : approximateStats(Integer.parseInt(sampleSizeOrError), seed);
+        return stats.report();
+    }
+
+    /**
+     * Writes {@code count} random walks to a file, one per line, using every core; in
+     * order-N mode they are drawn from the n-gram model, like the interactive walk.
+     *
+     * @param filePath The output file.
+     * @param count The number of walks.
+     * @param maxSteps The maximum number of edges per walk, or 0 for no limit.
+     * @param seed The seed; the same seed gives the same file.
+     * @return The total number of edges taken.
+     * @throws IOException If writing fails.
+     */
+    public long writeRandomWalks(String filePath, long count, int maxSteps, long seed)
+            throws IOException {
+        long start = metrics.start();
+        RandomWalkEngine engine = randomWalkEngine();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filePath), StandardCharsets.US_ASCII), 1 << 16)) {
+            return engine.writeWalks(count, maxSteps, seed,
+                    Runtime.getRuntime().availableProcessors(), nGrams, out);
+        } finally {
+            metrics.stop(GraphMetrics.Operation.RANDOM_WALKS, start, filePath, null);
+        }
     }
 
     /**
@@ -186,37 +985,40 @@ public class CustomGraph {
         final Scanner scanner = new Scanner(System.in);
         System.out.println("Enter 'stop' to stop the random walk.");
 
-        Random random = new Random();
+        RandomWalkEngine engine = randomWalkEngine();
+        CompactGraph g = engine.graph();
+        if (g.vertexCount == 0) {
+            System.out.println("The graph is empty.");
+            return;
+        }
+        RandomWalkEngine.Walker walker = nGrams == null ? engine.walker() : null;
+        NGramModel.Walker contextWalker = nGrams == null ? null : nGrams.walker(engine);
+        SplittableRandom random = new SplittableRandom();
         List<String> path = new ArrayList<>();
-        Set<String> visitedEdges = new HashSet<>(); // 记录已访问的边
 
         // 选择一个随机起点
-        String start = adjacencyMap.keySet()
-                .stream().skip(random.nextInt(adjacencyMap.size())).findFirst().orElse(null);
-        if (start == null) {
-            System.out.println("The graph is empty.");
-            return;
+        int current = engine.randomVertex(random);
+        if (contextWalker != null) {
+            contextWalker.start(current);
+        } else {
+            walker.start(current);
         }
-        path.add(start);
+        path.add(g.word(current));
 
-        String current = start;
         while (true) {
-            Map<String, Integer> neighbors = adjacencyMap.get(current);
-            if (neighbors == null || neighbors.isEmpty()) {
-                System.out.println("No neighbors found for: " + current);
+            int next = contextWalker != null ? contextWalker.step(random) : walker.step(random);
+            if (next == RandomWalkEngine.DEAD_END) {
+                System.out.println("No neighbors found for: " + g.word(current));
                 break;
             }
-
-            List<String> neighborList = new ArrayList<>(neighbors.keySet());
-            String next = neighborList.get(random.nextInt(neighborList.size()));
-            String edge = current + "->" + next;
-
-            if (visitedEdges.contains(edge)) {
-                System.out.println("Repeated edge found: " + edge);
+            if (next == RandomWalkEngine.REPEATED_EDGE) {
+                int repeated = contextWalker != null
+                        ? contextWalker.lastDrawn() : g.targets[walker.lastEdge()];
+                System.out.println("Repeated edge found: " + g.word(current) + "->"
+                        + g.word(repeated));
                 break;
             }
-            visitedEdges.add(edge);
-            path.add(next);
+            path.add(g.word(next));
 
             System.out.println("Current path: " + String.join(" -> ", path));
             System.out.print("Enter 'stop' to stop the random walk, or press Enter to continue: ");
@@ -228,6 +1030,11 @@ public class CustomGraph {
             current = next;
         }
 
+        if (contextWalker != null) {
+            nGrams.release(contextWalker);
+        } else {
+            engine.release(walker);
+        }
         System.out.println("Random walk path: " + String.join(" -> ", path));
 
         try (BufferedWriter writer = new BufferedWriter(new FileWriter("random_walk.txt"))) {
@@ -238,175 +1045,459 @@ public class CustomGraph {
     }
 
     /**
-     * 展示有向图.
+     * 展示有向图. 图太大时只显示权重最大的 {@link #MAX_RENDERED_EDGES} 条边.
      */
     public void showDirectedGraph() {
-        System.setProperty("org.graphstream.ui", "swing");
-        Graph streamGraph = new SingleGraph("Text Graph");
-
-        // 用于构建控制台输出的图结构
-        StringBuilder graphRepresentation = new StringBuilder();
-
-        // Add nodes and edges
-        for (String vertex : adjacencyMap.keySet()) {
-            if (streamGraph.getNode(vertex) == null) {
-                streamGraph.addNode(vertex).setAttribute("ui.label", vertex);
-            }
-            for (Map.Entry<String, Integer> entry : adjacencyMap.get(vertex).entrySet()) {
-                String neighbor = entry.getKey();
-                int weight = entry.getValue();
-                if (streamGraph.getNode(neighbor) == null) {
-                    streamGraph.addNode(neighbor).setAttribute("ui.label", neighbor);
-                }
-                String edgeId = vertex + "->" + neighbor;
-                if (streamGraph.getEdge(edgeId) == null) {
-                    Edge edge = streamGraph.addEdge(edgeId, vertex, neighbor, true);
-                    edge.setAttribute("weight", weight);
-                    edge.setAttribute("ui.label", weight);
-
-                    // 在添加边时打印图结构
-                    graphRepresentation.append(vertex)
-                            .append(" -> ")
-                            .append(neighbor)
-                            .append(" (")
-                            .append(weight)
-                            .append(")\n");
-                }
-            }
+        CompactGraph g = graph();
+        GraphView view = g.edgeCount() <= MAX_RENDERED_EDGES
+                && g.vertexCount() <= MAX_RENDERED_VERTICES
+                ? GraphView.whole(g) : GraphView.heaviestEdges(g, MAX_RENDERED_EDGES);
+        if (view.edgeCount() < g.edgeCount()) {
+            System.out.println("Showing the " + view.edgeCount() + " heaviest of "
+                    + g.edgeCount() + " edges.");
         }
-
         // 打印图结构到控制台
+        StringBuilder graphRepresentation = new StringBuilder();
+        for (int i = 0; i < view.edgeCount(); i++) {
+            graphRepresentation.append(g.word(view.source(i)))
+                    .append(" -> ")
+                    .append(g.word(view.target(i)))
+                    .append(" (")
+                    .append(view.weight(i))
+                    .append(")\n");
+        }
         System.out.println(graphRepresentation.toString());
-        // 设置布局参数，使图形更紧凑
-        streamGraph.setAttribute("layout.force", 0.01); // 增加吸引力，使节点更靠近
-        streamGraph.setAttribute("layout.repulsion", 0.01); // 减少排斥力，使节点更靠近
-        streamGraph.setAttribute("ui.quality"); // 提高渲染质量
-        streamGraph.setAttribute("ui.antialias"); // 开启抗锯形
-
-
-        streamGraph.setAttribute("ui.stylesheet", stylesheet);
-        streamGraph.setAttribute("ui.quality");
-        streamGraph.setAttribute("ui.antialias");
-
-        // Display the graph
-        streamGraph.display();
+        display(view);
     }
 
+    /**
+     * Displays the words within {@code hops} edges of {@code word}, at most
+     * {@link #MAX_RENDERED_VERTICES} of them (the most strongly connected ones first) with the
+     * {@link #MAX_RENDERED_EDGES} heaviest edges between them.
+     *
+     * @param word The word in the middle of the view.
+     * @param hops The radius of the neighbourhood.
+     */
+    public void showNeighborhood(String word, int hops) {
+        CompactGraph g = graph();
+        int vertex = g.id(word.toLowerCase());
+        if (vertex < 0) {
+            System.out.println("No " + word.toLowerCase() + " in the graph!");
+            return;
+        }
+        display(GraphView.neighborhood(g, new int[] {vertex}, hops, MAX_RENDERED_VERTICES)
+                .heaviest(MAX_RENDERED_EDGES));
+    }
 
+    /**
+     * Displays the {@code count} heaviest edges of the graph.
+     */
+    public void showHeaviestEdges(int count) {
+        display(GraphView.heaviestEdges(graph(), count));
+    }
 
     // 重载方法，展现有向图并高亮最短路径
     /**
-     * Displays the directed graph with the shortest path highlighted between two words.
+     * Prints the shortest path between two words and displays it, highlighted, with the words
+     * next to it.
      *
      * @param word1 The starting word.
      * @param word2 The ending word.
      **/
     public void showDirectedGraph(String word1, String word2) {
-        System.setProperty("org.graphstream.ui", "swing");
-        Graph streamGraph = new SingleGraph("Text Graph");
+        word1 = word1.toLowerCase();
+        word2 = word2.toLowerCase();
+        ShortestPathEngine engine = borrowEngine();
+        long start = metrics.start();
+        int[] path;
+        try {
+            path = shortestPathIds(engine, word1, word2, PathMode.HOPS, false);
+        } finally {
+            engines.offer(engine);
+        }
+        metrics.stop(GraphMetrics.Operation.SHORTEST_PATH, start, word1, word2);
+        showPath(engine.graph(), word1, word2, path, "Shortest path length: ");
+    }
 
-        // Add nodes and edges
-        for (String vertex : adjacencyMap.keySet()) {
-            if (streamGraph.getNode(vertex) == null) {
-                streamGraph.addNode(vertex).setAttribute("ui.label", vertex);
-            }
-            for (Map.Entry<String, Integer> entry : adjacencyMap.get(vertex).entrySet()) {
-                String neighbor = entry.getKey();
-                int weight = entry.getValue();
-                if (streamGraph.getNode(neighbor) == null) {
-                    streamGraph.addNode(neighbor).setAttribute("ui.label", neighbor);
-                }
-                String edgeId = vertex + "->" + neighbor;
-                if (streamGraph.getEdge(edgeId) == null) {
-                    Edge edge = streamGraph.addEdge(edgeId, vertex, neighbor, true);
-                    edge.setAttribute("weight", weight);
-                    edge.setAttribute("ui.label", weight);
-                }
-            }
+    /**
+     * Prints and displays an alternative route between two words: the path at position
+     * {@code alternative} (0 for the shortest) among the shortest loopless paths, or the
+     * last one found if there are fewer.
+     *
+     * @param word1 The starting word.
+     * @param word2 The ending word.
+     * @param alternative The position of the path, from 0.
+     */
+    public void showDirectedGraph(String word1, String word2, int alternative) {
+        showAlternativePath(alternativePaths(word1, word2, PathMode.HOPS, alternative + 1,
+                false), alternative);
+    }
+
+    /**
+     * Prints and displays the path at position {@code alternative} (from 0) of paths listed
+     * earlier, or the last one if there are fewer.
+     */
+    void showAlternativePath(AlternativePaths listed, int alternative) {
+        int found = listed.paths.size();
+        int[] path = found == 0 ? null : listed.paths.get(Math.min(alternative, found - 1));
+        if (path != null && found <= alternative) {
+            System.out.println("Only " + found + " paths from " + listed.word1 + " to "
+                    + listed.word2 + "; showing the last one.");
         }
+        showPath(listed.graph, listed.word1, listed.word2, path,
+                "Path " + Math.min(alternative + 1, found) + " length: ");
+    }
 
-        streamGraph.setAttribute("ui.stylesheet", stylesheet);
-        streamGraph.setAttribute("ui.quality");
-        streamGraph.setAttribute("ui.antialias");
+    private void showPath(CompactGraph g, String word1, String word2, int[] path,
+                          String lengthLabel) {
+        if (path == null) {
+            System.out.println("No path from " + word1 + " to " + word2);
+            int[] words = {g.id(word1), g.id(word2)};
+            if (words[0] >= 0 && words[1] >= 0) {
+                display(GraphView.neighborhood(g, words, 1, MAX_RENDERED_VERTICES)
+                        .heaviest(MAX_RENDERED_EDGES));
+            }
+            return;
+        }
+        int pathWeight = 0;
+        for (int i = 0; i < path.length - 1; i++) {
+            pathWeight += g.weight(path[i], path[i + 1]);
+        }
+        System.out.println(joinPath(g, path));
+        System.out.println(lengthLabel + (path.length - 1)
+                + " (total edge weight " + pathWeight + ")");
+        display(GraphView.aroundPath(g, path, 1, MAX_RENDERED_VERTICES)
+                .heaviest(MAX_RENDERED_EDGES));
+    }
 
+    private void display(GraphView view) {
+        System.setProperty("org.graphstream.ui", "swing");
+        streamGraph(view).display();
+    }
 
-        // Highlight the shortest path
-        String shortestPath = calcShortestPath(word1, word2);
-        if (!shortestPath.startsWith("No path")) {
-            String[] pathNodes = shortestPath.split(" -> ");
-            for (int i = 0; i < pathNodes.length - 1; i++) {
-                String edgeId = pathNodes[i] + "->" + pathNodes[i + 1];
-                Edge edge = streamGraph.getEdge(edgeId);
+    /**
+     * Builds the GraphStream graph of a view; vertices and edges are identified by their ids
+     * and edge indices, so no id string is built from words.
+     */
+    Graph streamGraph(GraphView view) {
+        CompactGraph g = view.graph();
+        Graph streamGraph = new SingleGraph("Text Graph");
+        streamGraph.setAttribute("ui.stylesheet", stylesheet);
+        // 设置布局参数，使图形更紧凑
+        streamGraph.setAttribute("layout.force", 0.01);
+        streamGraph.setAttribute("layout.repulsion", 0.01);
+        streamGraph.setAttribute("ui.quality"); // 提高渲染质量
+        streamGraph.setAttribute("ui.antialias"); // 开启抗锯齿
+        for (int i = 0; i < view.vertexCount(); i++) {
+            int vertex = view.vertex(i);
+            streamGraph.addNode(Integer.toString(vertex)).setAttribute("ui.label", g.word(vertex));
+        }
+        for (int i = 0; i < view.edgeCount(); i++) {
+            Edge edge = streamGraph.addEdge(Integer.toString(view.edge(i)),
+                    Integer.toString(view.source(i)), Integer.toString(view.target(i)), true);
+            edge.setAttribute("weight", view.weight(i));
+            edge.setAttribute("ui.label", view.weight(i));
+            if (view.isHighlighted(i)) {
                 edge.setAttribute("ui.class", "highlighted");
             }
+        }
+        return streamGraph;
+    }
 
-            int pathLength = 0;
-            for (int i = 0; i < pathNodes.length - 1; i++) {
-                String from = pathNodes[i];
-                String to = pathNodes[i + 1];
-                pathLength += adjacencyMap.get(from).get(to);
-            }
-            System.out.println("Shortest path length: " + pathLength);
+    /**
+     * Writes the whole graph to a file without opening any window (see
+     * {@link GraphExporter}).
+     *
+     * @param filePath The output file.
+     * @param format The file format.
+     * @throws IOException If writing fails.
+     */
+    public void exportGraph(String filePath, GraphExporter.Format format) throws IOException {
+        GraphExporter.write(GraphView.whole(graph()), format, Paths.get(filePath));
+    }
+
+    /**
+     * Streams a text file into the graph, adding an edge for every pair of consecutive words.
+     * The file is memory-mapped and tokenized byte by byte, so memory use does not grow with
+     * the size of the corpus.
+     *
+     * @param filePath The path to the file to read.
+     * @return The number of bytes read.
+     * @throws IOException If the file cannot be read.
+     */
+    public long ingestFile(String filePath) throws IOException {
+        long start = metrics.start();
+        long tokens = tokenCount();
+        long bytes;
+        if (live != null) {
+            bytes = live.ingestFile(Paths.get(filePath), 1);
+        } else {
+            changed();
+            bytes = CorpusTokenizer.tokenizeFile(Paths.get(filePath), documentSink());
         }
+        metrics.stopIngest(start, filePath, bytes, tokenCount() - tokens);
+        return bytes;
+    }
+
+    /**
+     * Streams a text file into the graph like {@link #ingestFile(String)}, tokenizing chunks of
+     * the file in parallel and merging their edge counts.
+     * The resulting graph is identical to the one built sequentially. In order-N mode the
+     * file is read sequentially, since the n-grams cross the chunk boundaries.
+     *
+     * @param filePath The path to the file to read.
+     * @param parallelism The number of worker threads.
+     * @return The number of bytes read.
+     * @throws IOException If the file cannot be read.
+     */
+    public long ingestFile(String filePath, int parallelism) throws IOException {
+        long start = metrics.start();
+        long tokens = tokenCount();
+        long bytes;
+        if (live != null) {
+            bytes = live.ingestFile(Paths.get(filePath), parallelism);
+        } else if (nGrams != null) {
+            // n 元组跨越分块边界，按顺序读取整个文件
+            changed();
+            bytes = CorpusTokenizer.tokenizeFile(Paths.get(filePath), documentSink());
+        } else {
+            changed();
+            bytes = ParallelCorpusLoader.load(Paths.get(filePath), builder, parallelism);
+        }
+        metrics.stopIngest(start, filePath, bytes, tokenCount() - tokens);
+        return bytes;
+    }
+
+    /**
+     * Returns a sink that adds the words of one document as bigrams and, in order-N mode,
+     * as n-grams.
+     */
+    private CorpusTokenizer.TokenSink documentSink() {
+        CorpusTokenizer.TokenSink bigrams = builder.bigramSink();
+        if (nGrams == null) {
+            return bigrams;
+        }
+        CorpusTokenizer.TokenSink context = nGrams.sink();
+        return (buf, off, len) -> {
+            bigrams.token(buf, off, len);
+            context.token(buf, off, len);
+        };
+    }
 
-        // Display the graph
-        streamGraph.display();
+    /**
+     * Returns the number of words ingested so far; in concurrent mode it also counts words
+     * ingested meanwhile by other threads.
+     */
+    private long tokenCount() {
+        return live != null ? live.tokenCount() : builder.tokenCount();
+    }
+
+    /**
+     * Adds the bigrams of one document; its first word is not connected to the last word
+     * added before it.
+     *
+     * @param text The document.
+     * @return The number of words in the document.
+     */
+    public long ingestText(String text) {
+        long start = metrics.start();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (live != null) {
+            long tokens = live.ingest(ByteBuffer.wrap(bytes));
+            metrics.stopIngest(start, null, bytes.length, tokens);
+            return tokens;
+        }
+        changed();
+        long[] words = new long[1];
+        CorpusTokenizer.TokenSink sink = documentSink();
+        CorpusTokenizer tokenizer = new CorpusTokenizer((buf, off, len) -> {
+            sink.token(buf, off, len);
+            words[0]++;
+        });
+        tokenizer.feed(ByteBuffer.wrap(bytes));
+        tokenizer.finish();
+        metrics.stopIngest(start, null, bytes.length, words[0]);
+        return words[0];
     }
 
     //javadoc
     /**
      * Reads the content of a file and returns an array of words.
+     * Kept for callers that want the words themselves; building a graph should go through
+     * {@link #ingestFile(String)} instead.
      *
      * @param filePath The path to the file to read.
      * @return An array of words in the file.
      **/
     public static String[] readFile(String filePath) {
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                content.append(line).append(" ");
-            }
+        List<String> words = new ArrayList<>();
+        try {
+            CorpusTokenizer.tokenizeFile(Paths.get(filePath), (buf, off, len) ->
+                    words.add(new String(buf, off, len, StandardCharsets.US_ASCII)));
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
-
-        // Clean the content by removing non-alphabetic characters and converting to lowercase
-        String cleanedContent = content.toString().replaceAll("[^a-zA-Z ]", " ").toLowerCase();
-
-        // Split the cleaned content into words and return as an array
-        return cleanedContent.split("\\s+");
+        return words.toArray(new String[0]);
     }
 
     /**
      * Main method to interact with the graph and perform various operations.
+     * Usage: {@code [--snapshot FILE | TEXT_FILE] [--save-snapshot FILE]
+     * [--batch QUERY_FILE [--out FILE] [--threads N] [--seed N]]
+     * [--serve PORT [--max-in-flight N]] [--metrics] [--analytics FILE] [--export FILE]
+     * [--stats SAMPLES|ERROR] [--order N]};
+     * without arguments the graph is built from {@code Text/2.txt}. With {@code --batch} the
+     * queries of the file are answered by a {@link BatchQueryRunner} (to standard output
+     * unless {@code --out} is given) and the program exits instead of showing the menu; with
+     * {@code --serve} a {@link QueryServer} answers queries on the loopback interface until
+     * the process is stopped.
+     * {@code --metrics} turns on {@link GraphMetrics}; menu option 7 prints them.
+     * {@code --analytics} writes the PageRank and degrees of every word (see
+     * {@link GraphAnalytics#export}); menu option 8 prints the top words. {@code --export}
+     * writes the graph as DOT, GraphML or an edge list, chosen by the file extension (see
+     * {@link GraphExporter}); menu option 9 displays part of a large graph. {@code --stats}
+     * prints distance statistics estimated from a sample of that many words, or to that
+     * relative error if the value has a decimal point (see {@link ApproximateGraphStats});
+     * menu option 10 asks for the same. {@code --order} builds the graph from the text file
+     * in order-N mode (see {@link #withOrder}), so that bridge words and walks use the last
+     * N - 1 words.
      *
      * @param args The command line arguments.
      **/
     @SuppressWarnings("checkstyle:FallThrough")
     public static void main(String[] args) {
-        CustomGraph customGraph = new CustomGraph();
         Path currentDir = Paths.get(System.getProperty("user.dir"));
         String file = "Text/2.txt";
+        String snapshot = null;
+        String saveSnapshot = null;
+        String batch = null;
+        String batchOut = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        int servePort = -1;
+        int maxInFlight = QueryServer.DEFAULT_MAX_IN_FLIGHT;
+        boolean metrics = Boolean.getBoolean("wordgraph.metrics");
+        String analyticsFile = null;
+        String exportFile = null;
+        String stats = null;
+        int order = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--snapshot") && i + 1 < args.length) {
+                snapshot = args[++i];
+            } else if (args[i].equals("--save-snapshot") && i + 1 < args.length) {
+                saveSnapshot = args[++i];
+            } else if (args[i].equals("--batch") && i + 1 < args.length) {
+                batch = args[++i];
+            } else if (args[i].equals("--out") && i + 1 < args.length) {
+                batchOut = args[++i];
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--serve") && i + 1 < args.length) {
+                servePort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-in-flight") && i + 1 < args.length) {
+                maxInFlight = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--metrics")) {
+                metrics = true;
+            } else if (args[i].equals("--analytics") && i + 1 < args.length) {
+                analyticsFile = args[++i];
+            } else if (args[i].equals("--export") && i + 1 < args.length) {
+                exportFile = args[++i];
+            } else if (args[i].equals("--stats") && i + 1 < args.length) {
+                stats = args[++i];
+            } else if (args[i].equals("--order") && i + 1 < args.length) {
+                order = Integer.parseInt(args[++i]);
+            } else {
+                file = args[i];
+            }
+        }
 
-        String filePath = currentDir.resolve(file).toString();
-        String[] words = readFile(filePath);
-
-        if (words == null) {
-            System.out.println("Error reading the file.");
+        CustomGraph customGraph;
+        long startTime = System.nanoTime();
+        try {
+            if (snapshot != null) {
+                customGraph = loadSnapshot(currentDir.resolve(snapshot).toString());
+                customGraph.metrics().setEnabled(metrics);
+            } else {
+                customGraph = order > 0 ? withOrder(order, DEFAULT_NGRAM_BUDGET)
+                        : new CustomGraph();
+                customGraph.metrics().setEnabled(metrics);
+                String filePath = currentDir.resolve(file).toString();
+                customGraph.ingestFile(filePath, Runtime.getRuntime().availableProcessors());
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading the file: " + e.getMessage());
             return;
         }
-
-        for (int i = 0; i < words.length - 1; i++) {
-            String word1 = words[i];
-            String word2 = words[i + 1];
-            if (!word1.isEmpty() && !word2.isEmpty()) {
-                customGraph.addVertex(word1);
-                customGraph.addVertex(word2);
-                customGraph.addEdge(word1, word2);
+        System.out.printf("Loaded %d words and %d edges in %d ms.%n",
+                customGraph.graph().vertexCount(), customGraph.graph().edgeCount(),
+                (System.nanoTime() - startTime) / 1_000_000);
+        if (customGraph.nGramModel() != null) {
+            System.out.println(customGraph.nGramModel().summary());
+        }
+        if (saveSnapshot != null) {
+            try {
+                customGraph.saveSnapshot(currentDir.resolve(saveSnapshot).toString());
+            } catch (IOException e) {
+                System.out.println("Error writing the snapshot: " + e.getMessage());
+            }
+        }
+        if (analyticsFile != null) {
+            try {
+                customGraph.analytics().export(currentDir.resolve(analyticsFile));
+            } catch (IOException e) {
+                System.out.println("Error writing the analytics: " + e.getMessage());
+            }
+        }
+        if (exportFile != null) {
+            try {
+                customGraph.exportGraph(currentDir.resolve(exportFile).toString(),
+                        GraphExporter.Format.forFile(exportFile));
+            } catch (IOException e) {
+                System.out.println("Error exporting the graph: " + e.getMessage());
+            }
+        }
+        if (stats != null) {
+            try {
+                System.out.print(customGraph.approximateStatsReport(stats, seed));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid sample size or error: " + stats);
             }
         }
+        if (batch != null) {
+            BatchQueryRunner runner = new BatchQueryRunner(customGraph, threads, seed);
+            try (Reader in = new InputStreamReader(
+                    new FileInputStream(currentDir.resolve(batch).toFile()),
+                    StandardCharsets.UTF_8);
+                 Writer out = batchOut == null
+                         ? new BufferedWriter(new OutputStreamWriter(System.out,
+                                 StandardCharsets.UTF_8), 1 << 16)
+                         : new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+                                 currentDir.resolve(batchOut).toFile()),
+                                 StandardCharsets.UTF_8), 1 << 16)) {
+                BatchQueryRunner.Summary summary = runner.run(in, out);
+                System.err.println(summary);
+                if (metrics) {
+                    System.err.print(customGraph.metricsSnapshot());
+                }
+            } catch (IOException e) {
+                System.err.println("Error running the batch: " + e.getMessage());
+            }
+            return;
+        }
+        if (servePort >= 0) {
+            try {
+                QueryServer server = new QueryServer(customGraph, servePort, maxInFlight);
+                server.start();
+                System.out.println("Serving on http://127.0.0.1:" + server.port() + "/");
+                // 服务线程不是守护线程，主线程返回后进程继续运行
+            } catch (IOException e) {
+                System.err.println("Error starting the server: " + e.getMessage());
+            }
+            return;
+        }
 
         Scanner scanner = new Scanner(System.in);
         while (true) {
@@ -416,6 +1507,11 @@ public class CustomGraph {
             System.out.println("3. 最短路径");
             System.out.println("4. 随机游走");
             System.out.println("5. bridge word生成新文本");
+            System.out.println("6. 批量随机游走");
+            System.out.println("7. 性能统计");
+            System.out.println("8. 中心性分析");
+            System.out.println("9. 显示局部子图");
+            System.out.println("10. 近似距离统计");
             System.out.println("0. 退出");
             int choice = scanner.nextInt();
             scanner.nextLine(); // 处理换行符
@@ -432,11 +1528,37 @@ public class CustomGraph {
                     System.out.println(customGraph.queryBridgeWords(word1, word2));
                     break;
                 case 3:
-                    System.out.print("输入两个单词以查询最短路径：");
-                    word1 = scanner.next();
-                    word2 = scanner.next();
-                    System.out.println(customGraph.calcShortestPath(word1, word2));
-                    customGraph.showDirectedGraph(word1, word2);
+                    System.out.print("输入两个单词以查询最短路径（只输入一个单词则列出所有路径，"
+                            + "再加数字K则列出K条备选路径）：");
+                    String[] pathWords = scanner.nextLine().trim().split("\\s+");
+                    if (pathWords.length == 1) {
+                        System.out.println(customGraph.calcShortestPath(pathWords[0]));
+                        break;
+                    }
+                    if (pathWords.length == 2) {
+                        // 路径只计算一次，打印后高亮显示
+                        customGraph.showDirectedGraph(pathWords[0], pathWords[1]);
+                        break;
+                    }
+                    // 第三个数为备选路径数：列出后选择一条高亮显示
+                    try {
+                        int alternatives = Integer.parseInt(pathWords[2]);
+                        // 列出的路径留着，选择后直接显示，不再重新搜索
+                        AlternativePaths listed = customGraph.alternativePaths(pathWords[0],
+                                pathWords[1], PathMode.HOPS, alternatives, false);
+                        if (listed.paths.isEmpty()) {
+                            // 没有路径时显示两个词附近的边
+                            customGraph.showAlternativePath(listed, 0);
+                            break;
+                        }
+                        System.out.println(listed);
+                        System.out.print("选择要显示的路径编号：");
+                        int alternative = scanner.nextInt();
+                        scanner.nextLine();
+                        customGraph.showAlternativePath(listed, Math.max(0, alternative - 1));
+                    } catch (NumberFormatException e) {
+                        System.out.println("无效数字。");
+                    }
                     break;
                 case 4:
                     customGraph.randomWalk();
@@ -447,6 +1569,49 @@ public class CustomGraph {
 
                     System.out.println(customGraph.generateNewText(bridgeWord));
                     break;
+                case 6:
+                    System.out.print("输入游走次数、最大步数（0为不限）和输出文件：");
+                    long walks = scanner.nextLong();
+                    int maxSteps = scanner.nextInt();
+                    String walkFile = scanner.next();
+                    scanner.nextLine();
+                    try {
+                        long steps = customGraph.writeRandomWalks(walkFile, walks, maxSteps,
+                                System.nanoTime());
+                        System.out.println("Wrote " + walks + " walks, " + steps + " steps.");
+                    } catch (IOException e) {
+                        System.out.println("Error writing the file.");
+                    }
+                    break;
+                case 7:
+                    System.out.print(customGraph.metricsSnapshot());
+                    break;
+                case 8:
+                    System.out.print(customGraph.analytics().report(10));
+                    break;
+                case 9:
+                    System.out.print("输入中心词和跳数（只输入数字N则显示权重最大的N条边）：");
+                    String[] viewArgs = scanner.nextLine().trim().split("\\s+");
+                    try {
+                        if (viewArgs.length == 1) {
+                            customGraph.showHeaviestEdges(Integer.parseInt(viewArgs[0]));
+                        } else {
+                            customGraph.showNeighborhood(viewArgs[0],
+                                    Integer.parseInt(viewArgs[1]));
+                        }
+                    } catch (NumberFormatException e) {
+                        System.out.println("无效数字。");
+                    }
+                    break;
+                case 10:
+                    System.out.print("输入抽样词数（整数）或相对误差（如0.05）：");
+                    try {
+                        System.out.print(customGraph.approximateStatsReport(
+                                scanner.nextLine().trim(), System.nanoTime()));
+                    } catch (NumberFormatException e) {
+                        System.out.println("无效数字。");
+                    }
+                    break;
 
                 case 0:
                     System.out.println("退出程序");
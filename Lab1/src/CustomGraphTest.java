@@ -1,12 +1,21 @@
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class CustomGraphTest {
     private CustomGraph graph;
@@ -71,6 +80,74 @@ public class CustomGraphTest {
         assertEquals("No bridge words from ha to a!", graph.queryBridgeWords("ha", "a"));
     }
 
+    @Test
+    public void testQueryBridgeWordListAndBatch() {
+        setUpBridge();
+        assertEquals(Arrays.asList("better"), graph.queryBridgeWordList("a", "future"));
+        assertTrue(graph.queryBridgeWordList("ha", "a").isEmpty());
+        List<List<String>> batch = graph.queryBridgeWordsBatch(
+                new String[] {"a", "do", "build"}, new String[] {"future", "you", "better"});
+        assertEquals(Arrays.asList("better"), batch.get(0));
+        assertTrue(batch.get(1).isEmpty());
+        assertEquals(Arrays.asList("a"), batch.get(2));
+    }
+
+    @Test
+    public void testBridgeIndexMatchesIntersection() {
+        setUpBridge();
+        CompactGraph g = graph.graph();
+        BridgeIndex onTheFly = BridgeIndex.build(g, 0);
+        BridgeIndex materialized = BridgeIndex.build(g, Long.MAX_VALUE);
+        assertTrue(materialized.isIndexed(g.id("you")));
+        for (int from = 0; from < g.vertexCount(); from++) {
+            for (int to = 0; to < g.vertexCount(); to++) {
+                assertArrayEquals(onTheFly.bridges(from, to), materialized.bridges(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingGenerateNewText() throws IOException {
+        setUpBridge();
+        StringWriter out = new StringWriter();
+        graph.generateNewText(new StringReader("Build a future, with\ngreat power"), out);
+        assertEquals("build a better future with great power", out.toString());
+    }
+
+    @Test
+    public void testGenerateNewTextSplitsLines() throws IOException {
+        setUpBridge();
+        // 两个版本都把换行、制表符当作单词间隔
+        String input = "  Build a\r\nfuture,\twith\ngreat\n\nPower\n";
+        StringWriter out = new StringWriter();
+        graph.generateNewText(new StringReader(input), out);
+        assertEquals("build a better future with great power", out.toString());
+        assertEquals(out.toString(), graph.generateNewText(input));
+    }
+
+    @Test
+    public void testParallelGenerateNewTextIsReproducible() throws IOException {
+        graph = new CustomGraph();
+        graph.addEdge("x", "b1");
+        graph.addEdge("x", "b2");
+        graph.addEdge("x", "b3");
+        graph.addEdge("b1", "y");
+        graph.addEdge("b2", "y");
+        graph.addEdge("b3", "y");
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 3 * TextGenerator.SEGMENT_WORDS; i++) {
+            input.append(i % 2 == 0 ? "x " : "Y ");
+        }
+        StringWriter sequential = new StringWriter();
+        graph.generateNewText(new StringReader(input.toString()), sequential, 42, 1);
+        StringWriter parallel = new StringWriter();
+        graph.generateNewText(new StringReader(input.toString()), parallel, 42, 4);
+        assertEquals(sequential.toString(), parallel.toString());
+        // 每个 x y 对都插入一个桥接词
+        assertEquals(3 * TextGenerator.SEGMENT_WORDS * 3 / 2,
+                sequential.toString().split(" ").length);
+    }
+
     @Test
     public void testPathExists() {
         // Test scenario where path exists
@@ -114,4 +191,53 @@ public class CustomGraphTest {
         String result = graph.calcShortestPath("nodeA", "nodeC");
         assertEquals("nodea -> noded -> nodec", result); // Assuming this is the shorter path based on weights not shown here
     }
+
+    @Test
+    public void testIngestFileMatchesReadFile() throws IOException {
+        setUpBridge();
+        CustomGraph streamed = new CustomGraph();
+        Path currentDir = Paths.get(System.getProperty("user.dir"));
+        streamed.ingestFile(currentDir.resolve("Text/2.txt").toString());
+
+        CompactGraph expected = graph.graph();
+        CompactGraph actual = streamed.graph();
+        assertEquals(expected.vertexCount(), actual.vertexCount());
+        assertArrayEquals(expected.offsets, actual.offsets);
+        assertArrayEquals(expected.targets, actual.targets);
+        assertArrayEquals(expected.weights, actual.weights);
+        for (int v = 0; v < expected.vertexCount(); v++) {
+            assertEquals(expected.word(v), actual.word(v));
+        }
+    }
+
+    @Test
+    public void testParallelIngestMatchesSequential() throws IOException {
+        Path file = Paths.get(System.getProperty("user.dir")).resolve("Text/2.txt");
+        CustomGraph sequential = new CustomGraph();
+        sequential.ingestFile(file.toString());
+        GraphBuilder parallel = new GraphBuilder();
+        // 每块16字节，强制产生大量跨块的二元组
+        ParallelCorpusLoader.load(file, parallel, 4, 16);
+
+        CompactGraph expected = sequential.graph();
+        CompactGraph actual = parallel.build();
+        assertEquals(expected.vertexCount(), actual.vertexCount());
+        assertArrayEquals(expected.offsets, actual.offsets);
+        assertArrayEquals(expected.targets, actual.targets);
+        assertArrayEquals(expected.weights, actual.weights);
+        for (int v = 0; v < expected.vertexCount(); v++) {
+            assertEquals(expected.word(v), actual.word(v));
+        }
+    }
+
+    @Test
+    public void testTokenizerKeepsWordsSplitAcrossBuffers() {
+        List<String> words = new ArrayList<>();
+        CorpusTokenizer tokenizer = new CorpusTokenizer((buf, off, len) ->
+                words.add(new String(buf, off, len, StandardCharsets.US_ASCII)));
+        tokenizer.feed(ByteBuffer.wrap("Hello, Wor".getBytes(StandardCharsets.US_ASCII)));
+        tokenizer.feed(ByteBuffer.wrap("ld! 123abc\ndef".getBytes(StandardCharsets.US_ASCII)));
+        tokenizer.finish();
+        assertEquals(Arrays.asList("hello", "world", "abc", "def"), words);
+    }
 }
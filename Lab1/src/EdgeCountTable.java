@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * EdgeCountTable counts directed edges between vertex ids without boxing.
+ * Each edge is packed into one {@code long} key and stored with its count in parallel
+ * primitive arrays using open addressing with linear probing.
+ */
+public class EdgeCountTable {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Visitor used to walk over the counted edges.
+     */
+    public interface EdgeVisitor {
+        void visit(int from, int to, int count);
+    }
+
+    public EdgeCountTable() {
+        this(16);
+    }
+
+    public EdgeCountTable(int expectedEdges) {
+        int capacity = Integer.highestOneBit(Math.max(expectedEdges, 8) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the number of distinct edges.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds {@code delta} to the count of the edge {@code from -> to}.
+     *
+     * @return The new count of the edge.
+     */
+    public int add(int from, int to, int delta) {
+        long key = pack(from, to);
+        int slot = slotOf(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+            counts[slot] = delta;
+            if (size * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            return delta;
+        }
+        counts[slot] += delta;
+        return counts[slot];
+    }
+
+    /**
+     * Returns the count of the edge {@code from -> to}, or 0 if it was never added.
+     */
+    public int get(int from, int to) {
+        long key = pack(from, to);
+        int slot = slotOf(key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    /**
+     * Visits every edge once, in no particular order.
+     */
+    public void forEach(EdgeVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            long key = keys[slot];
+            if (key != EMPTY) {
+                visitor.visit((int) (key >>> 32), (int) key, counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns an estimate of the heap used by the table in bytes.
+     */
+    public long estimatedBytes() {
+        return 12L * keys.length;
+    }
+
+    /**
+     * Returns the bytes by which {@link #estimatedBytes()} grows if the next {@link #add}
+     * inserts a new edge, i.e. the size of the resize that insert triggers, if any.
+     */
+    public long insertGrowth() {
+        return 2 * (size + 1) > keys.length ? 12L * keys.length : 0;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static long pack(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,392 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * GraphAnalytics computes centrality measures of a {@link CompactGraph}: weighted PageRank,
+ * where a word passes its rank to its successors in proportion to the edge counts, the in- and
+ * out-degree distributions, and top-k hubs.
+ * PageRank is a pull-based power iteration over the reverse CSR adjacency: every iteration
+ * splits the vertices into fixed blocks that threads of a {@link ForkJoinPool} process in
+ * parallel, reading and writing preallocated {@code double[]} buffers only. The blocks'
+ * partial sums are added in block order, so the ranks do not depend on the parallelism.
+ */
+public class GraphAnalytics {
+
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+    static final int BLOCK_SIZE = 1 << 12;
+
+    private final CompactGraph graph;
+    // 入边 CSR 顺序的边计数，迭代时顺序读取，避免经 edges[] 间接访问 weights
+    private final int[] inWeights;
+    // 每个顶点出边计数之和的倒数，悬挂顶点为 0
+    private final double[] inverseOutWeights;
+    private volatile PageRank pageRank;
+
+    public GraphAnalytics(CompactGraph graph) {
+        this.graph = graph;
+        CompactGraph.InEdges in = graph.inEdges();
+        inWeights = new int[in.edges.length];
+        for (int i = 0; i < inWeights.length; i++) {
+            inWeights[i] = graph.weights[in.edges[i]];
+        }
+        inverseOutWeights = new double[graph.vertexCount];
+        for (int v = 0; v < graph.vertexCount; v++) {
+            long outWeight = graph.outWeight(v);
+            inverseOutWeights[v] = outWeight == 0 ? 0 : 1.0 / outWeight;
+        }
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * The result of a PageRank computation.
+     */
+    public static final class PageRank {
+        private final double[] ranks;
+        private final int iterations;
+        private final double delta;
+        private final boolean converged;
+
+        PageRank(double[] ranks, int iterations, double delta, boolean converged) {
+            this.ranks = ranks;
+            this.iterations = iterations;
+            this.delta = delta;
+            this.converged = converged;
+        }
+
+        /**
+         * Returns the rank of every vertex, indexed by id; the ranks sum to 1.
+         * The array is shared, callers must not modify it.
+         */
+        public double[] ranks() {
+            return ranks;
+        }
+
+        public double rank(int vertex) {
+            return ranks[vertex];
+        }
+
+        public int iterations() {
+            return iterations;
+        }
+
+        /**
+         * Returns the L1 distance between the last two iterations.
+         */
+        public double delta() {
+            return delta;
+        }
+
+        public boolean converged() {
+            return converged;
+        }
+    }
+
+    /**
+     * Returns the PageRank with the default parameters, computed on every core the first time
+     * it is needed.
+     */
+    public PageRank pageRank() {
+        PageRank result = pageRank;
+        if (result == null) {
+            result = pageRank(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS,
+                    Runtime.getRuntime().availableProcessors());
+            pageRank = result;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the weighted PageRank of every vertex. The rank of the dangling vertices (words
+     * that are never followed by another one) is spread evenly over all vertices.
+     *
+     * @param damping The probability of following an edge rather than jumping anywhere.
+     * @param tolerance The iteration stops once the L1 change of the ranks is below it.
+     * @param maxIterations The maximum number of iterations.
+     * @param parallelism The number of threads.
+     * @return The ranks.
+     */
+    public PageRank pageRank(double damping, double tolerance, int maxIterations,
+                             int parallelism) {
+        if (damping < 0 || damping > 1) {
+            throw new IllegalArgumentException("damping must be between 0 and 1: " + damping);
+        }
+        int n = graph.vertexCount;
+        if (n == 0) {
+            return new PageRank(new double[0], 0, 0, true);
+        }
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        PowerIteration iteration = new PowerIteration(n, blocks, damping);
+        if (parallelism <= 1 || blocks == 1) {
+            return iteration.run(tolerance, maxIterations, false);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // 在池内启动的并行流使用该池的线程
+            return pool.submit(() -> iteration.run(tolerance, maxIterations, true)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing PageRank", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("PageRank failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The buffers of one PageRank computation, allocated once and swapped after every
+     * iteration.
+     */
+    private final class PowerIteration {
+        private final int n;
+        private final double damping;
+        private double[] ranks;
+        private double[] next;
+        // rank * inverseOutWeight，即沿每单位边计数传出的分值
+        private double[] shares;
+        private double[] nextShares;
+        private final double[] blockDelta;
+        private final double[] blockDangling;
+        private double base;
+
+        PowerIteration(int n, int blocks, double damping) {
+            this.n = n;
+            this.damping = damping;
+            ranks = new double[n];
+            next = new double[n];
+            shares = new double[n];
+            nextShares = new double[n];
+            blockDelta = new double[blocks];
+            blockDangling = new double[blocks];
+        }
+
+        PageRank run(double tolerance, int maxIterations, boolean parallel) {
+            double dangling = 0;
+            for (int v = 0; v < n; v++) {
+                ranks[v] = 1.0 / n;
+                shares[v] = ranks[v] * inverseOutWeights[v];
+                dangling += inverseOutWeights[v] == 0 ? ranks[v] : 0;
+            }
+            double delta = Double.POSITIVE_INFINITY;
+            int iterations = 0;
+            while (iterations < maxIterations && delta >= tolerance) {
+                base = (1 - damping) / n + damping * dangling / n;
+                IntStream range = IntStream.range(0, blockDelta.length);
+                (parallel ? range.parallel() : range).forEach(this::iterate);
+                delta = 0;
+                dangling = 0;
+                for (int b = 0; b < blockDelta.length; b++) {
+                    delta += blockDelta[b];
+                    dangling += blockDangling[b];
+                }
+                double[] swap = ranks;
+                ranks = next;
+                next = swap;
+                swap = shares;
+                shares = nextShares;
+                nextShares = swap;
+                iterations++;
+            }
+            return new PageRank(ranks, iterations, delta, delta < tolerance);
+        }
+
+        private void iterate(int block) {
+            CompactGraph.InEdges in = graph.inEdges();
+            int[] inOffsets = in.offsets;
+            int[] sources = in.sources;
+            double delta = 0;
+            double dangling = 0;
+            int end = Math.min(n, (block + 1) * BLOCK_SIZE);
+            for (int v = block * BLOCK_SIZE; v < end; v++) {
+                double sum = 0;
+                for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                    sum += shares[sources[i]] * inWeights[i];
+                }
+                double rank = base + damping * sum;
+                next[v] = rank;
+                nextShares[v] = rank * inverseOutWeights[v];
+                delta += Math.abs(rank - ranks[v]);
+                if (inverseOutWeights[v] == 0) {
+                    dangling += rank;
+                }
+            }
+            blockDelta[block] = delta;
+            blockDangling[block] = dangling;
+        }
+    }
+
+    /**
+     * Returns the out-degree (number of distinct successors) of every vertex.
+     */
+    public int[] outDegrees() {
+        int[] degrees = new int[graph.vertexCount];
+        for (int v = 0; v < degrees.length; v++) {
+            degrees[v] = graph.outDegree(v);
+        }
+        return degrees;
+    }
+
+    /**
+     * Returns the in-degree (number of distinct predecessors) of every vertex.
+     */
+    public int[] inDegrees() {
+        int[] degrees = new int[graph.vertexCount];
+        for (int v = 0; v < degrees.length; v++) {
+            degrees[v] = graph.inDegree(v);
+        }
+        return degrees;
+    }
+
+    /**
+     * Returns the out-degree distribution: element {@code d} counts the vertices of
+     * out-degree {@code d}.
+     */
+    public long[] outDegreeDistribution() {
+        return distribution(outDegrees());
+    }
+
+    /**
+     * Returns the in-degree distribution: element {@code d} counts the vertices of
+     * in-degree {@code d}.
+     */
+    public long[] inDegreeDistribution() {
+        return distribution(inDegrees());
+    }
+
+    private static long[] distribution(int[] degrees) {
+        int max = 0;
+        for (int degree : degrees) {
+            max = Math.max(max, degree);
+        }
+        long[] counts = new long[max + 1];
+        for (int degree : degrees) {
+            counts[degree]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the ids of the {@code k} highest scores, best first; ties go to the smaller id.
+     */
+    public static int[] topK(double[] scores, int k) {
+        return topK(scores.length, k, v -> scores[v]);
+    }
+
+    /**
+     * Returns the ids of the {@code k} highest scores, best first; ties go to the smaller id.
+     */
+    public static int[] topK(int[] scores, int k) {
+        return topK(scores.length, k, v -> scores[v]);
+    }
+
+    /**
+     * Keeps the best {@code k} ids in a binary min-heap whose root is the worst of them.
+     */
+    private static int[] topK(int n, int k, IntToDoubleFunction score) {
+        k = Math.max(0, Math.min(k, n));
+        int[] heap = new int[k];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            if (size < k) {
+                // 上浮
+                int i = size++;
+                while (i > 0 && better(score, heap[(i - 1) >> 1], v)) {
+                    heap[i] = heap[(i - 1) >> 1];
+                    i = (i - 1) >> 1;
+                }
+                heap[i] = v;
+            } else if (k > 0 && better(score, v, heap[0])) {
+                siftDown(heap, size, v, score);
+            }
+        }
+        // 依次取出最差者，倒序放入结果
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            siftDown(heap, i, heap[i], score);
+        }
+        return result;
+    }
+
+    private static void siftDown(int[] heap, int size, int v, IntToDoubleFunction score) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && better(score, heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!better(score, v, heap[child])) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0) {
+            heap[i] = v;
+        }
+    }
+
+    private static boolean better(IntToDoubleFunction score, int a, int b) {
+        double sa = score.applyAsDouble(a);
+        double sb = score.applyAsDouble(b);
+        return sa > sb || sa == sb && a < b;
+    }
+
+    /**
+     * Returns the {@code k} words of highest PageRank with their ranks and degrees.
+     */
+    public String report(int k) {
+        PageRank ranks = pageRank();
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-20s %12s %8s %8s%n",
+                "word", "pagerank", "in", "out"));
+        for (int v : topK(ranks.ranks(), k)) {
+            text.append(String.format(Locale.ROOT, "%-20s %12.8f %8d %8d%n",
+                    graph.word(v), ranks.rank(v), graph.inDegree(v), graph.outDegree(v)));
+        }
+        text.append(String.format(Locale.ROOT,
+                "%d iterations, delta %.3g, max in-degree %d, max out-degree %d%n",
+                ranks.iterations(), ranks.delta(), inDegreeDistribution().length - 1,
+                outDegreeDistribution().length - 1));
+        return text.toString();
+    }
+
+    /**
+     * Writes one tab-separated line per vertex, in id order, after a header:
+     * {@code word pagerank in_degree out_degree out_weight}.
+     *
+     * @param file The output file.
+     * @throws IOException If writing fails.
+     */
+    public void export(Path file) throws IOException {
+        PageRank ranks = pageRank();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("word\tpagerank\tin_degree\tout_degree\tout_weight\n");
+            for (int v = 0; v < graph.vertexCount; v++) {
+                out.write(graph.word(v));
+                out.write('\t');
+                out.write(Double.toString(ranks.rank(v)));
+                out.write('\t');
+                out.write(Integer.toString(graph.inDegree(v)));
+                out.write('\t');
+                out.write(Integer.toString(graph.outDegree(v)));
+                out.write('\t');
+                out.write(Long.toString(graph.outWeight(v)));
+                out.write('\n');
+            }
+        }
+    }
+}
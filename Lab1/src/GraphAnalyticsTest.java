@@ -0,0 +1,133 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class GraphAnalyticsTest {
+
+    /**
+     * Textbook weighted PageRank, one vertex and one edge at a time.
+     */
+    private static double[] naivePageRank(CompactGraph g, double damping, int iterations) {
+        int n = g.vertexCount();
+        double[] ranks = new double[n];
+        Arrays.fill(ranks, 1.0 / n);
+        for (int i = 0; i < iterations; i++) {
+            double[] next = new double[n];
+            double dangling = 0;
+            for (int v = 0; v < n; v++) {
+                if (g.outDegree(v) == 0) {
+                    dangling += ranks[v];
+                }
+                for (int e = g.offsets[v]; e < g.offsets[v + 1]; e++) {
+                    next[g.targets[e]] += damping * ranks[v] * g.weights[e] / g.outWeight(v);
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                next[v] += (1 - damping) / n + damping * dangling / n;
+            }
+            ranks = next;
+        }
+        return ranks;
+    }
+
+    @Test
+    public void testPageRankMatchesNaiveIteration() {
+        Random random = new Random(17);
+        GraphBuilder builder = new GraphBuilder();
+        int n = 3 * GraphAnalytics.BLOCK_SIZE + 5;
+        for (int v = 0; v < n; v++) {
+            builder.addVertex("v" + v);
+        }
+        for (int i = 0; i < 4 * n; i++) {
+            // 部分顶点没有出边（悬挂顶点）
+            int from = random.nextInt(n - 100);
+            builder.addEdge(from, random.nextInt(n), 1 + random.nextInt(5));
+        }
+        CompactGraph g = builder.build();
+        GraphAnalytics analytics = new GraphAnalytics(g);
+        GraphAnalytics.PageRank serial = analytics.pageRank(0.85, 0, 30, 1);
+        GraphAnalytics.PageRank parallel = analytics.pageRank(0.85, 0, 30, 4);
+        assertEquals(30, serial.iterations());
+        // 分块求和的顺序固定，结果与线程数无关
+        assertArrayEquals(serial.ranks(), parallel.ranks(), 0);
+        assertArrayEquals(naivePageRank(g, 0.85, 30), serial.ranks(), 1e-12);
+
+        GraphAnalytics.PageRank converged = analytics.pageRank();
+        assertTrue(converged.converged());
+        assertTrue(converged.delta() < GraphAnalytics.DEFAULT_TOLERANCE);
+        assertEquals(1.0, Arrays.stream(converged.ranks()).sum(), 1e-9);
+    }
+
+    @Test
+    public void testHubsAndDegreeDistributions() {
+        GraphBuilder builder = new GraphBuilder();
+        int hub = builder.addVertex("hub");
+        for (int i = 0; i < 5; i++) {
+            int leaf = builder.addVertex("leaf" + i);
+            builder.addEdge(leaf, hub, 1);
+            builder.addEdge(hub, leaf, i + 1);
+        }
+        GraphAnalytics analytics = new GraphAnalytics(builder.build());
+        double[] ranks = analytics.pageRank().ranks();
+        // 中心词最重要，叶子按边计数排序
+        assertArrayEquals(new int[] {hub, 5, 4, 3, 2, 1}, GraphAnalytics.topK(ranks, 10));
+        assertArrayEquals(new int[] {hub, 5}, GraphAnalytics.topK(ranks, 2));
+        assertEquals(0, GraphAnalytics.topK(ranks, 0).length);
+        assertArrayEquals(new long[] {0, 5, 0, 0, 0, 1}, analytics.inDegreeDistribution());
+        assertArrayEquals(new long[] {0, 5, 0, 0, 0, 1}, analytics.outDegreeDistribution());
+        assertArrayEquals(new int[] {5, 1, 1, 1, 1, 1}, analytics.inDegrees());
+        // 得分相同时编号小者在前
+        assertArrayEquals(new int[] {0, 1, 2, 3}, GraphAnalytics.topK(analytics.outDegrees(), 4));
+
+        // 环上所有顶点同等重要
+        GraphBuilder cycle = new GraphBuilder();
+        for (int v = 0; v < 7; v++) {
+            cycle.addVertex("c" + v);
+        }
+        for (int v = 0; v < 7; v++) {
+            cycle.addEdge(v, (v + 1) % 7, 3);
+        }
+        double[] uniform = new double[7];
+        Arrays.fill(uniform, 1.0 / 7);
+        assertArrayEquals(uniform, new GraphAnalytics(cycle.build()).pageRank().ranks(), 1e-12);
+        assertEquals(0, new GraphAnalytics(new GraphBuilder().build()).pageRank().ranks().length);
+    }
+
+    @Test
+    public void testCustomGraphAnalyticsAndExport() throws Exception {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("the cat sat on the mat and the dog sat on the rug");
+        // on 获得 sat 的全部分值
+        assertEquals(Arrays.asList("the", "on", "sat"), graph.topWords(3));
+        GraphAnalytics analytics = graph.analytics();
+        assertTrue(analytics == graph.analytics());
+        assertTrue(analytics.report(3).contains("the"));
+
+        Path file = Files.createTempFile("analytics", ".tsv");
+        try {
+            analytics.export(file);
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(1 + analytics.graph().vertexCount(), lines.size());
+            assertEquals("word\tpagerank\tin_degree\tout_degree\tout_weight", lines.get(0));
+            String[] the = lines.get(1).split("\t");
+            assertEquals("the", the[0]);
+            assertEquals(analytics.pageRank().rank(0), Double.parseDouble(the[1]), 0);
+            assertEquals("2", the[2]);
+            assertEquals("4", the[3]);
+            assertEquals("4", the[4]);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        graph.addEdge("rug", "cat");
+        assertTrue(analytics != graph.analytics());
+    }
+}
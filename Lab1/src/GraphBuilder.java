@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+ * GraphBuilder is the mutable side of the word graph.
+ * Words are interned into a shared {@link VertexDictionary} and edge counts accumulate in an
+ * {@link EdgeCountTable}; {@link #build()} compacts them into a {@link CompactGraph}.
+ * After a build the edge table is dropped to free the heap and is only re-seeded from the
+ * last compact graph if more edges are added.
+ */
+public class GraphBuilder {
+
+    private final VertexDictionary dictionary;
+    private EdgeCountTable edges;
+    private CompactGraph built;
+    private long tokens;
+
+    public GraphBuilder() {
+        this.dictionary = new VertexDictionary();
+        this.edges = new EdgeCountTable();
+    }
+
+    /**
+     * Continues from a graph built elsewhere, e.g. loaded from a snapshot; its edge table is
+     * only re-seeded if more edges are added.
+     */
+    public GraphBuilder(CompactGraph graph) {
+        this.dictionary = graph.dictionary;
+        this.built = graph;
+    }
+
+    public VertexDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of words streamed in so far through bigram sinks and file loaders.
+     */
+    public long tokenCount() {
+        return tokens;
+    }
+
+    void addTokens(long count) {
+        tokens += count;
+    }
+
+    /**
+     * Interns a word as a vertex.
+     *
+     * @return The id of the vertex.
+     */
+    public int addVertex(String word) {
+        return dictionary.intern(word);
+    }
+
+    /**
+     * Adds one occurrence of the edge {@code from -> to}.
+     */
+    public void addEdge(int from, int to) {
+        addEdge(from, to, 1);
+    }
+
+    /**
+     * Adds {@code count} occurrences of the edge {@code from -> to}.
+     */
+    public void addEdge(int from, int to, int count) {
+        if (edges == null) {
+            thaw();
+        }
+        edges.add(from, to, count);
+    }
+
+    /**
+     * Returns a sink that adds the edge {@code previous -> current} for every pair of
+     * consecutive words it receives.
+     * Like the word loop in {@link CustomGraph#main(String[])}, a word only becomes a vertex
+     * once it is part of a pair.
+     */
+    public CorpusTokenizer.TokenSink bigramSink() {
+        return new BigramSink();
+    }
+
+    /**
+     * Compacts the vertices and edges added so far into a CSR graph whose rows are sorted by
+     * target id.
+     */
+    public CompactGraph build() {
+        if (edges == null) {
+            if (built.vertexCount == dictionary.size()) {
+                return built;
+            }
+            thaw();
+        }
+        built = compact(dictionary, dictionary.size(), edges);
+        edges = null;
+        return built;
+    }
+
+    /**
+     * Compacts edge tables holding disjoint sets of edges into a CSR graph whose rows are
+     * sorted by target id.
+     */
+    static CompactGraph compact(VertexDictionary dictionary, int vertexCount,
+                                EdgeCountTable... tables) {
+        int total = 0;
+        for (EdgeCountTable table : tables) {
+            total += table.size();
+        }
+        final int edgeCount = total;
+
+        // 先按终点分桶，再按终点升序回填到各起点的行，行内自然有序，无需比较排序
+        final int[] inOffsets = new int[vertexCount + 1];
+        final int[] offsets = new int[vertexCount + 1];
+        for (EdgeCountTable table : tables) {
+            table.forEach((from, to, count) -> {
+                inOffsets[to + 1]++;
+                offsets[from + 1]++;
+            });
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+            offsets[v + 1] += offsets[v];
+        }
+        final int[] inSources = new int[edgeCount];
+        final int[] inWeights = new int[edgeCount];
+        final int[] cursor = inOffsets.clone();
+        for (EdgeCountTable table : tables) {
+            table.forEach((from, to, count) -> {
+                int slot = cursor[to]++;
+                inSources[slot] = from;
+                inWeights[slot] = count;
+            });
+        }
+
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        System.arraycopy(offsets, 0, cursor, 0, vertexCount + 1);
+        for (int to = 0; to < vertexCount; to++) {
+            for (int i = inOffsets[to]; i < inOffsets[to + 1]; i++) {
+                int slot = cursor[inSources[i]]++;
+                targets[slot] = to;
+                weights[slot] = inWeights[i];
+            }
+        }
+        return new CompactGraph(dictionary, vertexCount, offsets, targets, weights);
+    }
+
+    private final class BigramSink implements CorpusTokenizer.TokenSink {
+        private int previous = -1;
+        private byte[] first;
+
+        @Override
+        public void token(byte[] buf, int off, int len) {
+            tokens++;
+            if (previous < 0) {
+                if (first == null) {
+                    first = Arrays.copyOfRange(buf, off, off + len);
+                    return;
+                }
+                previous = dictionary.intern(first, 0, first.length);
+            }
+            int current = dictionary.intern(buf, off, len);
+            addEdge(previous, current);
+            previous = current;
+        }
+    }
+
+    /**
+     * Re-seeds the edge table from the last compact graph so that more edges can be added.
+     */
+    private void thaw() {
+        edges = new EdgeCountTable(built.edgeCount() + 16);
+        for (int from = 0; from < built.vertexCount; from++) {
+            for (int e = built.offsets[from]; e < built.offsets[from + 1]; e++) {
+                edges.add(from, built.targets[e], built.weights[e]);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * GraphExporter writes a {@link GraphView} as text for external tools, without any UI:
+ * <ul>
+ *   <li>{@link Format#DOT}: Graphviz, with the counts as edge labels and highlighted edges in
+ *   red;</li>
+ *   <li>{@link Format#GRAPHML}: vertices with a {@code label}, edges with {@code weight} and
+ *   {@code highlighted} data;</li>
+ *   <li>{@link Format#EDGE_LIST}: one {@code word1 word2 count} line per edge.</li>
+ * </ul>
+ * Vertices and edges are streamed to the writer straight from the CSR arrays, so exporting
+ * the whole graph needs no memory beyond the writer's buffer.
+ */
+public class GraphExporter {
+
+    /**
+     * The output formats.
+     */
+    public enum Format {
+        DOT, GRAPHML, EDGE_LIST;
+
+        /**
+         * Picks the format from a file extension: {@code .dot}/{@code .gv}, {@code .graphml},
+         * anything else is an edge list.
+         */
+        public static Format forFile(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".dot") || name.endsWith(".gv")) {
+                return DOT;
+            }
+            return name.endsWith(".graphml") ? GRAPHML : EDGE_LIST;
+        }
+    }
+
+    private GraphExporter() {
+    }
+
+    /**
+     * Writes {@code view} to a file in UTF-8.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void write(GraphView view, Format format, Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(view, format, out);
+        }
+    }
+
+    /**
+     * Writes {@code view} to {@code out}, which is flushed but not closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void write(GraphView view, Format format, Writer out) throws IOException {
+        switch (format) {
+            case DOT:
+                writeDot(view, out);
+                break;
+            case GRAPHML:
+                writeGraphMl(view, out);
+                break;
+            default:
+                writeEdgeList(view, out);
+                break;
+        }
+        out.flush();
+    }
+
+    private static void writeDot(GraphView view, Writer out) throws IOException {
+        CompactGraph g = view.graph();
+        out.write("digraph words {\n");
+        for (int i = 0; i < view.vertexCount(); i++) {
+            int v = view.vertex(i);
+            out.write("  n");
+            out.write(Integer.toString(v));
+            out.write(" [label=\"");
+            out.write(escapeDot(g.word(v)));
+            out.write("\"];\n");
+        }
+        for (int i = 0; i < view.edgeCount(); i++) {
+            out.write("  n");
+            out.write(Integer.toString(view.source(i)));
+            out.write(" -> n");
+            out.write(Integer.toString(view.target(i)));
+            out.write(" [label=");
+            out.write(Integer.toString(view.weight(i)));
+            out.write(view.isHighlighted(i) ? ", color=red, penwidth=3];\n" : "];\n");
+        }
+        out.write("}\n");
+    }
+
+    private static void writeGraphMl(GraphView view, Writer out) throws IOException {
+        CompactGraph g = view.graph();
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n"
+                + "  <key id=\"label\" for=\"node\" attr.name=\"label\" attr.type=\"string\"/>\n"
+                + "  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n"
+                + "  <key id=\"highlighted\" for=\"edge\" attr.name=\"highlighted\""
+                + " attr.type=\"boolean\"><default>false</default></key>\n"
+                + "  <graph id=\"words\" edgedefault=\"directed\">\n");
+        for (int i = 0; i < view.vertexCount(); i++) {
+            int v = view.vertex(i);
+            out.write("    <node id=\"n");
+            out.write(Integer.toString(v));
+            out.write("\"><data key=\"label\">");
+            out.write(escapeXml(g.word(v)));
+            out.write("</data></node>\n");
+        }
+        for (int i = 0; i < view.edgeCount(); i++) {
+            out.write("    <edge source=\"n");
+            out.write(Integer.toString(view.source(i)));
+            out.write("\" target=\"n");
+            out.write(Integer.toString(view.target(i)));
+            out.write("\"><data key=\"weight\">");
+            out.write(Integer.toString(view.weight(i)));
+            out.write(view.isHighlighted(i)
+                    ? "</data><data key=\"highlighted\">true</data></edge>\n"
+                    : "</data></edge>\n");
+        }
+        out.write("  </graph>\n</graphml>\n");
+    }
+
+    private static void writeEdgeList(GraphView view, Writer out) throws IOException {
+        CompactGraph g = view.graph();
+        // 按源顶点分组，每个源顶点的词只取一次
+        int source = -1;
+        String sourceWord = null;
+        for (int i = 0; i < view.edgeCount(); i++) {
+            if (view.source(i) != source) {
+                source = view.source(i);
+                sourceWord = g.word(source);
+            }
+            out.write(sourceWord);
+            out.write(' ');
+            out.write(g.word(view.target(i)));
+            out.write(' ');
+            out.write(Integer.toString(view.weight(i)));
+            out.write('\n');
+        }
+    }
+
+    private static String escapeDot(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,134 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.graphstream.graph.Graph;
+import org.junit.Test;
+
+public class GraphExporterTest {
+
+    private static CustomGraph sample() {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("the cat sat on the mat and the dog sat on the rug the cat");
+        return graph;
+    }
+
+    private static int[] ids(CompactGraph g, String... words) {
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = g.id(words[i]);
+        }
+        return ids;
+    }
+
+    @Test
+    public void testViews() {
+        CompactGraph g = sample().graph();
+        GraphView whole = GraphView.whole(g);
+        assertEquals(g.vertexCount(), whole.vertexCount());
+        assertEquals(g.edgeCount(), whole.edgeCount());
+        for (int i = 0; i < whole.edgeCount(); i++) {
+            assertEquals(i, g.edgeIndex(whole.source(i), whole.target(i)));
+        }
+
+        // mat 的一跳邻域：the -> mat -> and
+        GraphView mat = GraphView.neighborhood(g, ids(g, "mat"), 1, 10);
+        assertArrayEquals(ids(g, "the", "mat", "and"), viewVertices(mat));
+        assertEquals(3, mat.edgeCount()); // the->mat, mat->and, and->the
+        // 放不下时保留连接最强的邻居：the -> cat 出现两次
+        GraphView the = GraphView.neighborhood(g, ids(g, "the"), 2, 1);
+        assertArrayEquals(ids(g, "the", "cat"), viewVertices(the));
+
+        GraphView heaviest = GraphView.heaviestEdges(g, 3);
+        assertEquals(3, heaviest.edgeCount());
+        for (int i = 0; i < heaviest.edgeCount(); i++) {
+            assertEquals(2, heaviest.weight(i));
+        }
+        assertArrayEquals(ids(g, "the", "cat", "sat", "on"), viewVertices(heaviest));
+
+        int[] path = ids(g, "cat", "sat", "on", "the");
+        GraphView around = GraphView.aroundPath(g, path, 0, 0);
+        assertEquals(4, around.vertexCount());
+        int highlighted = 0;
+        for (int i = 0; i < around.edgeCount(); i++) {
+            highlighted += around.isHighlighted(i) ? 1 : 0;
+        }
+        assertEquals(3, highlighted);
+        assertEquals(4, around.edgeCount()); // 另有 the -> cat
+        // 限制边数时高亮的路径总会保留
+        GraphView capped = around.heaviest(2);
+        assertEquals(3, capped.edgeCount());
+        for (int i = 0; i < capped.edgeCount(); i++) {
+            assertTrue(capped.isHighlighted(i));
+        }
+        assertEquals(4, capped.vertexCount());
+        assertEquals(2, GraphView.whole(g).heaviest(2).edgeCount());
+    }
+
+    private static int[] viewVertices(GraphView view) {
+        int[] vertices = new int[view.vertexCount()];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = view.vertex(i);
+        }
+        return vertices;
+    }
+
+    @Test
+    public void testFormats() throws Exception {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("a b a b c");
+        CompactGraph g = graph.graph();
+        GraphView view = GraphView.whole(g).highlight(ids(g, "b", "c"));
+
+        StringWriter edges = new StringWriter();
+        GraphExporter.write(view, GraphExporter.Format.EDGE_LIST, edges);
+        assertEquals("a b 2\nb a 1\nb c 1\n", edges.toString());
+
+        StringWriter dot = new StringWriter();
+        GraphExporter.write(view, GraphExporter.Format.DOT, dot);
+        assertEquals("digraph words {\n"
+                + "  n0 [label=\"a\"];\n  n1 [label=\"b\"];\n  n2 [label=\"c\"];\n"
+                + "  n0 -> n1 [label=2];\n  n1 -> n0 [label=1];\n"
+                + "  n1 -> n2 [label=1, color=red, penwidth=3];\n}\n", dot.toString());
+
+        StringWriter graphMl = new StringWriter();
+        GraphExporter.write(view, GraphExporter.Format.GRAPHML, graphMl);
+        String xml = graphMl.toString();
+        assertTrue(xml.contains("<node id=\"n2\"><data key=\"label\">c</data></node>"));
+        assertTrue(xml.contains("<edge source=\"n0\" target=\"n1\"><data key=\"weight\">2"
+                + "</data></edge>"));
+        assertTrue(xml.contains("<edge source=\"n1\" target=\"n2\"><data key=\"weight\">1"
+                + "</data><data key=\"highlighted\">true</data></edge>"));
+        assertTrue(xml.endsWith("</graphml>\n"));
+
+        assertEquals(GraphExporter.Format.DOT, GraphExporter.Format.forFile("words.GV"));
+        assertEquals(GraphExporter.Format.GRAPHML, GraphExporter.Format.forFile("a.graphml"));
+        assertEquals(GraphExporter.Format.EDGE_LIST, GraphExporter.Format.forFile("a.txt"));
+        Path file = Files.createTempFile("graph", ".txt");
+        try {
+            graph.exportGraph(file.toString(), GraphExporter.Format.EDGE_LIST);
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(3, lines.size());
+            assertEquals("a b 2", lines.get(0));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testStreamGraphIsBuiltFromTheView() {
+        CustomGraph graph = sample();
+        CompactGraph g = graph.graph();
+        Graph whole = graph.streamGraph(GraphView.whole(g));
+        assertEquals(g.vertexCount(), whole.getNodeCount());
+        assertEquals(g.edgeCount(), whole.getEdgeCount());
+        Graph part = graph.streamGraph(GraphView.heaviestEdges(g, 2));
+        assertEquals(2, part.getEdgeCount());
+        assertEquals(4, part.getNodeCount()); // the -> cat, sat -> on
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GraphMetrics records where a {@link CustomGraph} spends its time: a
+ * {@link LatencyHistogram} per public operation, ingestion counters, and a
+ * {@link SlowQueryEvent} for Flight Recorder whenever an operation exceeds the slow query
+ * threshold.
+ * Operations are timed as
+ * <pre>
+ *   long start = metrics.start();
+ *   ...
+ *   metrics.stop(Operation.BRIDGE_WORDS, start, word1, word2);
+ * </pre>
+ * When metrics are disabled {@code start()} reads one volatile flag and {@code stop()}
+ * returns at once, so the cost is a few nanoseconds. They are off by default and turned on
+ * with {@link #setEnabled(boolean)} or {@code -Dwordgraph.metrics=true}.
+ */
+public class GraphMetrics {
+
+    static final long DEFAULT_SLOW_QUERY_MILLIS = 100;
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    /**
+     * The timed operations.
+     */
+    public enum Operation {
+        BRIDGE_WORDS, BRIDGE_WORDS_BATCH, PREDICT_NEXT, PREDICT_NEXT_BATCH, GENERATE_TEXT,
+        SHORTEST_PATH, ALL_SHORTEST_PATHS, ALTERNATIVE_PATHS, RANDOM_WALKS, INGEST
+    }
+
+    private volatile boolean enabled = Boolean.getBoolean("wordgraph.metrics");
+    private volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_QUERY_MILLIS);
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder slowQueries = new LongAdder();
+    private final LongAdder ingestedBytes = new LongAdder();
+    private final LongAdder ingestedTokens = new LongAdder();
+    private final LongAdder ingestNanos = new LongAdder();
+
+    public GraphMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets the latency above which an operation is reported as a {@link SlowQueryEvent}.
+     */
+    public void setSlowQueryThreshold(long duration, TimeUnit unit) {
+        slowQueryNanos = unit.toNanos(duration);
+    }
+
+    public LatencyHistogram latency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public long slowQueries() {
+        return slowQueries.sum();
+    }
+
+    public long ingestedBytes() {
+        return ingestedBytes.sum();
+    }
+
+    public long ingestedTokens() {
+        return ingestedTokens.sum();
+    }
+
+    /**
+     * Returns the ingestion throughput so far, in words per second of ingestion time.
+     */
+    public double tokensPerSecond() {
+        long nanos = ingestNanos.sum();
+        return nanos == 0 ? 0 : ingestedTokens.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The start time to pass to {@code stop}.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * Records an operation started by {@link #start()}; the arguments only describe a slow
+     * operation and may be null.
+     */
+    public void stop(Operation operation, long start, String argument1, String argument2) {
+        if (start == DISABLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        latencies[operation.ordinal()].record(elapsed);
+        if (elapsed >= slowQueryNanos) {
+            slowQuery(operation, elapsed, argument1, argument2);
+        }
+    }
+
+    /**
+     * Records an ingestion started by {@link #start()}.
+     */
+    public void stopIngest(long start, String source, long bytes, long tokens) {
+        if (start == DISABLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        latencies[Operation.INGEST.ordinal()].record(elapsed);
+        ingestNanos.add(elapsed);
+        ingestedBytes.add(bytes);
+        ingestedTokens.add(tokens);
+        if (elapsed >= slowQueryNanos) {
+            slowQuery(Operation.INGEST, elapsed, source, null);
+        }
+    }
+
+    private void slowQuery(Operation operation, long elapsed, String argument1,
+                           String argument2) {
+        slowQueries.increment();
+        // 只有慢查询才创建事件对象，录制未开启该事件时也不提交
+        SlowQueryEvent event = new SlowQueryEvent();
+        if (event.isEnabled()) {
+            event.operation = operation.name();
+            event.arguments = argument2 == null ? argument1 : argument1 + " " + argument2;
+            event.latency = elapsed;
+            event.commit();
+        }
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        slowQueries.reset();
+        ingestedBytes.reset();
+        ingestedTokens.reset();
+        ingestNanos.reset();
+    }
+
+    /**
+     * Returns a readable snapshot of the metrics, with the size of {@code graph}.
+     */
+    public String dump(CompactGraph graph) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-20s %9s %10s %10s %10s %10s %10s%n",
+                "operation (us)", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latency(operation);
+            text.append(String.format(Locale.ROOT,
+                    "%-20s %9d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    operation.name().toLowerCase(Locale.ROOT), histogram.count(),
+                    histogram.meanNanos() / 1e3, histogram.valueAtPercentile(50) / 1e3,
+                    histogram.valueAtPercentile(90) / 1e3, histogram.valueAtPercentile(99) / 1e3,
+                    histogram.maxNanos() / 1e3));
+        }
+        text.append(String.format(Locale.ROOT,
+                "ingested %d bytes, %d words, %.0f words/s%n"
+                        + "graph %d vertices, %d edges%n"
+                        + "slow queries %d (over %d ms)%n",
+                ingestedBytes(), ingestedTokens(), tokensPerSecond(),
+                graph.vertexCount(), graph.edgeCount(),
+                slowQueries(), TimeUnit.NANOSECONDS.toMillis(slowQueryNanos)));
+        return text.toString();
+    }
+}
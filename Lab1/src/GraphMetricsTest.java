@@ -0,0 +1,105 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class GraphMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (long value = 1; value <= 100_000; value++) {
+                    histogram.record(value * 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.count());
+        assertEquals(100_000_000, histogram.maxNanos());
+        assertEquals(50_000_500, histogram.meanNanos(), 1);
+        // 每个桶的宽度不超过其下界的 1/32
+        assertEquals(50_000_000, histogram.valueAtPercentile(50), 50_000_000 / 32.0);
+        assertEquals(99_000_000, histogram.valueAtPercentile(99), 99_000_000 / 32.0);
+        assertTrue(histogram.valueAtPercentile(50) >= 50_000_000);
+        for (long value = 1; value < 1L << 40; value = value * 3 + 1) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.highestEquivalentValue(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestEquivalentValue(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void testOperationsAreRecordedOnlyWhenEnabled() {
+        CustomGraph graph = new CustomGraph();
+        GraphMetrics metrics = graph.metrics();
+        metrics.setEnabled(false);
+        graph.ingestText("the quick fox jumps over the lazy dog");
+        graph.queryBridgeWords("the", "fox");
+        assertEquals(0, metrics.latency(GraphMetrics.Operation.BRIDGE_WORDS).count());
+
+        metrics.setEnabled(true);
+        graph.ingestText("and the quick cat");
+        graph.queryBridgeWords("the", "fox");
+        graph.calcShortestPath("the", "dog");
+        graph.calcShortestPath("fox");
+        graph.generateNewText("the fox jumps the dog");
+        assertEquals(1, metrics.latency(GraphMetrics.Operation.BRIDGE_WORDS).count());
+        assertEquals(1, metrics.latency(GraphMetrics.Operation.SHORTEST_PATH).count());
+        assertEquals(1, metrics.latency(GraphMetrics.Operation.ALL_SHORTEST_PATHS).count());
+        assertEquals(1, metrics.latency(GraphMetrics.Operation.GENERATE_TEXT).count());
+        assertEquals(4, metrics.ingestedTokens());
+        assertEquals(17, metrics.ingestedBytes());
+        String snapshot = graph.metricsSnapshot();
+        assertTrue(snapshot.contains("bridge_words"));
+        assertTrue(snapshot.contains("graph 9 vertices, 9 edges"));
+    }
+
+    @Test
+    public void testIngestedBytesAreUtf8InEveryMode() {
+        String text = "caf\u00e9 na\u00efve caf\u00e9";
+        for (CustomGraph graph : new CustomGraph[] {new CustomGraph(), CustomGraph.concurrent()}) {
+            graph.metrics().setEnabled(true);
+            graph.ingestText(text);
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length,
+                    graph.metrics().ingestedBytes());
+        }
+    }
+
+    @Test
+    public void testSlowQueriesBecomeFlightRecorderEvents() throws Exception {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("the quick fox jumps over the lazy dog");
+        graph.metrics().setEnabled(true);
+        graph.metrics().setSlowQueryThreshold(0, TimeUnit.NANOSECONDS);
+        Path file = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(SlowQueryEvent.class);
+            recording.start();
+            graph.calcShortestPath("quick", "dog");
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            assertEquals("SHORTEST_PATH", events.get(0).getString("operation"));
+            assertEquals("quick dog", events.get(0).getString("arguments"));
+            assertTrue(events.get(0).getLong("latency") > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertEquals(1, graph.metrics().slowQueries());
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * GraphSnapshot saves a {@link CompactGraph} to a binary file and loads it back, so that a
+ * large corpus only has to be tokenized once.
+ * The file holds the vertex dictionary (packed word bytes, word starts, hashes and the probe
+ * table, so nothing is re-hashed on load) and the CSR arrays, little-endian:
+ * <pre>
+ *   int magic, int version
+ *   int vertexCount, int edgeCount, int charLength, int tableLength
+ *   byte[charLength] chars, zero-padded to a multiple of 4
+ *   int[vertexCount + 1] starts, int[vertexCount] hashes, int[tableLength] table
+ *   int[vertexCount + 1] offsets, int[edgeCount] targets, int[edgeCount] weights
+ *   long crc32 of everything above
+ * </pre>
+ * Loading maps the file read-only and copies each section into its array with one bulk
+ * transfer; the checksum is verified before the graph is returned.
+ */
+public final class GraphSnapshot {
+
+    static final int MAGIC = 0x57475348; // "WGSH"
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 24;
+    // 每次映射的窗口，保证单个 MappedByteBuffer 不超过 2 GB
+    private static final int WINDOW_BYTES = 1 << 30;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Writes a graph to {@code file}, replacing it if it exists.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(CompactGraph graph, Path file) throws IOException {
+        VertexDictionary dictionary = graph.dictionary;
+        int vertexCount = graph.vertexCount;
+        int edgeCount = graph.targets.length;
+        // 快照只保存图中的顶点；字典可能多出构建之后才加入的词
+        int charLength = dictionary.starts[vertexCount];
+        int[] table = vertexCount == dictionary.size
+                ? dictionary.table : probeTable(dictionary.hashes, vertexCount);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(vertexCount);
+            out.putInt(edgeCount);
+            out.putInt(charLength);
+            out.putInt(table.length);
+            out.putBytes(dictionary.chars, charLength);
+            for (int i = charLength; i % 4 != 0; i++) {
+                out.putByte((byte) 0);
+            }
+            out.putInts(dictionary.starts, vertexCount + 1);
+            out.putInts(dictionary.hashes, vertexCount);
+            out.putInts(table, table.length);
+            out.putInts(graph.offsets, vertexCount + 1);
+            out.putInts(graph.targets, edgeCount);
+            out.putInts(graph.weights, edgeCount);
+            out.finish();
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #save(CompactGraph, Path)}.
+     *
+     * @throws IOException If the file cannot be read, is not a snapshot, has an unsupported
+     *     version or fails its checksum.
+     */
+    public static CompactGraph load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + 8) {
+                throw new IOException("Not a graph snapshot: " + file);
+            }
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a graph snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            int vertexCount = header.getInt();
+            int edgeCount = header.getInt();
+            int charLength = header.getInt();
+            int tableLength = header.getInt();
+            long expectedSize = HEADER_BYTES + ((charLength + 3L) & ~3L)
+                    + 4L * (3L * vertexCount + 2 + tableLength + 2L * edgeCount) + 8;
+            if (vertexCount < 0 || edgeCount < 0 || charLength < 0 || tableLength <= 0
+                    || fileSize != expectedSize) {
+                throw new IOException("Corrupt graph snapshot: " + file);
+            }
+
+            CRC32 crc = new CRC32();
+            long position = 0;
+            for (long remaining = fileSize - 8; remaining > 0; ) {
+                int window = (int) Math.min(WINDOW_BYTES, remaining);
+                crc.update(map(channel, position, window));
+                position += window;
+                remaining -= window;
+            }
+            if (map(channel, position, 8).getLong() != crc.getValue()) {
+                throw new IOException("Graph snapshot checksum mismatch: " + file);
+            }
+
+            position = HEADER_BYTES;
+            byte[] chars = new byte[charLength];
+            readBytes(channel, position, chars);
+            position += (charLength + 3L) & ~3L;
+            int[] starts = new int[vertexCount + 1];
+            position = readInts(channel, position, starts);
+            int[] hashes = new int[vertexCount];
+            position = readInts(channel, position, hashes);
+            int[] table = new int[tableLength];
+            position = readInts(channel, position, table);
+            int[] offsets = new int[vertexCount + 1];
+            position = readInts(channel, position, offsets);
+            int[] targets = new int[edgeCount];
+            position = readInts(channel, position, targets);
+            int[] weights = new int[edgeCount];
+            readInts(channel, position, weights);
+
+            VertexDictionary dictionary =
+                    new VertexDictionary(chars, charLength, starts, hashes, table, vertexCount);
+            return new CompactGraph(dictionary, vertexCount, offsets, targets, weights);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, int size)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static void readBytes(FileChannel channel, long position, byte[] dst)
+            throws IOException {
+        for (int done = 0; done < dst.length; ) {
+            int window = Math.min(WINDOW_BYTES, dst.length - done);
+            map(channel, position + done, window).get(dst, done, window);
+            done += window;
+        }
+    }
+
+    /**
+     * Fills {@code dst} from the file and returns the position after the section.
+     */
+    private static long readInts(FileChannel channel, long position, int[] dst)
+            throws IOException {
+        int windowInts = WINDOW_BYTES / 4;
+        for (int done = 0; done < dst.length; ) {
+            int count = Math.min(windowInts, dst.length - done);
+            map(channel, position + 4L * done, 4 * count).asIntBuffer().get(dst, done, count);
+            done += count;
+        }
+        return position + 4L * dst.length;
+    }
+
+    /**
+     * Rebuilds the probe table for the first {@code size} words, sized like
+     * {@link VertexDictionary} would size it.
+     */
+    private static int[] probeTable(int[] hashes, int size) {
+        int capacity = 32;
+        while (size * 2 > capacity) {
+            capacity *= 2;
+        }
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Buffers writes to a channel and keeps the running checksum.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer =
+                ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putBytes(byte[] src, int length) throws IOException {
+            for (int done = 0; done < length; ) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), length - done);
+                buffer.put(src, done, count);
+                done += count;
+            }
+        }
+
+        void putInts(int[] src, int length) throws IOException {
+            for (int done = 0; done < length; ) {
+                ensure(4);
+                int count = Math.min(buffer.remaining() / 4, length - done);
+                buffer.asIntBuffer().put(src, done, count);
+                buffer.position(buffer.position() + 4 * count);
+                done += count;
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
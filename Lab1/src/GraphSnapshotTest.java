@@ -0,0 +1,79 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Test;
+
+public class GraphSnapshotTest {
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        CustomGraph original = new CustomGraph();
+        original.ingestFile(Paths.get(System.getProperty("user.dir"))
+                .resolve("Text/2.txt").toString());
+        Path file = Files.createTempFile("graph", ".snapshot");
+        try {
+            original.saveSnapshot(file.toString());
+            CustomGraph loaded = CustomGraph.loadSnapshot(file.toString());
+            CompactGraph expected = original.graph();
+            CompactGraph actual = loaded.graph();
+            assertEquals(expected.vertexCount(), actual.vertexCount());
+            assertArrayEquals(expected.offsets, actual.offsets);
+            assertArrayEquals(expected.targets, actual.targets);
+            assertArrayEquals(expected.weights, actual.weights);
+            for (int v = 0; v < expected.vertexCount(); v++) {
+                assertEquals(v, actual.id(expected.word(v)));
+            }
+            assertEquals(original.queryBridgeWords("you", "the"),
+                    loaded.queryBridgeWords("you", "the"));
+            assertEquals(original.calcShortestPath("you", "the"),
+                    loaded.calcShortestPath("you", "the"));
+
+            // 载入的图仍可继续添加
+            loaded.addEdge("snapshot", "you");
+            assertEquals(expected.vertexCount() + 1, loaded.graph().vertexCount());
+            assertEquals("snapshot -> you", loaded.calcShortestPath("snapshot", "you"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        CustomGraph graph = new CustomGraph();
+        graph.addEdge("a", "b");
+        graph.addEdge("b", "c");
+        Path file = Files.createTempFile("graph", ".snapshot");
+        try {
+            graph.saveSnapshot(file.toString());
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(30);
+                int b = raf.read();
+                raf.seek(30);
+                raf.write(b ^ 1);
+            }
+            try {
+                CustomGraph.loadSnapshot(file.toString());
+                fail("corrupt snapshot was loaded");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("checksum"));
+            }
+
+            Files.write(file, new byte[64]);
+            try {
+                CustomGraph.loadSnapshot(file.toString());
+                fail("garbage was loaded");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("Not a graph snapshot"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+import java.util.Arrays;
+
+/**
+ * GraphView selects the part of a {@link CompactGraph} that is rendered or exported: the
+ * whole graph, the neighbourhood of some words, or the heaviest edges, with optionally
+ * highlighted edges (e.g. a shortest path).
+ * A view refers to vertices by id and to edges by their index in the graph's CSR arrays,
+ * ordered by index, so it never copies words or builds a map. The whole-graph view stores
+ * nothing at all. Instances are immutable.
+ */
+public class GraphView {
+
+    private static final int[] NONE = new int[0];
+
+    private final CompactGraph graph;
+    private final int[] vertices; // null 表示全部顶点
+    private final int[] edges; // null 表示全部边
+    private final int[] sources; // 与 edges 平行
+    private final int[] highlighted; // 按边下标升序
+
+    private GraphView(CompactGraph graph, int[] vertices, int[] edges, int[] sources,
+                      int[] highlighted) {
+        this.graph = graph;
+        this.vertices = vertices;
+        this.edges = edges;
+        this.sources = sources;
+        this.highlighted = highlighted;
+    }
+
+    /**
+     * Returns a view of every vertex and edge of {@code graph}.
+     */
+    public static GraphView whole(CompactGraph graph) {
+        return new GraphView(graph, null, null, null, NONE);
+    }
+
+    /**
+     * Returns the subgraph within {@code hops} edges, in either direction, of the
+     * {@code centers}, grown ring by ring. When a ring does not fit in {@code maxVertices} it
+     * keeps the vertices joined to the previous ring by the heaviest edges. The view contains
+     * every edge between its vertices.
+     *
+     * @param graph The graph.
+     * @param centers The ids of the words in the middle of the view; all of them are shown.
+     * @param hops The radius of the neighbourhood.
+     * @param maxVertices The maximum number of vertices besides the centers.
+     * @return The view.
+     */
+    public static GraphView neighborhood(CompactGraph graph, int[] centers, int hops,
+                                         int maxVertices) {
+        int n = graph.vertexCount;
+        boolean[] selected = new boolean[n];
+        int[] chosen = new int[Math.min(n, centers.length + Math.max(0, maxVertices))];
+        int count = 0;
+        for (int center : centers) {
+            if (!selected[center]) {
+                selected[center] = true;
+                chosen[count++] = center;
+            }
+        }
+        int limit = Math.min(chosen.length, count + Math.max(0, maxVertices));
+        CompactGraph.InEdges in = graph.inEdges();
+        Ring ring = new Ring(n);
+        int frontierStart = 0;
+        for (int hop = 0; hop < hops && count < limit && frontierStart < count; hop++) {
+            int frontierEnd = count;
+            for (int i = frontierStart; i < frontierEnd; i++) {
+                int v = chosen[i];
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    if (!selected[graph.targets[e]]) {
+                        ring.offer(graph.targets[e], graph.weights[e]);
+                    }
+                }
+                for (int k = in.offsets[v]; k < in.offsets[v + 1]; k++) {
+                    if (!selected[in.sources[k]]) {
+                        ring.offer(in.sources[k], graph.weights[in.edges[k]]);
+                    }
+                }
+            }
+            int room = limit - count;
+            if (ring.size <= room) {
+                for (int c = 0; c < ring.size; c++) {
+                    selected[ring.vertices[c]] = true;
+                    chosen[count++] = ring.vertices[c];
+                }
+            } else {
+                // 本环放不下，保留连接最强的候选
+                for (int c : GraphAnalytics.topK(Arrays.copyOf(ring.strength, ring.size), room)) {
+                    selected[ring.vertices[c]] = true;
+                    chosen[count++] = ring.vertices[c];
+                }
+            }
+            ring.clear();
+            frontierStart = frontierEnd;
+        }
+        int[] vertices = Arrays.copyOf(chosen, count);
+        Arrays.sort(vertices);
+        return induced(graph, vertices, selected);
+    }
+
+    /**
+     * The vertices reached by one ring of the neighbourhood search, each with the weight of its
+     * heaviest edge to the previous ring.
+     */
+    private static final class Ring {
+        private final int[] slot; // 顶点在本环中的位置，-1 表示不在本环
+        private int[] vertices = new int[16];
+        private int[] strength = new int[16];
+        private int size;
+
+        Ring(int vertexCount) {
+            slot = new int[vertexCount];
+            Arrays.fill(slot, -1);
+        }
+
+        void offer(int vertex, int weight) {
+            if (slot[vertex] >= 0) {
+                strength[slot[vertex]] = Math.max(strength[slot[vertex]], weight);
+                return;
+            }
+            if (size == vertices.length) {
+                vertices = Arrays.copyOf(vertices, 2 * size);
+                strength = Arrays.copyOf(strength, 2 * size);
+            }
+            slot[vertex] = size;
+            vertices[size] = vertex;
+            strength[size++] = weight;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                slot[vertices[i]] = -1;
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the neighbourhood of a path with the edges of the path highlighted.
+     *
+     * @see #neighborhood(CompactGraph, int[], int, int)
+     */
+    public static GraphView aroundPath(CompactGraph graph, int[] path, int hops,
+                                       int maxVertices) {
+        return neighborhood(graph, path, hops, maxVertices).highlight(path);
+    }
+
+    /**
+     * Returns the {@code count} heaviest edges of {@code graph} and their endpoints.
+     */
+    public static GraphView heaviestEdges(CompactGraph graph, int count) {
+        int[] edges = GraphAnalytics.topK(graph.weights, count);
+        Arrays.sort(edges);
+        int[] sources = new int[edges.length];
+        boolean[] selected = new boolean[graph.vertexCount];
+        for (int i = 0; i < edges.length; i++) {
+            sources[i] = sourceOf(graph, edges[i]);
+            selected[sources[i]] = true;
+            selected[graph.targets[edges[i]]] = true;
+        }
+        int vertexCount = 0;
+        for (boolean isSelected : selected) {
+            vertexCount += isSelected ? 1 : 0;
+        }
+        int[] vertices = new int[vertexCount];
+        int size = 0;
+        for (int v = 0; v < graph.vertexCount && size < vertexCount; v++) {
+            if (selected[v]) {
+                vertices[size++] = v;
+            }
+        }
+        return new GraphView(graph, vertices, edges, sources, NONE);
+    }
+
+    private static GraphView induced(CompactGraph graph, int[] vertices, boolean[] selected) {
+        int edgeCount = 0;
+        for (int v : vertices) {
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                edgeCount += selected[graph.targets[e]] ? 1 : 0;
+            }
+        }
+        int[] edges = new int[edgeCount];
+        int[] sources = new int[edgeCount];
+        int size = 0;
+        for (int v : vertices) {
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                if (selected[graph.targets[e]]) {
+                    sources[size] = v;
+                    edges[size++] = e;
+                }
+            }
+        }
+        return new GraphView(graph, vertices, edges, sources, NONE);
+    }
+
+    /**
+     * Returns this view with the edges along {@code path} highlighted; edges of the path that
+     * are not in the view are ignored.
+     */
+    public GraphView highlight(int[] path) {
+        int[] marked = new int[Math.max(0, path.length - 1)];
+        int size = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            int e = graph.edgeIndex(path[i], path[i + 1]);
+            if (e >= 0 && (edges == null || Arrays.binarySearch(edges, e) >= 0)) {
+                marked[size++] = e;
+            }
+        }
+        marked = Arrays.copyOf(marked, size);
+        Arrays.sort(marked);
+        return new GraphView(graph, vertices, edges, sources, marked);
+    }
+
+    /**
+     * Returns this view with only its {@code maxEdges} heaviest edges; highlighted edges are
+     * always kept, and so are all vertices.
+     */
+    public GraphView heaviest(int maxEdges) {
+        int count = edgeCount();
+        if (count <= maxEdges) {
+            return this;
+        }
+        int[] weights = new int[count];
+        for (int i = 0; i < count; i++) {
+            // 高亮的边排在最前
+            weights[i] = isHighlighted(i) ? Integer.MAX_VALUE : weight(i);
+        }
+        int[] kept = GraphAnalytics.topK(weights, Math.max(maxEdges, highlighted.length));
+        Arrays.sort(kept);
+        int[] keptEdges = new int[kept.length];
+        int[] keptSources = new int[kept.length];
+        for (int j = 0; j < kept.length; j++) {
+            keptEdges[j] = edge(kept[j]);
+            keptSources[j] = source(kept[j]);
+        }
+        int[] keptVertices = vertices;
+        if (keptVertices == null) {
+            keptVertices = new int[graph.vertexCount];
+            Arrays.setAll(keptVertices, v -> v);
+        }
+        return new GraphView(graph, keptVertices, keptEdges, keptSources, highlighted);
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    public int vertexCount() {
+        return vertices == null ? graph.vertexCount : vertices.length;
+    }
+
+    /**
+     * Returns the id of the {@code i}-th vertex of the view; vertices are in ascending id
+     * order.
+     */
+    public int vertex(int i) {
+        return vertices == null ? i : vertices[i];
+    }
+
+    public int edgeCount() {
+        return edges == null ? graph.targets.length : edges.length;
+    }
+
+    /**
+     * Returns the index (in the graph's CSR arrays) of the {@code i}-th edge of the view;
+     * edges are in ascending index order, i.e. grouped by source.
+     */
+    public int edge(int i) {
+        return edges == null ? i : edges[i];
+    }
+
+    /**
+     * Returns the source vertex of the {@code i}-th edge of the view.
+     */
+    public int source(int i) {
+        return sources == null ? sourceOf(graph, i) : sources[i];
+    }
+
+    public int target(int i) {
+        return graph.targets[edge(i)];
+    }
+
+    public int weight(int i) {
+        return graph.weights[edge(i)];
+    }
+
+    public boolean isHighlighted(int i) {
+        return highlighted.length > 0 && Arrays.binarySearch(highlighted, edge(i)) >= 0;
+    }
+
+    /**
+     * Finds the row holding {@code edge} by binary search over the CSR offsets.
+     */
+    static int sourceOf(CompactGraph graph, int edge) {
+        int low = 0;
+        int high = graph.vertexCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (graph.offsets[mid] <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
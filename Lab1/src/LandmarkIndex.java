@@ -0,0 +1,197 @@
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * LandmarkIndex stores, for K landmark vertices L, the distances {@code d(L, v)} and
+ * {@code d(v, L)} to and from every vertex, which give the A* lower bound used by
+ * {@link ShortestPathEngine#shortestPath(int, int, LandmarkIndex)} (ALT):
+ * {@code d(v, t) >= max(d(L, t) - d(L, v), d(v, L) - d(t, L))}.
+ * Landmarks are picked far apart (farthest-point selection on hop distance, ignoring edge
+ * direction) and their distance arrays are computed in parallel, one landmark per task.
+ * Instances are immutable.
+ */
+public class LandmarkIndex {
+
+    private final CompactGraph graph;
+    private final PathMode mode;
+    private final int[] landmarks;
+    // 按顶点优先存放：fromLandmark[v * K + k] = d(L_k, v)，一个顶点的 K 个距离相邻
+    private final double[] fromLandmark;
+    private final double[] toLandmark;
+
+    private LandmarkIndex(CompactGraph graph, PathMode mode, int[] landmarks,
+                          double[] fromLandmark, double[] toLandmark) {
+        this.graph = graph;
+        this.mode = mode;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Picks {@code count} landmarks and computes their distance arrays.
+     *
+     * @param graph The graph to index.
+     * @param count The number of landmarks.
+     * @param mode How the length of a path is measured.
+     * @param parallelism The number of threads computing distance arrays.
+     * @return The index.
+     */
+    public static LandmarkIndex build(CompactGraph graph, int count, PathMode mode,
+                                      int parallelism) {
+        final int[] landmarks = pickLandmarks(graph, Math.min(count, graph.vertexCount));
+        final double[][] from = new double[landmarks.length][];
+        final double[][] to = new double[landmarks.length][];
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.submit(() -> IntStream.range(0, 2 * landmarks.length).parallel().forEach(i -> {
+                ShortestPathEngine engine = new ShortestPathEngine(graph);
+                int landmark = landmarks[i >> 1];
+                if ((i & 1) == 0) {
+                    from[i >> 1] = engine.distancesFrom(landmark, mode);
+                } else {
+                    to[i >> 1] = engine.distancesTo(landmark, mode);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while preparing landmarks", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Landmark preprocessing failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return new LandmarkIndex(graph, mode, landmarks, interleave(from), interleave(to));
+    }
+
+    private static double[] interleave(double[][] rows) {
+        int count = rows.length;
+        int vertexCount = count == 0 ? 0 : rows[0].length;
+        double[] result = new double[count * vertexCount];
+        for (int k = 0; k < count; k++) {
+            double[] row = rows[k];
+            for (int v = 0; v < vertexCount; v++) {
+                result[v * count + k] = row[v];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Farthest-point selection: start from the vertex with the most edges, then repeatedly
+     * add the vertex with the largest hop distance to the landmarks chosen so far, preferring
+     * vertices no landmark reaches at all.
+     */
+    private static int[] pickLandmarks(CompactGraph graph, int count) {
+        int vertexCount = graph.vertexCount;
+        if (count == 0) {
+            return new int[0];
+        }
+        CompactGraph.InEdges in = graph.inEdges();
+        int first = 0;
+        for (int v = 1; v < vertexCount; v++) {
+            if (graph.outDegree(v) + graph.inDegree(v)
+                    > graph.outDegree(first) + graph.inDegree(first)) {
+                first = v;
+            }
+        }
+        int[] landmarks = new int[count];
+        landmarks[0] = first;
+        int[] nearest = new int[vertexCount];
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+        int[] queue = new int[vertexCount];
+        int[] hops = new int[vertexCount];
+        for (int k = 1; k <= count; k++) {
+            // 以新地标为起点做无向BFS，更新每个顶点到最近地标的跳数
+            int landmark = landmarks[k - 1];
+            Arrays.fill(hops, -1);
+            hops[landmark] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = landmark;
+            while (head < tail) {
+                int u = queue[head++];
+                nearest[u] = Math.min(nearest[u], hops[u]);
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                    int v = graph.targets[e];
+                    if (hops[v] < 0) {
+                        hops[v] = hops[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+                for (int i = in.offsets[u]; i < in.offsets[u + 1]; i++) {
+                    int v = in.sources[i];
+                    if (hops[v] < 0) {
+                        hops[v] = hops[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            if (k == count) {
+                break;
+            }
+            int farthest = 0;
+            for (int v = 1; v < vertexCount; v++) {
+                if (nearest[v] > nearest[farthest]) {
+                    farthest = v;
+                }
+            }
+            landmarks[k] = farthest;
+        }
+        return landmarks;
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    public PathMode mode() {
+        return mode;
+    }
+
+    public int[] landmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Returns a lower bound of the distance from {@code v} to {@code target}, or infinity if
+     * some landmark proves that {@code target} cannot be reached from {@code v}.
+     */
+    public double lowerBound(int v, int target) {
+        int count = landmarks.length;
+        int vBase = v * count;
+        int targetBase = target * count;
+        double bound = 0;
+        for (int k = 0; k < count; k++) {
+            double fromTarget = fromLandmark[targetBase + k];
+            double fromV = fromLandmark[vBase + k];
+            if (fromTarget != Double.POSITIVE_INFINITY) {
+                if (fromV != Double.POSITIVE_INFINITY) {
+                    bound = Math.max(bound, fromTarget - fromV);
+                }
+            } else if (fromV != Double.POSITIVE_INFINITY) {
+                // L 可达 v 却不可达 t，说明 v 也不可达 t
+                return Double.POSITIVE_INFINITY;
+            }
+            double toV = toLandmark[vBase + k];
+            double toTarget = toLandmark[targetBase + k];
+            if (toV != Double.POSITIVE_INFINITY) {
+                if (toTarget != Double.POSITIVE_INFINITY) {
+                    bound = Math.max(bound, toV - toTarget);
+                }
+            } else if (toTarget != Double.POSITIVE_INFINITY) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Returns an estimate of the heap used by the distance arrays in bytes.
+     */
+    public long estimatedBytes() {
+        return 16L * landmarks.length * graph.vertexCount;
+    }
+}
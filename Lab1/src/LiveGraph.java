@@ -0,0 +1,470 @@
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LiveGraph is the concurrent form of the word graph: any number of threads may add words,
+ * edges and whole documents while others query it.
+ * Writers look words up in the dictionary of the last publication without any lock, and
+ * lock the live dictionary only for words added since, so after the first publishes they
+ * rarely meet; edges are counted in {@link #STRIPES} edge tables, each guarded by its own
+ * lock and chosen by hashing the edge. A document is tokenized without any lock and merged
+ * in one pass.
+ * Readers never lock and never publish: they read the last {@link Publication}, an
+ * immutable {@link CompactGraph} and its version number. {@link #publish()} swaps the
+ * pending edge tables for empty ones and copies the dictionary in a short exclusive section,
+ * then merges the pending edges into a new snapshot while writers carry on. A background
+ * thread publishes when additions are pending, as soon as {@code publishThreshold} of them
+ * are and otherwise every {@code publishMillis}, or ten times as long as the last publish
+ * took if that is longer: a publish and the derived indexes queries rebuild after it take
+ * time linear in the size of the graph, so the period grows with the graph instead of
+ * spending all the time rebuilding. {@link #close()} stops the background thread.
+ */
+public final class LiveGraph implements AutoCloseable {
+
+    static final int STRIPES = 64;
+    public static final long DEFAULT_PUBLISH_MILLIS = 100;
+    public static final long DEFAULT_PUBLISH_THRESHOLD = 1 << 20;
+    static final int PUBLISH_COST_FACTOR = 10;
+
+    // 所有实例共用一个后台发布线程，周期任务只弱引用实例，实例被回收后不再安排下一次
+    private static final ScheduledExecutorService PUBLISHER =
+            Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "live-graph-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final VertexDictionary dictionary; // 由自身的监视器保护；已发布的词查 current
+    private EdgeCountTable[] stripes; // 每个分段由自身的监视器保护，整体在提交锁下替换
+    // 写入者共享读锁，publish 用写锁与所有写入互斥
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final AtomicLong pendingChanges = new AtomicLong();
+    private final LongAdder tokens = new LongAdder();
+    private final long publishThreshold;
+    private final AtomicBoolean publishRequested = new AtomicBoolean();
+    private volatile ScheduledFuture<?> nextPublish; // 不周期发布时为 null
+    private volatile boolean closed;
+    private volatile Publication current;
+
+    public LiveGraph() {
+        this(new GraphBuilder().build());
+    }
+
+    /**
+     * Starts from an existing graph, e.g. one loaded from a snapshot, publishing in the
+     * background with the default period and threshold.
+     */
+    public LiveGraph(CompactGraph initial) {
+        this(initial, DEFAULT_PUBLISH_MILLIS, DEFAULT_PUBLISH_THRESHOLD);
+    }
+
+    /**
+     * Starts from an existing graph.
+     *
+     * @param publishMillis The period of background publishing, or 0 for none.
+     * @param publishThreshold The number of pending additions that triggers a background
+     *                         publish, or 0 for none. With both 0, additions only become
+     *                         visible through {@link #publish()}.
+     */
+    public LiveGraph(CompactGraph initial, long publishMillis, long publishThreshold) {
+        this.dictionary = initial.dictionary.copy();
+        this.stripes = newStripes();
+        this.current = new Publication(initial, 0, initial.dictionary.copy());
+        this.publishThreshold = publishThreshold;
+        if (publishMillis > 0) {
+            schedule(new PeriodicPublish(this, publishMillis), publishMillis);
+        }
+    }
+
+    /**
+     * Stops background publishing. Writers may carry on; their additions then only become
+     * visible through {@link #publish()}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledFuture<?> next = nextPublish;
+        if (next != null) {
+            next.cancel(false);
+        }
+    }
+
+    private void schedule(PeriodicPublish task, long delayMillis) {
+        ScheduledFuture<?> next = PUBLISHER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        nextPublish = next;
+        if (closed) {
+            next.cancel(false); // 与 close 并发时不留下任务
+        }
+    }
+
+    /**
+     * Publishes a live graph periodically, each run scheduling the next, until the graph is
+     * closed or no longer reachable.
+     */
+    private static final class PeriodicPublish implements Runnable {
+        private final WeakReference<LiveGraph> graph;
+        private final long periodMillis;
+        private long lastCostNanos; // 只由发布线程访问
+
+        PeriodicPublish(LiveGraph graph, long periodMillis) {
+            this.graph = new WeakReference<>(graph);
+            this.periodMillis = periodMillis;
+        }
+
+        @Override
+        public void run() {
+            LiveGraph live = graph.get();
+            if (live == null || live.closed) {
+                return;
+            }
+            if (live.pendingChanges() != 0) {
+                long start = System.nanoTime();
+                live.publish();
+                lastCostNanos = System.nanoTime() - start;
+            }
+            live.schedule(this, Math.max(periodMillis,
+                    TimeUnit.NANOSECONDS.toMillis(PUBLISH_COST_FACTOR * lastCostNanos)));
+        }
+    }
+
+    /**
+     * A published snapshot together with its version; both are replaced at once, so a
+     * reader never pairs a snapshot with the version of another.
+     */
+    public static final class Publication {
+        private final CompactGraph graph;
+        private final long version;
+        // 与 graph 的词相同且不再修改，写入者无锁查询；初始图的词典可能仍被别处修改，故用副本
+        private final VertexDictionary words;
+
+        Publication(CompactGraph graph, long version, VertexDictionary words) {
+            this.graph = graph;
+            this.version = version;
+            this.words = words;
+        }
+
+        public CompactGraph graph() {
+            return graph;
+        }
+
+        public long version() {
+            return version;
+        }
+    }
+
+    /**
+     * Returns the last publication; readers that need both the snapshot and its version
+     * should read them from it.
+     */
+    public Publication current() {
+        return current;
+    }
+
+    /**
+     * Returns the last published snapshot; it never changes, whatever writers do afterwards.
+     * This is all a reader does, so queries never wait for writers or for a publish.
+     */
+    public CompactGraph published() {
+        return current.graph;
+    }
+
+    /**
+     * Returns the version of the last published snapshot, starting at 0.
+     */
+    public long version() {
+        return current.version;
+    }
+
+    /**
+     * Returns the number of additions that are not published yet.
+     */
+    public long pendingChanges() {
+        return pendingChanges.get();
+    }
+
+    /**
+     * Returns the number of words ingested so far through documents and files.
+     */
+    public long tokenCount() {
+        return tokens.sum();
+    }
+
+    /**
+     * Publishes every addition made so far as a new snapshot.
+     *
+     * @return The new snapshot, or the current one if nothing changed.
+     */
+    public CompactGraph publish() {
+        publishLock.lock();
+        try {
+            return publishLocked();
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * Asks the background thread to publish once {@code pending} additions reach the
+     * threshold; the writer itself never publishes.
+     */
+    private void changed(long pending) {
+        if (publishThreshold > 0 && pending >= publishThreshold && !closed
+                && publishRequested.compareAndSet(false, true)) {
+            PUBLISHER.execute(() -> {
+                publishRequested.set(false);
+                publish();
+            });
+        }
+    }
+
+    private CompactGraph publishLocked() {
+        EdgeCountTable[] delta;
+        VertexDictionary words;
+        commitLock.writeLock().lock();
+        try {
+            if (pendingChanges.get() == 0) {
+                return current.graph; // 没有新增时不重建，查询的派生索引也保持有效
+            }
+            delta = stripes;
+            stripes = newStripes();
+            words = dictionary.copy();
+            pendingChanges.set(0);
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        Publication base = current;
+        CompactGraph next = merge(base.graph, GraphBuilder.compact(words, words.size(), delta));
+        current = new Publication(next, base.version + 1, words);
+        return next;
+    }
+
+    /**
+     * Interns a word as a vertex.
+     *
+     * @return The id of the vertex.
+     */
+    public int addVertex(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        int id = current.words.find(bytes, 0, bytes.length);
+        if (id >= 0) {
+            return id; // 已发布的词：无需加锁，也不算新增
+        }
+        long pending = 0;
+        commitLock.readLock().lock();
+        try {
+            synchronized (dictionary) {
+                int before = dictionary.size();
+                id = dictionary.intern(bytes, 0, bytes.length);
+                if (dictionary.size() != before) {
+                    pending = pendingChanges.incrementAndGet();
+                }
+            }
+        } finally {
+            commitLock.readLock().unlock();
+        }
+        changed(pending);
+        return id;
+    }
+
+    /**
+     * Adds one occurrence of the edge {@code from -> to}, adding the words if needed.
+     */
+    public void addEdge(String from, String to) {
+        byte[] fromBytes = from.getBytes(StandardCharsets.UTF_8);
+        byte[] toBytes = to.getBytes(StandardCharsets.UTF_8);
+        VertexDictionary known = current.words;
+        int fromId = known.find(fromBytes, 0, fromBytes.length);
+        int toId = known.find(toBytes, 0, toBytes.length);
+        long pending;
+        commitLock.readLock().lock();
+        try {
+            if (fromId < 0 || toId < 0) {
+                synchronized (dictionary) {
+                    fromId = dictionary.intern(fromBytes, 0, fromBytes.length);
+                    toId = dictionary.intern(toBytes, 0, toBytes.length);
+                }
+            }
+            EdgeCountTable stripe = stripes[stripe(fromId, toId)];
+            synchronized (stripe) {
+                stripe.add(fromId, toId, 1);
+            }
+            pending = pendingChanges.incrementAndGet();
+        } finally {
+            commitLock.readLock().unlock();
+        }
+        changed(pending);
+    }
+
+    /**
+     * Adds the bigrams of a document; pairs across documents are not connected.
+     *
+     * @return The number of words in the document.
+     */
+    public long ingest(String text) {
+        return ingest(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Adds the bigrams of a document already encoded in UTF-8, e.g. by a caller that also
+     * needs its size.
+     *
+     * @return The number of words in the document.
+     */
+    public long ingest(ByteBuffer utf8) {
+        ParallelCorpusLoader.Partial partial = new ParallelCorpusLoader.Partial();
+        CorpusTokenizer tokenizer = new CorpusTokenizer(partial);
+        tokenizer.feed(utf8);
+        tokenizer.finish();
+        merge(partial);
+        return partial.tokens;
+    }
+
+    /**
+     * Adds the bigrams of a text file, tokenizing it on {@code parallelism} threads.
+     *
+     * @return The number of bytes read.
+     * @throws IOException If the file cannot be read.
+     */
+    public long ingestFile(Path file, int parallelism) throws IOException {
+        merge(ParallelCorpusLoader.parse(file, parallelism));
+        return Files.size(file);
+    }
+
+    private void merge(ParallelCorpusLoader.Partial partial) {
+        tokens.add(partial.tokens);
+        // 与 GraphBuilder 一致：只有一个单词时不形成任何边，也不加入顶点
+        if (partial.tokens < 2) {
+            return;
+        }
+        VertexDictionary local = partial.dictionary;
+        int[] ids = new int[local.size()];
+        VertexDictionary known = current.words;
+        int unknown = 0;
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = known.find(local, id);
+            unknown += ids[id] < 0 ? 1 : 0;
+        }
+        long pending;
+        commitLock.readLock().lock();
+        try {
+            if (unknown > 0) {
+                synchronized (dictionary) {
+                    for (int id = 0; id < ids.length; id++) {
+                        if (ids[id] < 0) {
+                            ids[id] = dictionary.intern(local, id);
+                        }
+                    }
+                }
+            }
+            // 先按分段把边分组，之后每个分段只加锁一次
+            int edgeCount = partial.edges.size();
+            long[] grouped = new long[edgeCount];
+            int[] counts = new int[edgeCount];
+            int[] stripeOffsets = new int[STRIPES + 1];
+            int[] cursor = new int[STRIPES];
+            partial.edges.forEach((from, to, count) ->
+                    stripeOffsets[stripe(ids[from], ids[to]) + 1]++);
+            for (int s = 0; s < STRIPES; s++) {
+                stripeOffsets[s + 1] += stripeOffsets[s];
+                cursor[s] = stripeOffsets[s];
+            }
+            partial.edges.forEach((from, to, count) -> {
+                int slot = cursor[stripe(ids[from], ids[to])]++;
+                grouped[slot] = ((long) ids[from] << 32) | ids[to];
+                counts[slot] = count;
+            });
+            EdgeCountTable[] current = stripes;
+            for (int s = 0; s < STRIPES; s++) {
+                if (stripeOffsets[s] == stripeOffsets[s + 1]) {
+                    continue;
+                }
+                EdgeCountTable stripe = current[s];
+                synchronized (stripe) {
+                    for (int i = stripeOffsets[s]; i < stripeOffsets[s + 1]; i++) {
+                        stripe.add((int) (grouped[i] >>> 32), (int) grouped[i], counts[i]);
+                    }
+                }
+            }
+            pending = pendingChanges.addAndGet(edgeCount);
+        } finally {
+            commitLock.readLock().unlock();
+        }
+        changed(pending);
+    }
+
+    private static EdgeCountTable[] newStripes() {
+        EdgeCountTable[] tables = new EdgeCountTable[STRIPES];
+        for (int s = 0; s < STRIPES; s++) {
+            tables[s] = new EdgeCountTable();
+        }
+        return tables;
+    }
+
+    private static int stripe(int from, int to) {
+        int h = from * 0x9E3779B9 ^ to;
+        h *= 0x85EBCA6B;
+        return h >>> 26;
+    }
+
+    /**
+     * Adds the edge counts of {@code delta} to those of {@code base}, row by row; the result
+     * uses the dictionary and vertex count of {@code delta}, which extend those of
+     * {@code base}.
+     */
+    static CompactGraph merge(CompactGraph base, CompactGraph delta) {
+        int vertexCount = delta.vertexCount;
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            int i = v < base.vertexCount ? base.offsets[v] : 0;
+            int iEnd = v < base.vertexCount ? base.offsets[v + 1] : 0;
+            int j = delta.offsets[v];
+            int jEnd = delta.offsets[v + 1];
+            int length = 0;
+            while (i < iEnd && j < jEnd) {
+                int a = base.targets[i];
+                int b = delta.targets[j];
+                i += a <= b ? 1 : 0;
+                j += b <= a ? 1 : 0;
+                length++;
+            }
+            offsets[v + 1] = offsets[v] + length + (iEnd - i) + (jEnd - j);
+        }
+        int[] targets = new int[offsets[vertexCount]];
+        int[] weights = new int[targets.length];
+        for (int v = 0; v < vertexCount; v++) {
+            int i = v < base.vertexCount ? base.offsets[v] : 0;
+            int iEnd = v < base.vertexCount ? base.offsets[v + 1] : 0;
+            int j = delta.offsets[v];
+            int jEnd = delta.offsets[v + 1];
+            int slot = offsets[v];
+            while (i < iEnd || j < jEnd) {
+                int a = i < iEnd ? base.targets[i] : Integer.MAX_VALUE;
+                int b = j < jEnd ? delta.targets[j] : Integer.MAX_VALUE;
+                int weight = 0;
+                if (a <= b) {
+                    weight += base.weights[i++];
+                }
+                if (b <= a) {
+                    weight += delta.weights[j++];
+                }
+                targets[slot] = Math.min(a, b);
+                weights[slot++] = weight;
+            }
+        }
+        return new CompactGraph(delta.dictionary, vertexCount, offsets, targets, weights);
+    }
+}
@@ -0,0 +1,223 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class LiveGraphTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int DOCUMENTS = 2000;
+
+    private static String document(int writer, int index) {
+        // 每篇文档的词都不相同，且以一个所有文档共享的词结尾
+        String id = writer + "x" + index;
+        return "alpha" + letters(id) + " beta" + letters(id) + " gamma" + letters(id) + " shared";
+    }
+
+    private static String letters(String id) {
+        StringBuilder text = new StringBuilder();
+        for (char c : id.toCharArray()) {
+            text.append((char) ('a' + (c == 'x' ? 10 : c - '0')));
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testConcurrentWritersAndReaders() throws Exception {
+        CustomGraph graph = CustomGraph.concurrent();
+        LiveGraph live = graph.liveGraph();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < DOCUMENTS; i++) {
+                        graph.ingestText(document(writer, i));
+                        graph.addEdge("hot", "spot");
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    long lastVersion = -1;
+                    CompactGraph last = null;
+                    int lastHot = 0;
+                    while (writing.get()) {
+                        LiveGraph.Publication current = live.current();
+                        CompactGraph g = current.graph();
+                        long version = current.version();
+                        assertTrue(version >= lastVersion);
+                        // 版本号相同的快照必为同一个
+                        assertEquals(version == lastVersion, g == last);
+                        lastVersion = version;
+                        last = g;
+                        checkDocumentsAreWhole(g);
+                        int hot = g.id("hot") < 0 ? 0 : g.weight(g.id("hot"), g.id("spot"));
+                        assertTrue(hot >= lastHot);
+                        lastHot = hot;
+                        graph.queryBridgeWordList("alphaa", "gammaa");
+                        graph.calcShortestPath("alphaa", "shared");
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (int i = 0; i < WRITERS; i++) {
+            threads.get(i).join();
+        }
+        writing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.peek());
+        }
+
+        CompactGraph g = live.publish();
+        assertEquals(0, live.pendingChanges());
+        checkDocumentsAreWhole(g);
+        assertEquals(WRITERS * DOCUMENTS, g.weight(g.id("hot"), g.id("spot")));
+        assertEquals(WRITERS * DOCUMENTS * 3 + 3, g.vertexCount());
+        assertEquals(WRITERS * DOCUMENTS * 3 + 1, g.edgeCount());
+        assertEquals("beta" + letters("2x17"),
+                graph.queryBridgeWords("alpha" + letters("2x17"), "gamma" + letters("2x17")));
+    }
+
+    /**
+     * A snapshot holds either all three edges of a document or none of them.
+     */
+    private static void checkDocumentsAreWhole(CompactGraph g) {
+        int shared = g.id("shared");
+        for (int v = 0; v < g.vertexCount(); v++) {
+            String word = g.word(v);
+            if (!word.startsWith("alpha")) {
+                continue;
+            }
+            String suffix = word.substring("alpha".length());
+            int beta = g.id("beta" + suffix);
+            int gamma = g.id("gamma" + suffix);
+            assertTrue(beta >= 0 && gamma >= 0);
+            assertEquals(1, g.weight(v, beta));
+            assertEquals(1, g.weight(beta, gamma));
+            assertEquals(1, g.weight(gamma, shared));
+        }
+    }
+
+    @Test
+    public void testPublishMatchesSequentialBuild() {
+        String text = "the cat sat on the mat and the dog sat on the cat";
+        LiveGraph live = new LiveGraph(new GraphBuilder().build(), 0, 0);
+        live.ingest(text);
+        live.addEdge("mat", "dog");
+        CompactGraph first = live.publish();
+        assertEquals(1, live.version());
+        live.ingest(text);
+        live.addVertex("lonely");
+        CompactGraph second = live.publish();
+        assertEquals(2, live.version());
+        // 没有新增时不发布新快照
+        assertSame(second, live.publish());
+        assertSame(second, live.current().graph());
+        assertEquals(2, live.current().version());
+        // 旧快照不受之后写入的影响
+        assertEquals(2, first.weight(first.id("the"), first.id("cat")));
+        assertEquals(4, second.weight(second.id("the"), second.id("cat")));
+        assertEquals(-1, first.id("lonely"));
+
+        CustomGraph expected = new CustomGraph();
+        expected.ingestText(text);
+        expected.addEdge("mat", "dog");
+        expected.ingestText(text);
+        expected.addVertex("lonely");
+        CompactGraph sequential = expected.graph();
+        assertEquals(sequential.vertexCount(), second.vertexCount());
+        assertArrayEquals(sequential.offsets, second.offsets);
+        assertArrayEquals(sequential.targets, second.targets);
+        assertArrayEquals(sequential.weights, second.weights);
+    }
+
+    @Test
+    public void testPublishedWordsKeepTheirIds() {
+        LiveGraph live = new LiveGraph(new GraphBuilder().build(), 0, 0);
+        live.ingest("the cat sat");
+        CompactGraph first = live.publish();
+        // 已发布的词不经词典锁查到，编号不变，也不算新增
+        assertEquals(first.id("cat"), live.addVertex("cat"));
+        assertEquals(0, live.pendingChanges());
+        live.addEdge("sat", "down");
+        live.ingest("the dog sat down");
+        CompactGraph second = live.publish();
+        assertEquals(first.id("the"), second.id("the"));
+        assertEquals(5, second.vertexCount());
+        assertEquals(2, second.weight(second.id("sat"), second.id("down")));
+        assertEquals(1, second.weight(second.id("the"), second.id("dog")));
+    }
+
+    @Test
+    public void testReadersNeverPublish() throws Exception {
+        LiveGraph manual = new LiveGraph(new GraphBuilder().build(), 0, 0);
+        manual.ingest("the cat sat");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, manual.published().vertexCount());
+        }
+        assertEquals(0, manual.version());
+        assertEquals(3, manual.publish().vertexCount());
+
+        // 达到阈值时由后台线程发布
+        LiveGraph triggered = new LiveGraph(new GraphBuilder().build(), 0, 2);
+        triggered.addEdge("the", "cat");
+        triggered.addEdge("cat", "sat");
+        awaitVersion(triggered, 1);
+        assertEquals(1, triggered.published().weight(triggered.published().id("cat"),
+                triggered.published().id("sat")));
+
+        // 周期发布
+        LiveGraph periodic = new LiveGraph(new GraphBuilder().build(), 5, 0);
+        periodic.ingest("the cat sat");
+        awaitVersion(periodic, 1);
+        assertEquals(3, periodic.published().vertexCount());
+        assertEquals(0, periodic.pendingChanges());
+    }
+
+    @Test
+    public void testCloseStopsBackgroundPublishing() throws Exception {
+        LiveGraph live = new LiveGraph(new GraphBuilder().build(), 1, 2);
+        live.close();
+        live.ingest("the cat sat on the mat");
+        Thread.sleep(50);
+        assertEquals(0, live.version());
+        assertEquals(5, live.publish().vertexCount());
+    }
+
+    private static void awaitVersion(LiveGraph live, long version) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (live.version() < version) {
+            assertTrue("not published in time", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,560 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NGramModel counts, for every context of {@code order - 1} consecutive words, how often each
+ * word follows it, so that text generation and random walks can look further back than the
+ * one word of the bigram graph.
+ * A context is a tuple of vertex ids of a shared {@link VertexDictionary}, stored once in a
+ * flat {@code int[]} arena and found through an open-addressing table of context ids with
+ * linear probing; successor counts live in an {@link EdgeCountTable} keyed by (context id,
+ * word id). No string is built per context, so a context costs {@code 4 * (order - 1)}
+ * bytes of ids plus a few bytes of table slots, see {@link #bytesPerContext()}.
+ * The tables and the query rows built from them never grow beyond the memory budget: once
+ * the next resize, or the rows one more n-gram would need, would exceed it, n-grams with an
+ * unseen context or successor are counted as dropped instead of stored.
+ * Queries run on a CSR form of the counts (rows of successors sorted by id, with cumulative
+ * counts for sampling), rebuilt lazily after more text is added.
+ */
+public class NGramModel {
+
+    public static final int MIN_ORDER = 2;
+    public static final int MAX_ORDER = 8;
+    private static final int EMPTY = -1;
+
+    private final VertexDictionary dictionary;
+    private final int order;
+    private final int width; // 上下文的词数，即 order - 1
+    private final long memoryBudget;
+    // 第 c 个上下文的词编号存放在 contextWords[c * width, (c + 1) * width)
+    private int[] contextWords;
+    private int[] slots; // 开放寻址表，存上下文编号，EMPTY 为空槽
+    private int contextCount;
+    private final EdgeCountTable counts;
+    private long nGramCount;
+    private long droppedNGrams;
+    private volatile Rows rows; // 为null时表示有尚未压缩的修改
+    private final Queue<Walker> walkers = new ConcurrentLinkedQueue<>(); // 空闲的行走器
+
+    /**
+     * Creates an empty model.
+     *
+     * @param dictionary The dictionary that interns the words, usually the graph's.
+     * @param order The number of words of an n-gram, from {@link #MIN_ORDER} to
+     *              {@link #MAX_ORDER}.
+     * @param memoryBudget The maximum number of bytes of the tables, see
+     *                     {@link #estimatedBytes()}.
+     * @throws IllegalArgumentException If the order is out of range.
+     */
+    public NGramModel(VertexDictionary dictionary, int order, long memoryBudget) {
+        if (order < MIN_ORDER || order > MAX_ORDER) {
+            throw new IllegalArgumentException("order must be between " + MIN_ORDER + " and "
+                    + MAX_ORDER + ": " + order);
+        }
+        this.dictionary = dictionary;
+        this.order = order;
+        this.width = order - 1;
+        this.memoryBudget = memoryBudget;
+        this.contextWords = new int[16 * width];
+        this.slots = new int[32];
+        Arrays.fill(slots, EMPTY);
+        this.counts = new EdgeCountTable();
+    }
+
+    public int order() {
+        return order;
+    }
+
+    public VertexDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of distinct contexts.
+     */
+    public int contextCount() {
+        return contextCount;
+    }
+
+    /**
+     * Returns the number of distinct n-grams stored.
+     */
+    public int distinctNGrams() {
+        return counts.size();
+    }
+
+    /**
+     * Returns the number of n-grams counted, repetitions included.
+     */
+    public long nGramCount() {
+        return nGramCount;
+    }
+
+    /**
+     * Returns the number of n-grams that were not stored because of the memory budget.
+     */
+    public long droppedNGrams() {
+        return droppedNGrams;
+    }
+
+    /**
+     * Returns an estimate of the heap used by the counting tables and the query rows in
+     * bytes.
+     */
+    public long estimatedBytes() {
+        long bytes = tableBytes();
+        Rows current = rows;
+        if (current != null) {
+            bytes += rowBytes(current.offsets.length - 1, current.successors.length);
+        }
+        return bytes;
+    }
+
+    private long tableBytes() {
+        return 4L * contextWords.length + 4L * slots.length + counts.estimatedBytes();
+    }
+
+    /**
+     * Returns the bytes of the query rows of {@code contexts} contexts and {@code nGrams}
+     * distinct n-grams.
+     */
+    private static long rowBytes(int contexts, int nGrams) {
+        return 4L * (contexts + 1) + 8L * nGrams;
+    }
+
+    /**
+     * Returns the estimated bytes per stored context, successor counts included.
+     */
+    public double bytesPerContext() {
+        return contextCount == 0 ? 0 : (double) estimatedBytes() / contextCount;
+    }
+
+    /**
+     * Counts the n-gram formed by {@code words[off, off + order)}.
+     */
+    public void add(int[] words, int off) {
+        nGramCount++;
+        rows = null;
+        int context = findContext(words, off);
+        int next = words[off + width];
+        if (context != EMPTY && counts.get(context, next) > 0) {
+            counts.add(context, next, 1);
+            return;
+        }
+        // 新的 n 元组：上下文（若是新的）和计数表都可能扩容，下次查询还要按新的大小建行，
+        // 全部放得下才存
+        long bytes = tableBytes() + counts.insertGrowth();
+        if (context == EMPTY) {
+            bytes += contextGrowth() + rowBytes(contextCount + 1, counts.size() + 1);
+        } else {
+            bytes += rowBytes(contextCount, counts.size() + 1);
+        }
+        if (bytes > memoryBudget) {
+            droppedNGrams++;
+            return;
+        }
+        if (context == EMPTY) {
+            context = insertContext(words, off);
+        }
+        counts.add(context, next, 1);
+    }
+
+    /**
+     * Returns the id of the context {@code words[off, off + order - 1)}, or -1 if it was
+     * never seen.
+     */
+    public int findContext(int[] words, int off) {
+        int mask = slots.length - 1;
+        for (int slot = hash(words, off) & mask; ; slot = (slot + 1) & mask) {
+            int context = slots[slot];
+            if (context == EMPTY) {
+                return EMPTY;
+            }
+            if (Arrays.equals(contextWords, context * width, (context + 1) * width,
+                    words, off, off + width)) {
+                return context;
+            }
+        }
+    }
+
+    /**
+     * Returns the bytes by which inserting one more context grows the tables.
+     */
+    private long contextGrowth() {
+        long bytes = 0;
+        if ((contextCount + 1) * width > contextWords.length) {
+            bytes += 4L * contextWords.length;
+        }
+        if (2 * (contextCount + 1) > slots.length) {
+            bytes += 4L * slots.length;
+        }
+        return bytes;
+    }
+
+    private int insertContext(int[] words, int off) {
+        if ((contextCount + 1) * width > contextWords.length) {
+            contextWords = Arrays.copyOf(contextWords, 2 * contextWords.length);
+        }
+        if (2 * (contextCount + 1) > slots.length) {
+            resizeSlots(2 * slots.length);
+        }
+        int context = contextCount++;
+        System.arraycopy(words, off, contextWords, context * width, width);
+        place(context);
+        return context;
+    }
+
+    private void resizeSlots(int capacity) {
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        for (int context = 0; context < contextCount; context++) {
+            place(context);
+        }
+    }
+
+    private void place(int context) {
+        int mask = slots.length - 1;
+        int slot = hash(contextWords, context * width) & mask;
+        while (slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = context;
+    }
+
+    private int hash(int[] words, int off) {
+        long h = 0;
+        for (int i = off; i < off + width; i++) {
+            h = (h + words[i]) * 0x9E3779B97F4A7C15L;
+        }
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns a sink that counts the n-grams of the words it receives as one document; like
+     * {@link GraphBuilder#bigramSink()}, a word is only interned once it has a neighbour.
+     */
+    public CorpusTokenizer.TokenSink sink() {
+        return new NGramSink();
+    }
+
+    private final class NGramSink implements CorpusTokenizer.TokenSink {
+        private final int[] window = new int[order];
+        private int size;
+        private byte[] first;
+
+        @Override
+        public void token(byte[] buf, int off, int len) {
+            if (size == 0) {
+                if (first == null) {
+                    first = Arrays.copyOfRange(buf, off, off + len);
+                    return;
+                }
+                window[size++] = dictionary.intern(first, 0, first.length);
+            }
+            int word = dictionary.intern(buf, off, len);
+            if (size == order) {
+                System.arraycopy(window, 1, window, 0, width);
+                size = width;
+            }
+            window[size++] = word;
+            if (size == order) {
+                add(window, 0);
+            }
+        }
+    }
+
+    /**
+     * The query form of the counts: for each context a row of successors sorted by id, with
+     * the running total of their counts.
+     */
+    private static final class Rows {
+        final int[] offsets;
+        final int[] successors;
+        final int[] cumulative;
+
+        Rows(int[] offsets, int[] successors, int[] cumulative) {
+            this.offsets = offsets;
+            this.successors = successors;
+            this.cumulative = cumulative;
+        }
+    }
+
+    private Rows rows() {
+        Rows current = rows;
+        if (current != null) {
+            return current;
+        }
+        int[] offsets = new int[contextCount + 1];
+        counts.forEach((context, word, count) -> offsets[context + 1]++);
+        for (int c = 0; c < contextCount; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        // 每行先按 (后继, 计数) 打包成 long 填入，再行内排序
+        long[] packed = new long[counts.size()];
+        int[] cursor = Arrays.copyOf(offsets, contextCount);
+        counts.forEach((context, word, count) ->
+                packed[cursor[context]++] = (long) word << 32 | count);
+        int[] successors = new int[packed.length];
+        int[] cumulative = new int[packed.length];
+        for (int c = 0; c < contextCount; c++) {
+            Arrays.sort(packed, offsets[c], offsets[c + 1]);
+            int total = 0;
+            for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                successors[i] = (int) (packed[i] >>> 32);
+                total += (int) packed[i];
+                cumulative[i] = total;
+            }
+        }
+        current = new Rows(offsets, successors, cumulative);
+        rows = current;
+        return current;
+    }
+
+    /**
+     * Returns the id of the context ending just before {@code history[end]}, or -1 if it is
+     * unknown or {@code history} is too short.
+     */
+    public int contextBefore(int[] history, int end) {
+        return end < width ? EMPTY : findContext(history, end - width);
+    }
+
+    /**
+     * Returns how often {@code word} followed {@code context}.
+     */
+    public int count(int context, int word) {
+        if (context < 0) {
+            return 0;
+        }
+        Rows r = rows();
+        int i = Arrays.binarySearch(r.successors, r.offsets[context], r.offsets[context + 1],
+                word);
+        return i < 0 ? 0 : r.cumulative[i] - (i == r.offsets[context] ? 0 : r.cumulative[i - 1]);
+    }
+
+    /**
+     * Returns the number of distinct words that followed {@code context}.
+     */
+    public int successorCount(int context) {
+        Rows r = rows();
+        return r.offsets[context + 1] - r.offsets[context];
+    }
+
+    /**
+     * Returns the words that followed {@code context}, sorted by id.
+     */
+    public int[] successors(int context) {
+        Rows r = rows();
+        return Arrays.copyOfRange(r.successors, r.offsets[context], r.offsets[context + 1]);
+    }
+
+    /**
+     * Picks one of {@code bridges}, the bridge words between the last word of
+     * {@code history[0, end)} and the next word, in proportion to how often each followed the
+     * context ending at {@code end}; if none did, or the context is unknown, every bridge word
+     * is equally likely, as in the bigram graph.
+     *
+     * @param u A uniform random number in [0, 1).
+     * @return The index of the chosen bridge word.
+     */
+    public int chooseBridge(int[] history, int end, int[] bridges, double u) {
+        int context = contextBefore(history, end);
+        long total = 0;
+        for (int bridge : bridges) {
+            total += count(context, bridge);
+        }
+        if (total == 0) {
+            return (int) (u * bridges.length);
+        }
+        long threshold = (long) (u * total);
+        for (int i = 0; i < bridges.length; i++) {
+            threshold -= count(context, bridges[i]);
+            if (threshold < 0) {
+                return i;
+            }
+        }
+        return bridges.length - 1;
+    }
+
+    /**
+     * Lends an idle walker, or a new one, which draws each step from the counts of the last
+     * {@code order - 1} words, and from the bigram edges of {@code backoff} while the walk
+     * is shorter than that or its context was never followed by a word. Pass it to
+     * {@link #release} when done so that later walks reuse it.
+     */
+    public Walker walker(RandomWalkEngine backoff) {
+        Rows current = rows();
+        Walker walker;
+        while ((walker = walkers.poll()) != null) {
+            if (walker.rows == current && walker.backoff == backoff) {
+                return walker;
+            }
+            // 计数或二元图已更新，旧行走器直接丢弃
+        }
+        return new Walker(current, backoff);
+    }
+
+    /**
+     * Returns a walker obtained from {@link #walker}; it must not be used afterwards.
+     */
+    public void release(Walker walker) {
+        walkers.offer(walker);
+    }
+
+    /**
+     * The state of one walk, with the same stopping rule as
+     * {@link RandomWalkEngine.Walker}: a walk ends at a dead end or before it would take the
+     * same step from the same context a second time.
+     */
+    public final class Walker implements RandomWalkEngine.Stepper {
+        private final Rows rows;
+        private final RandomWalkEngine backoff;
+        private final CompactGraph graph;
+        private final int[] takenNGrams;
+        private final int[] takenEdges;
+        private final int[] history = new int[width];
+        private int length;
+        private int generation;
+        private boolean lastConditioned;
+        private int lastDrawn = -1;
+
+        private Walker(Rows rows, RandomWalkEngine backoff) {
+            this.rows = rows;
+            this.backoff = backoff;
+            this.graph = backoff.graph();
+            this.takenNGrams = new int[rows.successors.length];
+            this.takenEdges = new int[graph.edgeCount()];
+        }
+
+        /**
+         * Starts a new walk at {@code vertex}.
+         */
+        @Override
+        public void start(int vertex) {
+            generation++;
+            if (generation == 0) {
+                Arrays.fill(takenNGrams, 0);
+                Arrays.fill(takenEdges, 0);
+                generation = 1;
+            }
+            history[width - 1] = vertex;
+            length = 1;
+        }
+
+        /**
+         * Returns whether the last step was drawn from the longer context rather than the
+         * bigram edges.
+         */
+        public boolean lastConditioned() {
+            return lastConditioned;
+        }
+
+        /**
+         * Returns the word drawn by the last step, also when it repeated an earlier step.
+         */
+        public int lastDrawn() {
+            return lastDrawn;
+        }
+
+        /**
+         * Draws the next word and moves to it.
+         *
+         * @return The new word, {@link RandomWalkEngine#DEAD_END} or
+         *     {@link RandomWalkEngine#REPEATED_EDGE}; the walk does not move in the last two
+         *     cases.
+         */
+        @Override
+        public int step(SplittableRandom random) {
+            int current = history[width - 1];
+            lastDrawn = -1;
+            int context = length >= width ? findContext(history, 0) : EMPTY;
+            int next;
+            // 行是创建时的快照，之后才出现的上下文或没有后继的上下文都退回二元图
+            lastConditioned = context >= 0 && context < rows.offsets.length - 1
+                    && rows.offsets[context + 1] > rows.offsets[context];
+            if (lastConditioned) {
+                int i = sample(context, random);
+                lastDrawn = rows.successors[i];
+                if (takenNGrams[i] == generation) {
+                    return RandomWalkEngine.REPEATED_EDGE;
+                }
+                takenNGrams[i] = generation;
+                next = rows.successors[i];
+            } else {
+                if (current >= graph.vertexCount) {
+                    return RandomWalkEngine.DEAD_END;
+                }
+                int e = backoff.sampleEdge(current, random);
+                if (e < 0) {
+                    return RandomWalkEngine.DEAD_END;
+                }
+                lastDrawn = graph.targets[e];
+                if (takenEdges[e] == generation) {
+                    return RandomWalkEngine.REPEATED_EDGE;
+                }
+                takenEdges[e] = generation;
+                next = graph.targets[e];
+            }
+            System.arraycopy(history, 1, history, 0, width - 1);
+            history[width - 1] = next;
+            length++;
+            return next;
+        }
+
+        private int sample(int context, SplittableRandom random) {
+            int begin = rows.offsets[context];
+            int end = rows.offsets[context + 1];
+            int total = rows.cumulative[end - 1];
+            int key = random.nextInt(total);
+            // 第一个累计计数大于 key 的后继
+            int low = begin;
+            int high = end - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (rows.cumulative[mid] > key) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Runs a whole walk from {@code start} for at most {@code maxSteps} steps (0 for no
+         * limit) and returns its words.
+         */
+        public int[] walk(int start, int maxSteps, SplittableRandom random) {
+            start(start);
+            int[] path = new int[16];
+            path[0] = start;
+            int size = 1;
+            while (maxSteps == 0 || size <= maxSteps) {
+                int next = step(random);
+                if (next < 0) {
+                    break;
+                }
+                if (size == path.length) {
+                    path = Arrays.copyOf(path, size * 2);
+                }
+                path[size++] = next;
+            }
+            return Arrays.copyOf(path, size);
+        }
+    }
+
+    /**
+     * Returns the size of the model: contexts, n-grams and memory.
+     */
+    public String summary() {
+        return String.format(Locale.ROOT,
+                "order %d: %d contexts, %d distinct n-grams of %d, %d dropped, %.1f MB"
+                        + " (%.1f bytes per context)",
+                order, contextCount, counts.size(), nGramCount, droppedNGrams,
+                estimatedBytes() / (1024.0 * 1024.0), bytesPerContext());
+    }
+}
@@ -0,0 +1,151 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class NGramModelTest {
+
+    private static int[] ids(CompactGraph g, String... words) {
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = g.id(words[i]);
+        }
+        return ids;
+    }
+
+    @Test
+    public void testCountsContextsOfPackedIds() {
+        CustomGraph graph = CustomGraph.withOrder(3, CustomGraph.DEFAULT_NGRAM_BUDGET);
+        graph.ingestText("the cat sat on the mat the cat ran");
+        graph.ingestText("lonely");
+        NGramModel model = graph.nGramModel();
+        CompactGraph g = graph.graph();
+        // 与二元图共用词编号，只有一个词的文档不产生顶点
+        assertEquals(g.vertexCount(), model.dictionary().size());
+        assertEquals(-1, g.id("lonely"));
+        assertEquals(7, model.nGramCount());
+        assertEquals(6, model.contextCount());
+        int theCat = model.findContext(ids(g, "the", "cat"), 0);
+        assertEquals(1, model.count(theCat, g.id("sat")));
+        assertEquals(1, model.count(theCat, g.id("ran")));
+        assertEquals(0, model.count(theCat, g.id("mat")));
+        assertEquals(2, model.successorCount(theCat));
+        assertEquals(-1, model.findContext(ids(g, "cat", "the"), 0));
+        int[] history = ids(g, "on", "the", "mat");
+        assertEquals(model.findContext(history, 1), model.contextBefore(history, 3));
+        assertEquals(-1, model.contextBefore(history, 1));
+        assertTrue(model.bytesPerContext() > 0);
+    }
+
+    private static CustomGraph ambiguousGraph(int order) {
+        CustomGraph graph = order > 0 ? CustomGraph.withOrder(order, 1 << 20) : new CustomGraph();
+        graph.ingestText("alpha the big dog");
+        graph.ingestText("beta the small dog");
+        return graph;
+    }
+
+    @Test
+    public void testBridgesAndWalksFollowTheLongerContext() throws Exception {
+        CustomGraph graph = ambiguousGraph(3);
+        for (int i = 0; i < 20; i++) {
+            assertEquals("alpha the big dog", graph.generateNewText("alpha the dog"));
+            assertEquals("beta the small dog", graph.generateNewText("Beta the dog"));
+        }
+        StringWriter out = new StringWriter();
+        graph.generateNewText(new StringReader("beta the dog alpha the dog"), out, 7, 2);
+        assertEquals("beta the small dog alpha the big dog", out.toString());
+
+        // 二元图中 the 之后两个词都可能出现
+        CustomGraph bigrams = ambiguousGraph(0);
+        boolean sawOther = false;
+        for (int i = 0; i < 50 && !sawOther; i++) {
+            sawOther = bigrams.generateNewText("alpha the dog").contains("small");
+        }
+        assertTrue(sawOther);
+
+        CompactGraph g = graph.graph();
+        NGramModel.Walker walker = graph.nGramModel().walker(graph.randomWalkEngine());
+        for (long seed = 0; seed < 20; seed++) {
+            SplittableRandom random = new SplittableRandom(seed);
+            assertArrayEquals(ids(g, "alpha", "the", "big", "dog"),
+                    walker.walk(g.id("alpha"), 0, random));
+            assertArrayEquals(ids(g, "beta", "the", "small", "dog"),
+                    walker.walk(g.id("beta"), 0, random));
+        }
+        // 不足一个上下文时退回二元图
+        walker.start(g.id("beta"));
+        assertEquals(g.id("the"), walker.step(new SplittableRandom(1)));
+        assertTrue(!walker.lastConditioned());
+        assertEquals(g.id("small"), walker.step(new SplittableRandom(1)));
+        assertTrue(walker.lastConditioned());
+    }
+
+    @Test
+    public void testWrittenWalksFollowTheLongerContext() throws Exception {
+        CustomGraph graph = ambiguousGraph(3);
+        Path file = Files.createTempFile("walks", ".txt");
+        try {
+            graph.writeRandomWalks(file.toString(), 200, 0, 7);
+            int conditioned = 0;
+            for (String walk : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+                if (walk.startsWith("alpha") || walk.startsWith("beta")) {
+                    conditioned++;
+                    assertTrue(walk, walk.equals("alpha the big dog")
+                            || walk.equals("beta the small dog"));
+                }
+            }
+            assertTrue(conditioned > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testMemoryStaysWithinTheBudget() {
+        Random random = new Random(23);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            // 分词只保留字母，用两个字母组成 26 * 26 个词
+            text.append((char) ('a' + random.nextInt(26))).append((char) ('a' + random.nextInt(26)))
+                    .append(' ');
+        }
+        CustomGraph large = CustomGraph.withOrder(3, CustomGraph.DEFAULT_NGRAM_BUDGET);
+        large.ingestText(text.toString());
+        NGramModel model = large.nGramModel();
+        assertEquals(0, model.droppedNGrams());
+        assertEquals(49_998, model.nGramCount());
+        // 两个 int 的上下文加上开放寻址表和计数表，远小于字符串键
+        assertTrue(model.summary(), model.bytesPerContext() < 64);
+
+        long budget = 64 << 10;
+        CustomGraph small = CustomGraph.withOrder(4, budget);
+        small.ingestText(text.toString());
+        NGramModel bounded = small.nGramModel();
+        assertTrue(bounded.estimatedBytes() <= budget);
+        assertTrue(bounded.droppedNGrams() > 0);
+        assertTrue(bounded.contextCount() > 0);
+        assertEquals(49_997, bounded.nGramCount());
+
+        // 查询建出的行也算在预算之内
+        for (long limit : new long[] {50_000, 400_000}) {
+            CustomGraph queried = CustomGraph.withOrder(4, limit);
+            queried.ingestText(text.toString());
+            NGramModel withRows = queried.nGramModel();
+            assertTrue(withRows.successorCount(0) > 0);
+            assertTrue(withRows.summary(), withRows.estimatedBytes() <= limit);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrderIsChecked() {
+        CustomGraph.withOrder(NGramModel.MAX_ORDER + 1, 1 << 20);
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * NextWordIndex predicts the most likely successors of a word from the bigram counts of a
+ * {@link CompactGraph}.
+ * The out-edges of every vertex are copied once, sorted by descending count (ties by target
+ * id), into the same CSR rows as the graph, so the top k successors are the first k entries
+ * of a row: a lookup is O(k) and needs neither sorting nor, with a caller's buffer, any
+ * allocation. Instances are immutable and safe to share between threads.
+ */
+public class NextWordIndex {
+
+    private static final int PARALLEL_BATCH = 1024;
+
+    private final CompactGraph graph;
+    // 与 graph.offsets 同样分行，每行按计数从大到小排列
+    private final int[] successors;
+    private final int[] counts;
+
+    public NextWordIndex(CompactGraph graph) {
+        this.graph = graph;
+        int edgeCount = graph.targets.length;
+        successors = new int[edgeCount];
+        counts = new int[edgeCount];
+        // 计数取反放在高 32 位、目标放在低 32 位，升序排序即为计数降序、目标升序
+        long[] keys = new long[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            keys[e] = (long) -graph.weights[e] << 32 | graph.targets[e];
+        }
+        for (int v = 0; v < graph.vertexCount; v++) {
+            if (graph.offsets[v + 1] - graph.offsets[v] > 1) {
+                Arrays.sort(keys, graph.offsets[v], graph.offsets[v + 1]);
+            }
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            successors[e] = (int) keys[e];
+            counts[e] = (int) -(keys[e] >> 32);
+        }
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the successor of {@code vertex} with the given rank (0 is the most frequent).
+     */
+    public int successor(int vertex, int rank) {
+        return successors[graph.offsets[vertex] + rank];
+    }
+
+    /**
+     * Returns how often {@code vertex} is followed by its successor of the given rank.
+     */
+    public int count(int vertex, int rank) {
+        return counts[graph.offsets[vertex] + rank];
+    }
+
+    /**
+     * Returns the estimated probability that {@code vertex} is followed by its successor of
+     * the given rank, i.e. the share of that bigram among the bigrams starting with the word.
+     */
+    public double probability(int vertex, int rank) {
+        return (double) count(vertex, rank) / graph.outWeight(vertex);
+    }
+
+    /**
+     * Copies the at most {@code k} most frequent successors of {@code vertex}, best first,
+     * into {@code out}.
+     *
+     * @return The number of successors copied.
+     */
+    public int predictNext(int vertex, int k, int[] out) {
+        int start = graph.offsets[vertex];
+        int count = Math.min(Math.min(k, out.length), graph.offsets[vertex + 1] - start);
+        System.arraycopy(successors, start, out, 0, count);
+        return count;
+    }
+
+    /**
+     * Returns the at most {@code k} most frequent successors of {@code vertex}, best first.
+     */
+    public int[] predictNext(int vertex, int k) {
+        int start = graph.offsets[vertex];
+        return Arrays.copyOfRange(successors, start,
+                start + Math.min(k, graph.offsets[vertex + 1] - start));
+    }
+
+    /**
+     * Predicts the successors of many words at once, in parallel for large batches.
+     *
+     * @param vertices The word ids; negative ids (unknown words) have no successors.
+     * @param k The number of successors per word.
+     * @return {@code k} slots per word in input order, padded with -1 where a word has fewer
+     *     than {@code k} successors.
+     */
+    public int[] predictNext(int[] vertices, int k) {
+        int[] result = new int[Math.multiplyExact(vertices.length, k)];
+        Arrays.fill(result, -1);
+        IntStream range = IntStream.range(0, vertices.length);
+        if (vertices.length >= PARALLEL_BATCH) {
+            range = range.parallel();
+        }
+        range.forEach(i -> {
+            int v = vertices[i];
+            if (v >= 0) {
+                int start = graph.offsets[v];
+                System.arraycopy(successors, start, result, i * k,
+                        Math.min(k, graph.offsets[v + 1] - start));
+            }
+        });
+        return result;
+    }
+}
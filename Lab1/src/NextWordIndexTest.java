@@ -0,0 +1,88 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class NextWordIndexTest {
+
+    @Test
+    public void testSuccessorsAreSortedByCount() {
+        Random random = new Random(18);
+        GraphBuilder builder = new GraphBuilder();
+        for (int v = 0; v < 200; v++) {
+            builder.addVertex("v" + v);
+        }
+        for (int i = 0; i < 3000; i++) {
+            builder.addEdge(random.nextInt(200), random.nextInt(200), 1 + random.nextInt(4));
+        }
+        CompactGraph g = builder.build();
+        NextWordIndex index = new NextWordIndex(g);
+        int[] buffer = new int[3];
+        for (int v = 0; v < g.vertexCount(); v++) {
+            int degree = g.outDegree(v);
+            long sum = 0;
+            for (int rank = 0; rank < degree; rank++) {
+                int next = index.successor(v, rank);
+                assertEquals(g.weight(v, next), index.count(v, rank));
+                sum += index.count(v, rank);
+                if (rank > 0) {
+                    int previous = index.successor(v, rank - 1);
+                    assertTrue(index.count(v, rank - 1) > index.count(v, rank)
+                            || index.count(v, rank - 1) == index.count(v, rank) && previous < next);
+                }
+            }
+            assertEquals(g.outWeight(v), sum);
+            int count = index.predictNext(v, 3, buffer);
+            assertEquals(Math.min(3, degree), count);
+            assertArrayEquals(index.predictNext(v, 3), Arrays.copyOf(buffer, count));
+        }
+    }
+
+    @Test
+    public void testBatchPredictionsArePadded() {
+        GraphBuilder builder = new GraphBuilder();
+        int the = builder.addVertex("the");
+        int cat = builder.addVertex("cat");
+        int dog = builder.addVertex("dog");
+        builder.addEdge(the, cat, 1);
+        builder.addEdge(the, dog, 3);
+        builder.addEdge(cat, the, 1);
+        NextWordIndex index = new NextWordIndex(builder.build());
+        assertArrayEquals(new int[] {dog, cat, the, -1, -1, -1, -1, -1},
+                index.predictNext(new int[] {the, cat, dog, -1}, 2));
+        assertEquals(0.75, index.probability(the, 0), 0);
+        int[] many = new int[5000];
+        int[] expected = new int[5000];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = i % 3;
+            expected[i] = i % 3 == the ? dog : i % 3 == cat ? the : -1;
+        }
+        assertArrayEquals(expected, index.predictNext(many, 1));
+    }
+
+    @Test
+    public void testCustomGraphPredictions() {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("the cat sat on the mat and the cat ran to the dog");
+        assertEquals(Arrays.asList("cat", "mat", "dog"), graph.predictNextWords("The", 5));
+        assertEquals(Collections.singletonList("cat"), graph.predictNextWords("the", 1));
+        assertEquals(Collections.emptyList(), graph.predictNextWords("dog", 3));
+        assertEquals(Collections.emptyList(), graph.predictNextWords("unicorn", 3));
+        List<List<String>> batch = graph.predictNextWordsBatch(
+                new String[] {"cat", "unicorn", "the"}, 2);
+        assertEquals(Arrays.asList(Arrays.asList("sat", "ran"), Collections.<String>emptyList(),
+                Arrays.asList("cat", "mat")), batch);
+
+        BatchQueryRunner runner = new BatchQueryRunner(graph, 1, 0);
+        assertEquals("cat mat", runner.answer("predict the 2", 1));
+        assertEquals("No words follow dog!", runner.answer("predict dog", 2));
+
+        graph.addEdge("dog", "ran");
+        assertEquals(Collections.singletonList("ran"), graph.predictNextWords("dog", 3));
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * OrderedPipeline runs tasks concurrently but hands their results to a consumer strictly in
+ * submission order.
+ * At most {@code maxInFlight} results are pending at any time: once the limit is reached,
+ * {@link #submit(Callable)} blocks the producer on the oldest task and consumes its result
+ * first, which bounds memory no matter how fast the input arrives.
+ * The pipeline itself is meant to be driven by a single producer thread.
+ *
+ * @param <T> The type of the task results.
+ */
+public class OrderedPipeline<T> {
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final ResultConsumer<T> consumer;
+    private final ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+
+    /**
+     * Receives the results in submission order.
+     *
+     * @param <T> The type of the task results.
+     */
+    public interface ResultConsumer<T> {
+        void accept(T result) throws IOException;
+    }
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param executor The executor running the tasks, or null to run them on the caller.
+     * @param maxInFlight The maximum number of submitted but not yet consumed tasks.
+     * @param consumer The consumer of the results.
+     */
+    public OrderedPipeline(ExecutorService executor, int maxInFlight, ResultConsumer<T> consumer) {
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Submits the next task, first consuming the oldest result if the pipeline is full.
+     *
+     * @throws IOException If a task or the consumer fails.
+     */
+    public void submit(Callable<T> task) throws IOException {
+        if (executor == null) {
+            consumer.accept(call(task));
+            return;
+        }
+        while (pending.size() >= maxInFlight) {
+            consumer.accept(await(pending.poll()));
+        }
+        pending.add(executor.submit(task));
+    }
+
+    /**
+     * Waits for all submitted tasks and consumes their results.
+     *
+     * @throws IOException If a task or the consumer fails.
+     */
+    public void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            consumer.accept(await(pending.poll()));
+        }
+    }
+
+    /**
+     * Cancels the tasks that have not been consumed yet.
+     */
+    public void cancel() {
+        for (Future<T> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    private static <T> T call(Callable<T> task) throws IOException {
+        try {
+            return task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a task", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
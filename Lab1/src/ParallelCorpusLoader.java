@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelCorpusLoader builds the word graph of a file on a {@link ForkJoinPool}.
+ * The file is cut into chunks on word boundaries; each chunk is tokenized into its own
+ * dictionary and edge-count table, and neighbouring partial tables are merged pairwise,
+ * adding the bigram that crosses the boundary between them.
+ * Chunks are merged left to right, so vertex ids come out in order of first appearance and
+ * the result is identical to {@link CustomGraph#ingestFile(String)}.
+ */
+public class ParallelCorpusLoader {
+
+    static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    private ParallelCorpusLoader() {
+    }
+
+    /**
+     * Streams a file into {@code builder} using {@code parallelism} threads.
+     *
+     * @return The number of bytes read.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long load(Path file, GraphBuilder builder, int parallelism) throws IOException {
+        return load(file, builder, parallelism, MIN_CHUNK_SIZE);
+    }
+
+    static long load(Path file, GraphBuilder builder, int parallelism, long minChunkSize)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size, parallelism, minChunkSize);
+            parse(channel, bounds, parallelism).mergeInto(builder);
+            return size;
+        }
+    }
+
+    /**
+     * Tokenizes a whole file into one partial table with ids local to it.
+     */
+    static Partial parse(Path file, int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, channel.size(), parallelism, MIN_CHUNK_SIZE);
+            return parse(channel, bounds, parallelism);
+        }
+    }
+
+    private static Partial parse(FileChannel channel, long[] bounds, int parallelism)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            return pool.invoke(new ChunkTask(channel, bounds, 0, bounds.length - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits {@code [0, size)} into chunks of at most one mapping window, several per thread,
+     * moving every cut forward until it no longer falls inside a word.
+     */
+    static long[] chunkBounds(FileChannel channel, long size, int parallelism, long minChunkSize)
+            throws IOException {
+        long windows = (size + CorpusTokenizer.WINDOW_SIZE - 1) / CorpusTokenizer.WINDOW_SIZE;
+        long wanted = Math.min(4L * parallelism, size / Math.max(1, minChunkSize));
+        long chunks = Math.max(1, Math.max(windows, wanted));
+        long[] bounds = new long[(int) chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        for (int i = 1; i < chunks; i++) {
+            long cut = Math.max(bounds[i - 1], size * i / chunks);
+            bounds[i] = alignToWordBoundary(channel, cut, size, probe);
+        }
+        bounds[(int) chunks] = size;
+        return bounds;
+    }
+
+    private static long alignToWordBoundary(FileChannel channel, long cut, long size,
+                                            ByteBuffer probe) throws IOException {
+        if (cut == 0 || cut >= size) {
+            return Math.min(cut, size);
+        }
+        long position = cut - 1;
+        boolean previousIsWord = false;
+        boolean first = true;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            for (int i = 0; i < read; i++) {
+                boolean isWord = isWordByte(probe.get(i));
+                if (!first && !(previousIsWord && isWord)) {
+                    return position + i;
+                }
+                first = false;
+                previousIsWord = isWord;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static boolean isWordByte(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    /**
+     * Edge counts of a contiguous range of chunks, with ids local to that range.
+     */
+    static final class Partial implements CorpusTokenizer.TokenSink {
+        final VertexDictionary dictionary = new VertexDictionary();
+        final EdgeCountTable edges = new EdgeCountTable();
+        int first = -1;
+        int last = -1;
+        long tokens;
+
+        @Override
+        public void token(byte[] buf, int off, int len) {
+            int current = dictionary.intern(buf, off, len);
+            if (last >= 0) {
+                edges.add(last, current, 1);
+            } else {
+                first = current;
+            }
+            last = current;
+            tokens++;
+        }
+
+        /**
+         * Appends the range that directly follows this one.
+         */
+        Partial append(Partial right) {
+            if (right.tokens == 0) {
+                return this;
+            }
+            if (tokens == 0) {
+                return right;
+            }
+            final int[] ids = remap(right.dictionary, dictionary);
+            edges.add(last, ids[right.first], 1);
+            right.edges.forEach((from, to, count) -> edges.add(ids[from], ids[to], count));
+            last = ids[right.last];
+            tokens += right.tokens;
+            return this;
+        }
+
+        void mergeInto(GraphBuilder builder) {
+            builder.addTokens(tokens);
+            // 与顺序构建一致：只有一个单词时不形成任何边，也不加入顶点
+            if (tokens < 2) {
+                return;
+            }
+            final int[] ids = remap(dictionary, builder.dictionary());
+            edges.forEach((from, to, count) -> builder.addEdge(ids[from], ids[to], count));
+        }
+
+        private static int[] remap(VertexDictionary from, VertexDictionary into) {
+            int[] ids = new int[from.size()];
+            for (int id = 0; id < ids.length; id++) {
+                ids[id] = into.intern(from, id);
+            }
+            return ids;
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+        private final transient FileChannel channel; // 任务从不序列化，通道只在本进程内有效
+        private final long[] bounds;
+        private final int low;
+        private final int high;
+
+        ChunkTask(FileChannel channel, long[] bounds, int low, int high) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (high - low > 1) {
+                int mid = (low + high) >>> 1;
+                ChunkTask right = new ChunkTask(channel, bounds, mid, high);
+                right.fork();
+                Partial left = new ChunkTask(channel, bounds, low, mid).compute();
+                return left.append(right.join());
+            }
+            Partial partial = new Partial();
+            long start = bounds[low];
+            long length = bounds[high] - start;
+            if (length > 0) {
+                CorpusTokenizer tokenizer = new CorpusTokenizer(partial);
+                try {
+                    tokenizer.feed(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                tokenizer.finish();
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * PartitionWorker holds one shard of a {@link PartitionedGraph}: the words that hash to it
+ * and all their out-edges. Edge targets owned by other shards are interned locally as plain
+ * words, so the shard is an ordinary {@link GraphBuilder} / {@link CompactGraph} pair.
+ * The worker answers the coordinator's requests over a socket with a binary protocol of
+ * {@link java.io.DataOutputStream} values: a request is an opcode byte and its arguments,
+ * the reply follows in the same order (see the {@code OP_} constants).
+ * Run it as {@code PartitionWorker PORT [BIND_ADDRESS]}; port 0 picks a free port, and the
+ * first line on standard output is {@code listening on PORT}. It binds to the loopback
+ * interface unless an address is given, and exits on {@link #OP_SHUTDOWN}.
+ */
+public class PartitionWorker {
+
+    /** {@code int n, n * (UTF word)}, {@code int m, m * (UTF from, UTF to, int count)}. */
+    static final byte OP_ADD = 1;
+    /** {@code UTF word} -> {@code int n, n * UTF}; n is -1 if the word is not a vertex. */
+    static final byte OP_SUCCESSORS = 2;
+    /** {@code UTF target, int n, n * UTF} -> the words among them with an edge to target. */
+    static final byte OP_PREDECESSORS_AMONG = 3;
+    /** Starts a new breadth-first search. */
+    static final byte OP_BFS_RESET = 4;
+    /**
+     * {@code UTF target, int n, n * (UTF vertex, UTF parent)} -> {@code boolean found,
+     * int m, m * (UTF child, UTF parent)}: visits the unvisited vertices and returns their
+     * out-edges.
+     */
+    static final byte OP_BFS_EXPAND = 5;
+    /** {@code UTF word} -> {@code UTF parent}, empty for the root or an unvisited word. */
+    static final byte OP_BFS_PARENT = 6;
+    /** -> {@code long vertices, long edges} of the shard. */
+    static final byte OP_STATS = 7;
+    static final byte OP_SHUTDOWN = 8;
+    static final byte OK = 0;
+
+    private final GraphBuilder builder = new GraphBuilder();
+    private final BitSet owned = new BitSet();
+    private CompactGraph graph; // 为null时表示有尚未压缩的修改
+    // 当前广度优先搜索的状态，按本地顶点编号
+    private int[] visited = new int[0];
+    private int[] emitted = new int[0];
+    private String[] parents = new String[0];
+    private int stamp;
+    private final ServerSocket server;
+
+    /**
+     * Binds the worker; call {@link #serve()} to answer requests.
+     */
+    public PartitionWorker(int port, InetAddress bindAddress) throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(bindAddress, port));
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts coordinator connections, one thread each, until a shutdown request arrives.
+     */
+    public void serve() throws IOException {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (server.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            Thread thread = new Thread(() -> handle(socket), "partition-worker");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(s.getInputStream(), 1 << 16));
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(s.getOutputStream(), 1 << 16))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return; // 协调者断开连接
+                }
+                if (op == OP_SHUTDOWN) {
+                    out.writeByte(OK);
+                    out.flush();
+                    server.close();
+                    return;
+                }
+                synchronized (this) {
+                    answer(op, in, out);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+        }
+    }
+
+    private void answer(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case OP_ADD:
+                add(in);
+                out.writeByte(OK);
+                break;
+            case OP_SUCCESSORS:
+                successors(in.readUTF(), out);
+                break;
+            case OP_PREDECESSORS_AMONG:
+                predecessorsAmong(in, out);
+                break;
+            case OP_BFS_RESET:
+                resetSearch();
+                out.writeByte(OK);
+                break;
+            case OP_BFS_EXPAND:
+                expand(in, out);
+                break;
+            case OP_BFS_PARENT:
+                int vertex = graph().id(in.readUTF());
+                out.writeUTF(vertex >= 0 && vertex < visited.length && visited[vertex] == stamp
+                        ? parents[vertex] : "");
+                break;
+            case OP_STATS:
+                out.writeLong(owned.cardinality());
+                out.writeLong(graph().edgeCount());
+                break;
+            default:
+                throw new IOException("unknown request " + op);
+        }
+    }
+
+    private void add(DataInputStream in) throws IOException {
+        graph = null;
+        int vertices = in.readInt();
+        for (int i = 0; i < vertices; i++) {
+            owned.set(builder.addVertex(in.readUTF()));
+        }
+        int edges = in.readInt();
+        for (int i = 0; i < edges; i++) {
+            int from = builder.addVertex(in.readUTF());
+            int to = builder.addVertex(in.readUTF());
+            owned.set(from);
+            builder.addEdge(from, to, in.readInt());
+        }
+    }
+
+    private CompactGraph graph() {
+        if (graph == null) {
+            graph = builder.build();
+        }
+        return graph;
+    }
+
+    private void successors(String word, DataOutputStream out) throws IOException {
+        CompactGraph g = graph();
+        int vertex = g.id(word);
+        if (vertex < 0 || !owned.get(vertex)) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(g.outDegree(vertex));
+        for (int e = g.offsets[vertex]; e < g.offsets[vertex + 1]; e++) {
+            out.writeUTF(g.word(g.targets[e]));
+        }
+    }
+
+    private void predecessorsAmong(DataInputStream in, DataOutputStream out)
+            throws IOException {
+        CompactGraph g = graph();
+        int target = g.id(in.readUTF());
+        int count = in.readInt();
+        String[] found = new String[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            String word = in.readUTF();
+            int vertex = g.id(word);
+            if (target >= 0 && vertex >= 0 && g.edgeIndex(vertex, target) >= 0) {
+                found[size++] = word;
+            }
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeUTF(found[i]);
+        }
+    }
+
+    private void resetSearch() {
+        int n = graph().vertexCount();
+        if (visited.length < n) {
+            visited = new int[n];
+            emitted = new int[n];
+            parents = new String[n];
+            stamp = 0;
+        }
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            Arrays.fill(emitted, 0);
+            stamp = 1;
+        }
+    }
+
+    private void expand(DataInputStream in, DataOutputStream out) throws IOException {
+        CompactGraph g = graph();
+        String target = in.readUTF();
+        int count = in.readInt();
+        boolean found = false;
+        int[] newlyVisited = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            String word = in.readUTF();
+            String parent = in.readUTF();
+            int vertex = g.id(word);
+            // 只有本分片的顶点会被发来；同一层里先到的父顶点有效
+            if (vertex < 0 || vertex >= visited.length || visited[vertex] == stamp) {
+                continue;
+            }
+            visited[vertex] = stamp;
+            parents[vertex] = parent;
+            newlyVisited[size++] = vertex;
+            found |= word.equals(target);
+        }
+        out.writeBoolean(found);
+        if (found) {
+            out.writeInt(0);
+            return;
+        }
+        // 每个后继在一次搜索中只发出一次：之后再发出的父顶点层数更大，不会被采用
+        int[] children = new int[16];
+        int[] childParents = new int[16];
+        int childCount = 0;
+        for (int i = 0; i < size; i++) {
+            int vertex = newlyVisited[i];
+            for (int e = g.offsets[vertex]; e < g.offsets[vertex + 1]; e++) {
+                int child = g.targets[e];
+                if (visited[child] == stamp || emitted[child] == stamp) {
+                    continue;
+                }
+                emitted[child] = stamp;
+                if (childCount == children.length) {
+                    children = Arrays.copyOf(children, 2 * childCount);
+                    childParents = Arrays.copyOf(childParents, 2 * childCount);
+                }
+                children[childCount] = child;
+                childParents[childCount++] = vertex;
+            }
+        }
+        out.writeInt(childCount);
+        for (int i = 0; i < childCount; i++) {
+            out.writeUTF(g.word(children[i]));
+            out.writeUTF(g.word(childParents[i]));
+        }
+    }
+
+    /**
+     * Starts a worker: {@code PORT [BIND_ADDRESS]}.
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        InetAddress address = args.length > 1
+                ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        PartitionWorker worker = new PartitionWorker(port, address);
+        System.out.println("listening on " + worker.port());
+        System.out.flush();
+        worker.serve();
+    }
+}
@@ -0,0 +1,465 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PartitionedGraph is the coordinator of a word graph split over several
+ * {@link PartitionWorker} processes, for corpora whose graph does not fit in one JVM.
+ * Every word belongs to the shard {@code hash(word) mod shards} ({@link #shardOf}), which
+ * stores the word and all its out-edges; the coordinator itself keeps no part of the graph.
+ * <ul>
+ *   <li>Ingestion tokenizes like {@link CustomGraph#ingestText(String)} and sends every
+ *   bigram, in batches, to the shard of its first word.</li>
+ *   <li>{@link #queryBridgeWords} asks the shard of word1 for its successors, then every
+ *   shard, at once, which of the successors it owns have an edge to word2.</li>
+ *   <li>{@link #calcShortestPath} is a level-synchronous breadth-first search: each level's
+ *   frontier is grouped by shard and sent to all shards at once, which mark their vertices
+ *   visited, remember the parent and return the next frontier. The path is read back from
+ *   the parents once the target is reached.</li>
+ * </ul>
+ * Requests to the shards of one step are written to every socket before any reply is read,
+ * so the workers run them in parallel without a thread per shard. Instances are not thread
+ * safe.
+ */
+public class PartitionedGraph implements AutoCloseable {
+
+    static final int BATCH_EDGES = 8192;
+
+    private final Shard[] shards;
+
+    /**
+     * Connects to running workers; the order of the addresses defines the sharding, so it must
+     * be the same whenever the same workers are used.
+     *
+     * @throws IOException If a worker cannot be reached.
+     */
+    public PartitionedGraph(List<InetSocketAddress> workers) throws IOException {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("at least one worker is needed");
+        }
+        shards = new Shard[workers.size()];
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new Shard(workers.get(i));
+            }
+        } catch (IOException e) {
+            closeShards(shards);
+            throw e;
+        }
+    }
+
+    /**
+     * One worker connection, with the bigrams waiting to be sent to it.
+     */
+    private static final class Shard {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final List<String> vertices = new ArrayList<>();
+        private final List<String> edges = new ArrayList<>(); // from, to 交替存放
+
+        Shard(InetSocketAddress address) throws IOException {
+            socket = new Socket();
+            socket.connect(address);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        }
+
+        void flushEdges() throws IOException {
+            if (vertices.isEmpty() && edges.isEmpty()) {
+                return;
+            }
+            out.writeByte(PartitionWorker.OP_ADD);
+            writeWords(out, vertices);
+            out.writeInt(edges.size() / 2);
+            for (int i = 0; i < edges.size(); i += 2) {
+                out.writeUTF(edges.get(i));
+                out.writeUTF(edges.get(i + 1));
+                out.writeInt(1);
+            }
+            out.flush();
+            vertices.clear();
+            edges.clear();
+            expectOk(in);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the shard owning {@code word}. {@link String#hashCode()} is specified, so every
+     * coordinator assigns a word to the same shard.
+     */
+    public int shardOf(String word) {
+        int hash = word.hashCode() * 0x9E3779B9; // 打散相近的散列值
+        return Math.floorMod(hash ^ hash >>> 16, shards.length);
+    }
+
+    /**
+     * Adds the bigrams of a text, as {@link CustomGraph#ingestText(String)} does.
+     *
+     * @return The number of words.
+     * @throws IOException If a worker fails.
+     */
+    public long ingestText(String text) throws IOException {
+        IngestSink sink = new IngestSink();
+        CorpusTokenizer tokenizer = new CorpusTokenizer(sink);
+        tokenizer.feed(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        tokenizer.finish();
+        return sink.finish();
+    }
+
+    /**
+     * Streams the bigrams of a file to the workers.
+     *
+     * @return The number of bytes read.
+     * @throws IOException If the file cannot be read or a worker fails.
+     */
+    public long ingestFile(Path file) throws IOException {
+        IngestSink sink = new IngestSink();
+        long bytes = CorpusTokenizer.tokenizeFile(file, sink);
+        sink.finish();
+        return bytes;
+    }
+
+    /**
+     * Routes every bigram to the shard of its first word, and registers the second word with
+     * its own shard so that words without out-edges are vertices too.
+     */
+    private final class IngestSink implements CorpusTokenizer.TokenSink {
+        private String previous;
+        private long words;
+        private IOException failure;
+
+        @Override
+        public void token(byte[] buf, int off, int len) {
+            String word = new String(buf, off, len, StandardCharsets.US_ASCII);
+            words++;
+            if (failure != null) {
+                return;
+            }
+            try {
+                if (previous != null) {
+                    Shard from = shards[shardOf(previous)];
+                    Shard to = shards[shardOf(word)];
+                    from.edges.add(previous);
+                    from.edges.add(word);
+                    to.vertices.add(word);
+                    if (from.edges.size() >= 2 * BATCH_EDGES) {
+                        from.flushEdges();
+                    }
+                    if (to.vertices.size() >= BATCH_EDGES) {
+                        to.flushEdges();
+                    }
+                }
+            } catch (IOException e) {
+                failure = e; // 分词接口不能抛出受检异常
+            }
+            previous = word;
+        }
+
+        long finish() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            for (Shard shard : shards) {
+                shard.flushEdges();
+            }
+            return words;
+        }
+    }
+
+    /**
+     * Returns the bridge words from word1 to word2 in alphabetical order.
+     *
+     * @throws IOException If a worker fails.
+     */
+    public List<String> queryBridgeWordList(String word1, String word2) throws IOException {
+        word1 = word1.toLowerCase(Locale.ROOT);
+        word2 = word2.toLowerCase(Locale.ROOT);
+        Shard first = shards[shardOf(word1)];
+        first.out.writeByte(PartitionWorker.OP_SUCCESSORS);
+        first.out.writeUTF(word1);
+        first.out.flush();
+        List<String> successors = readWords(first.in);
+        if (successors == null || successors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<String>> byShard = groupByShard(successors);
+        for (int s = 0; s < shards.length; s++) {
+            if (!byShard.get(s).isEmpty()) {
+                shards[s].out.writeByte(PartitionWorker.OP_PREDECESSORS_AMONG);
+                shards[s].out.writeUTF(word2);
+                writeWords(shards[s].out, byShard.get(s));
+                shards[s].out.flush();
+            }
+        }
+        List<String> bridges = new ArrayList<>();
+        for (int s = 0; s < shards.length; s++) {
+            if (!byShard.get(s).isEmpty()) {
+                bridges.addAll(readWords(shards[s].in));
+            }
+        }
+        Collections.sort(bridges);
+        return bridges;
+    }
+
+    /**
+     * Returns the bridge words from word1 to word2, formatted like
+     * {@code CustomGraph.queryBridgeWords}.
+     *
+     * @throws IOException If a worker fails.
+     */
+    public String queryBridgeWords(String word1, String word2) throws IOException {
+        List<String> bridges = queryBridgeWordList(word1, word2);
+        if (bridges.isEmpty()) {
+            return "No bridge words from " + word1.toLowerCase(Locale.ROOT) + " to "
+                    + word2.toLowerCase(Locale.ROOT) + "!";
+        }
+        return String.join(" ", bridges);
+    }
+
+    /**
+     * Returns a path with the fewest edges from word1 to word2, or null if there is none.
+     *
+     * @throws IOException If a worker fails.
+     */
+    public List<String> shortestPath(String word1, String word2) throws IOException {
+        String source = word1.toLowerCase(Locale.ROOT);
+        String target = word2.toLowerCase(Locale.ROOT);
+        for (Shard shard : shards) {
+            shard.out.writeByte(PartitionWorker.OP_BFS_RESET);
+            shard.out.flush();
+        }
+        for (Shard shard : shards) {
+            expectOk(shard.in);
+        }
+        // 每个分片本层要访问的顶点及其父顶点；同一顶点只发送第一次出现的父顶点
+        List<Map<String, String>> frontier = new ArrayList<>();
+        for (int s = 0; s < shards.length; s++) {
+            frontier.add(new LinkedHashMap<>());
+        }
+        frontier.get(shardOf(source)).put(source, "");
+        boolean found = false;
+        boolean empty = false;
+        while (!found && !empty) {
+            for (int s = 0; s < shards.length; s++) {
+                Map<String, String> level = frontier.get(s);
+                if (!level.isEmpty()) {
+                    DataOutputStream out = shards[s].out;
+                    out.writeByte(PartitionWorker.OP_BFS_EXPAND);
+                    out.writeUTF(target);
+                    out.writeInt(level.size());
+                    for (Map.Entry<String, String> entry : level.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeUTF(entry.getValue());
+                    }
+                    out.flush();
+                }
+            }
+            List<Map<String, String>> next = new ArrayList<>();
+            for (int s = 0; s < shards.length; s++) {
+                next.add(new LinkedHashMap<>());
+            }
+            empty = true;
+            for (int s = 0; s < shards.length; s++) {
+                if (frontier.get(s).isEmpty()) {
+                    continue;
+                }
+                DataInputStream in = shards[s].in;
+                found |= in.readBoolean();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String child = in.readUTF();
+                    String parent = in.readUTF();
+                    next.get(shardOf(child)).putIfAbsent(child, parent);
+                    empty = false;
+                }
+            }
+            frontier = next;
+        }
+        if (!found) {
+            return null;
+        }
+        List<String> path = new ArrayList<>();
+        for (String word = target; !word.isEmpty(); word = parent(word)) {
+            path.add(word);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private String parent(String word) throws IOException {
+        Shard shard = shards[shardOf(word)];
+        shard.out.writeByte(PartitionWorker.OP_BFS_PARENT);
+        shard.out.writeUTF(word);
+        shard.out.flush();
+        return shard.in.readUTF();
+    }
+
+    /**
+     * Returns a path with the fewest edges, formatted like
+     * {@link CustomGraph#calcShortestPath(String, String)}.
+     *
+     * @throws IOException If a worker fails.
+     */
+    public String calcShortestPath(String word1, String word2) throws IOException {
+        List<String> path = shortestPath(word1, word2);
+        if (path == null) {
+            return "No path from " + word1.toLowerCase(Locale.ROOT) + " to "
+                    + word2.toLowerCase(Locale.ROOT);
+        }
+        return String.join(" -> ", path);
+    }
+
+    /**
+     * Returns the number of vertices and edges over all shards.
+     *
+     * @throws IOException If a worker fails.
+     */
+    public long[] counts() throws IOException {
+        for (Shard shard : shards) {
+            shard.out.writeByte(PartitionWorker.OP_STATS);
+            shard.out.flush();
+        }
+        long[] counts = new long[2];
+        for (Shard shard : shards) {
+            counts[0] += shard.in.readLong();
+            counts[1] += shard.in.readLong();
+        }
+        return counts;
+    }
+
+    /**
+     * Asks every worker to exit; the connections are closed.
+     *
+     * @throws IOException If a worker cannot be reached.
+     */
+    public void shutdownWorkers() throws IOException {
+        for (Shard shard : shards) {
+            shard.out.writeByte(PartitionWorker.OP_SHUTDOWN);
+            shard.out.flush();
+        }
+        for (Shard shard : shards) {
+            expectOk(shard.in);
+        }
+        close();
+    }
+
+    @Override
+    public void close() {
+        closeShards(shards);
+    }
+
+    private static void closeShards(Shard[] shards) {
+        for (Shard shard : shards) {
+            if (shard != null) {
+                try {
+                    shard.socket.close();
+                } catch (IOException e) {
+                    // 关闭失败时连接已不可用，忽略
+                }
+            }
+        }
+    }
+
+    private List<List<String>> groupByShard(List<String> words) {
+        List<List<String>> groups = new ArrayList<>();
+        for (int s = 0; s < shards.length; s++) {
+            groups.add(new ArrayList<>());
+        }
+        for (String word : words) {
+            groups.get(shardOf(word)).add(word);
+        }
+        return groups;
+    }
+
+    private static void writeWords(DataOutputStream out, List<String> words) throws IOException {
+        out.writeInt(words.size());
+        for (String word : words) {
+            out.writeUTF(word);
+        }
+    }
+
+    /**
+     * Reads a word list, or returns null for the count -1.
+     */
+    private static List<String> readWords(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(in.readUTF());
+        }
+        return words;
+    }
+
+    private static void expectOk(DataInputStream in) throws IOException {
+        if (in.readByte() != PartitionWorker.OK) {
+            throw new IOException("unexpected reply from worker");
+        }
+    }
+
+    /**
+     * Ingests a text file into running workers, then answers {@code bridge W1 W2} and
+     * {@code path W1 W2} lines from standard input:
+     * {@code HOST:PORT[,HOST:PORT...] TEXT_FILE}.
+     *
+     * @param args The command line arguments.
+     * @throws IOException If a worker fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PartitionedGraph HOST:PORT[,HOST:PORT...] TEXT_FILE");
+            return;
+        }
+        List<InetSocketAddress> workers = new ArrayList<>();
+        for (String address : args[0].split(",")) {
+            int colon = address.lastIndexOf(':');
+            workers.add(new InetSocketAddress(address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1))));
+        }
+        try (PartitionedGraph graph = new PartitionedGraph(workers)) {
+            long start = System.nanoTime();
+            graph.ingestFile(Paths.get(args[1]));
+            long[] counts = graph.counts();
+            System.out.printf("Loaded %d words and %d edges on %d workers in %d ms.%n",
+                    counts[0], counts[1], workers.size(), (System.nanoTime() - start) / 1_000_000);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 3 && parts[0].equals("bridge")) {
+                    System.out.println(graph.queryBridgeWords(parts[1], parts[2]));
+                } else if (parts.length == 3 && parts[0].equals("path")) {
+                    System.out.println(graph.calcShortestPath(parts[1], parts[2]));
+                } else if (!parts[0].isEmpty()) {
+                    System.out.println("Usage: bridge W1 W2 | path W1 W2");
+                }
+            }
+        }
+    }
+}
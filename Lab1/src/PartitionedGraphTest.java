@@ -0,0 +1,137 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PartitionedGraphTest {
+
+    /**
+     * Starts {@code count} worker processes on free loopback ports.
+     */
+    private static List<Process> startWorkers(int count, List<InetSocketAddress> addresses)
+            throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java";
+        List<Process> workers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    "PartitionWorker", "0").redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+        for (Process worker : workers) {
+            BufferedReader out = new BufferedReader(
+                    new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8));
+            String line = out.readLine();
+            assertTrue(line, line.startsWith("listening on "));
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(line.substring("listening on ".length()))));
+        }
+        return workers;
+    }
+
+    private static String randomText(Random random, int words, int vocabulary) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append('w').append((char) ('a' + random.nextInt(26)))
+                    .append(random.nextInt(vocabulary / 26 + 1)).append(i % 17 == 0 ? ". " : " ");
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testShardedQueriesMatchTheLocalGraph() throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        List<Process> workers = startWorkers(3, addresses);
+        try (PartitionedGraph partitioned = new PartitionedGraph(addresses)) {
+            CustomGraph local = new CustomGraph();
+            Random random = new Random(20);
+            for (int doc = 0; doc < 5; doc++) {
+                String text = randomText(random, 2000, 300);
+                assertEquals(local.ingestText(text), partitioned.ingestText(text));
+            }
+            CompactGraph g = local.graph();
+            assertArrayEquals(new long[] {g.vertexCount(), g.edgeCount()}, partitioned.counts());
+
+            for (int i = 0; i < 200; i++) {
+                String word1 = g.word(random.nextInt(g.vertexCount()));
+                String word2 = g.word(random.nextInt(g.vertexCount()));
+                List<String> bridges = new ArrayList<>(local.queryBridgeWordList(word1, word2));
+                bridges.sort(null);
+                assertEquals(bridges, partitioned.queryBridgeWordList(word1, word2));
+
+                // 最短路径可能不唯一，比较长度并检查每条边
+                int[] expected = local.shortestPathIds(word1, word2, PathMode.HOPS, false);
+                List<String> path = partitioned.shortestPath(word1, word2);
+                if (expected == null) {
+                    assertNull(path);
+                    continue;
+                }
+                assertEquals(expected.length, path.size());
+                assertEquals(word1, path.get(0));
+                assertEquals(word2, path.get(path.size() - 1));
+                for (int j = 0; j + 1 < path.size(); j++) {
+                    assertTrue(g.weight(g.id(path.get(j)), g.id(path.get(j + 1))) > 0);
+                }
+            }
+            assertEquals("No bridge words from unicorn to wa0!",
+                    partitioned.queryBridgeWords("Unicorn", "wa0"));
+            assertEquals("No path from unicorn to wa0",
+                    partitioned.calcShortestPath("unicorn", "wa0"));
+            partitioned.shutdownWorkers();
+        } finally {
+            for (Process worker : workers) {
+                if (!worker.waitFor(10, TimeUnit.SECONDS)) {
+                    worker.destroyForcibly();
+                }
+            }
+        }
+        for (Process worker : workers) {
+            assertEquals(0, worker.exitValue());
+        }
+    }
+
+    @Test
+    public void testShardingIsStable() throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        PartitionWorker worker = new PartitionWorker(0, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> {
+            try {
+                worker.serve();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        for (int i = 0; i < 4; i++) {
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.port()));
+        }
+        // 同一工作进程可以充当多个分片，用来检查分片的分布
+        try (PartitionedGraph graph = new PartitionedGraph(addresses)) {
+            int[] sizes = new int[4];
+            for (int i = 0; i < 4000; i++) {
+                sizes[graph.shardOf("word" + i)]++;
+            }
+            for (int size : sizes) {
+                assertTrue(size > 800 && size < 1200);
+            }
+            assertEquals(graph.shardOf("the"), graph.shardOf(new String("the")));
+            graph.ingestText("the cat sat on the mat");
+            assertEquals("on", graph.queryBridgeWords("sat", "the"));
+            assertEquals("the -> cat -> sat", graph.calcShortestPath("the", "sat"));
+            graph.shutdownWorkers();
+        }
+        thread.join(10_000);
+    }
+}
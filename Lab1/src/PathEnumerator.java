@@ -0,0 +1,426 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * PathEnumerator lists alternative routes between two vertices of a {@link CompactGraph}:
+ * <ul>
+ *   <li>{@link #kShortestPaths}: the {@code k} shortest loopless paths in order of length
+ *   (Yen's algorithm), each later path found by deviating from an earlier one;</li>
+ *   <li>{@link #allShortestPaths}: every path whose length equals the shortest one, walked
+ *   depth-first along the edges that keep a path shortest.</li>
+ * </ul>
+ * Paths are produced lazily by a {@link Paths} iterator, so the work done is proportional
+ * to the paths actually consumed. Both enumerations stop at a path limit and a time limit:
+ * Yen's algorithm keeps at most {@code k} found paths and {@code k} candidates, and the
+ * depth-first walk only keeps the current path, so a pair with a combinatorial number of
+ * ties cannot exhaust the heap.
+ * An enumerator is not thread-safe; use one per thread.
+ */
+public class PathEnumerator {
+
+    private final CompactGraph graph;
+    private final ShortestPathEngine.Side side;
+    private final int[] blocked; // 等于 generation 的顶点在本次支路搜索中不可经过
+    private int generation;
+
+    public PathEnumerator(CompactGraph graph) {
+        this.graph = graph;
+        this.side = new ShortestPathEngine.Side(graph.vertexCount);
+        this.blocked = new int[graph.vertexCount];
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * A lazy sequence of paths, each an array of vertex ids from the source to the target.
+     */
+    public abstract static class Paths implements Iterator<int[]> {
+        private final long timeLimitNanos;
+        private long deadline;
+        private boolean started;
+        private int[] next;
+        private boolean done;
+        private boolean timedOut;
+        private double lastLength = Double.NaN;
+        private double nextLength;
+
+        Paths(long timeLimitNanos) {
+            this.timeLimitNanos = timeLimitNanos;
+        }
+
+        /**
+         * Computes the next path and stores its length with {@link #found}, or returns null
+         * when there is none.
+         */
+        abstract int[] compute();
+
+        final void found(double length) {
+            nextLength = length;
+        }
+
+        final boolean expired() {
+            if (!started) {
+                // 时限从第一次取路径时开始计算，而不是从创建时
+                started = true;
+                long now = System.nanoTime();
+                // 溢出时视为不限时
+                deadline = now + timeLimitNanos < now ? Long.MAX_VALUE : now + timeLimitNanos;
+            }
+            if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                timedOut = true;
+            }
+            return timedOut;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = expired() ? null : compute();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int[] path = next;
+            next = null;
+            lastLength = nextLength;
+            return path;
+        }
+
+        /**
+         * Returns the length, in the enumeration's path mode, of the path last returned by
+         * {@link #next()}.
+         */
+        public double lastLength() {
+            return lastLength;
+        }
+
+        /**
+         * Returns whether the enumeration ended because its time limit ran out rather than
+         * because the paths (or the requested number of them) were exhausted.
+         */
+        public boolean timedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Returns the remaining paths as a sequential stream.
+         */
+        public Stream<int[]> stream() {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false);
+        }
+    }
+
+    /**
+     * Enumerates the {@code k} shortest loopless paths from {@code source} to {@code target}
+     * in order of length; equally long paths come in an unspecified but repeatable order.
+     * Every path after the first costs one A* search per vertex of the path it deviates
+     * from, guided by the exact distances to the target in the whole graph.
+     *
+     * @param k The maximum number of paths.
+     * @param timeLimitNanos The time, counted from the first {@link Paths#hasNext()}, after
+     *                       which no further path is produced.
+     */
+    public Paths kShortestPaths(int source, int target, PathMode mode, int k,
+                                long timeLimitNanos) {
+        return new YenPaths(source, target, mode, k, timeLimitNanos);
+    }
+
+    /**
+     * Enumerates every shortest path from {@code source} to {@code target}, at most
+     * {@code limit} of them, in lexicographic order of their ids.
+     *
+     * @param limit The maximum number of paths.
+     * @param timeLimitNanos The time, counted from the first {@link Paths#hasNext()}, after
+     *                       which no further path is produced.
+     */
+    public Paths allShortestPaths(int source, int target, PathMode mode, int limit,
+                                  long timeLimitNanos) {
+        return new TiedPaths(source, target, mode, limit, timeLimitNanos);
+    }
+
+    /**
+     * Returns the length of {@code path} in {@code mode}, summing its edges in order so that
+     * the same path always gets exactly the same length.
+     */
+    double length(int[] path, PathMode mode) {
+        double length = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            length += mode.cost(graph, path[i], graph.edgeIndex(path[i], path[i + 1]));
+        }
+        return length;
+    }
+
+    /**
+     * Runs a backward search from {@code target} and returns the distance of every vertex to
+     * it, infinity where the target is unreachable. If {@code stop} is a vertex, the search
+     * ends once every vertex no farther from the target than {@code stop} is settled, and
+     * the vertices beyond are given infinity too.
+     */
+    private double[] distancesTo(int target, PathMode mode, int stop) {
+        CompactGraph.InEdges in = graph.inEdges();
+        double bound = Double.POSITIVE_INFINITY;
+        side.reset();
+        side.reach(target, 0, -1);
+        while (!side.heap.isEmpty() && side.heap.minKey() <= bound) {
+            int u = side.heap.poll();
+            if (u == stop) {
+                bound = side.dist[u] + tolerance(side.dist[u]);
+            }
+            for (int i = in.offsets[u]; i < in.offsets[u + 1]; i++) {
+                int v = in.sources[i];
+                side.relax(v, side.dist[u] + mode.cost(graph, v, in.edges[i]), u);
+            }
+        }
+        side.heap.clear();
+        double[] dist = new double[graph.vertexCount];
+        for (int v = 0; v < dist.length; v++) {
+            dist[v] = side.isReached(v) && side.dist[v] <= bound
+                    ? side.dist[v] : Double.POSITIVE_INFINITY;
+        }
+        return dist;
+    }
+
+    /**
+     * Returns how far two sums of edge costs near {@code length} may differ by rounding
+     * alone; only {@link PathMode#FREQUENCY} costs are not whole numbers.
+     */
+    private static double tolerance(double length) {
+        return 1e-9 * Math.max(1, length);
+    }
+
+    /**
+     * Finds a shortest path from {@code spur} to {@code target} that avoids the vertices of
+     * {@code root} before the spur and the edges from the spur to {@code bannedNext}.
+     * {@code toTarget} holds the distances to the target without these restrictions, which
+     * are a consistent A* estimate; vertices that cannot reach the target are never queued.
+     *
+     * @return The ids along the path, or null if there is none.
+     */
+    private int[] spurPath(int[] root, int spurIndex, int[] bannedNext, int bannedCount,
+                           int target, PathMode mode, double[] toTarget) {
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(blocked, 0);
+            generation = 1;
+        }
+        for (int i = 0; i < spurIndex; i++) {
+            blocked[root[i]] = generation;
+        }
+        int spur = root[spurIndex];
+        side.reset();
+        side.reach(spur, 0, -1, toTarget[spur]);
+        while (!side.heap.isEmpty()) {
+            int u = side.heap.poll();
+            if (u == target) {
+                side.heap.clear();
+                return side.path(target);
+            }
+            double base = side.dist[u];
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int v = graph.targets[e];
+                if (blocked[v] == generation || toTarget[v] == Double.POSITIVE_INFINITY
+                        || u == spur && contains(bannedNext, bannedCount, v)) {
+                    continue;
+                }
+                side.relax(v, base + mode.cost(graph, u, e), u, toTarget[v]);
+            }
+        }
+        return null;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A candidate path of Yen's algorithm.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final int[] path;
+        final double length;
+
+        Candidate(int[] path, double length) {
+            this.path = path;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int order = Double.compare(length, other.length);
+            return order != 0 ? order : Arrays.compare(path, other.path);
+        }
+    }
+
+    private final class YenPaths extends Paths {
+        private final int source;
+        private final int target;
+        private final PathMode mode;
+        private final int k;
+        private final List<int[]> found = new ArrayList<>();
+        // 按长度排序并去重；只保留还可能被输出的前 k - found.size() 个
+        private final TreeSet<Candidate> candidates = new TreeSet<>();
+        private double[] toTarget;
+
+        YenPaths(int source, int target, PathMode mode, int k, long timeLimitNanos) {
+            super(timeLimitNanos);
+            this.source = source;
+            this.target = target;
+            this.mode = mode;
+            this.k = k;
+        }
+
+        @Override
+        int[] compute() {
+            if (found.size() >= k) {
+                return null;
+            }
+            if (found.isEmpty()) {
+                toTarget = distancesTo(target, mode, -1);
+                if (toTarget[source] == Double.POSITIVE_INFINITY) {
+                    return null;
+                }
+                int[] first = spurPath(new int[] {source}, 0, null, 0, target, mode, toTarget);
+                return accept(new Candidate(first, length(first, mode)));
+            }
+            int[] previous = found.get(found.size() - 1);
+            int[] banned = new int[found.size()];
+            for (int i = 0; i + 1 < previous.length; i++) {
+                if (expired()) {
+                    // 本轮偏离未完成，候选集不完整，不能再按顺序输出
+                    return null;
+                }
+                // 与 previous 有相同前缀的已找到路径，其下一条边都不能再走
+                int bannedCount = 0;
+                for (int[] path : found) {
+                    if (path.length > i + 1 && Arrays.equals(path, 0, i + 1, previous, 0, i + 1)) {
+                        banned[bannedCount++] = path[i + 1];
+                    }
+                }
+                int[] spur = spurPath(previous, i, banned, bannedCount, target, mode, toTarget);
+                if (spur == null) {
+                    continue;
+                }
+                int[] path = Arrays.copyOf(previous, i + spur.length);
+                System.arraycopy(spur, 0, path, i, spur.length);
+                candidates.add(new Candidate(path, length(path, mode)));
+                while (candidates.size() > k - found.size()) {
+                    candidates.pollLast();
+                }
+            }
+            Candidate best = candidates.pollFirst();
+            return best == null ? null : accept(best);
+        }
+
+        private int[] accept(Candidate candidate) {
+            found.add(candidate.path);
+            found(candidate.length);
+            return candidate.path;
+        }
+    }
+
+    private final class TiedPaths extends Paths {
+        private final int source;
+        private final int target;
+        private final PathMode mode;
+        private final int limit;
+        private double[] toTarget;
+        private double tolerance;
+        private int count;
+        // 深度优先的当前路径，以及每层下一条要尝试的出边
+        private int[] path;
+        private int[] nextEdge;
+        private int depth = -1;
+
+        TiedPaths(int source, int target, PathMode mode, int limit, long timeLimitNanos) {
+            super(timeLimitNanos);
+            this.source = source;
+            this.target = target;
+            this.mode = mode;
+            this.limit = limit;
+        }
+
+        @Override
+        int[] compute() {
+            if (count >= limit) {
+                return null;
+            }
+            if (toTarget == null) {
+                // 只需要离目标不比起点更远的顶点
+                toTarget = distancesTo(target, mode, source);
+                if (toTarget[source] == Double.POSITIVE_INFINITY) {
+                    return null;
+                }
+                tolerance = tolerance(toTarget[source]);
+                path = new int[16];
+                nextEdge = new int[16];
+                push(source);
+            }
+            while (depth >= 0) {
+                if (expired()) {
+                    return null;
+                }
+                int u = path[depth];
+                if (u == target) {
+                    int[] result = Arrays.copyOf(path, depth + 1);
+                    depth--;
+                    count++;
+                    found(toTarget[source]);
+                    return result;
+                }
+                int e = nextEdge[depth]++;
+                if (e == graph.offsets[u + 1]) {
+                    depth--;
+                    continue;
+                }
+                int v = graph.targets[e];
+                double cost = mode.cost(graph, u, e);
+                // 只沿仍保持最短的边前进；只有零代价的边可能绕回路径上的顶点
+                if (Math.abs(cost + toTarget[v] - toTarget[u]) <= tolerance
+                        && (cost > 0 || !onPath(v))) {
+                    push(v);
+                }
+            }
+            return null;
+        }
+
+        private void push(int v) {
+            if (++depth == path.length) {
+                path = Arrays.copyOf(path, 2 * depth);
+                nextEdge = Arrays.copyOf(nextEdge, 2 * depth);
+            }
+            path[depth] = v;
+            nextEdge[depth] = graph.offsets[v];
+        }
+
+        private boolean onPath(int v) {
+            for (int i = 0; i <= depth; i++) {
+                if (path[i] == v) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class PathEnumeratorTest {
+
+    private static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+
+    private static CompactGraph randomGraph(long seed, int vertices, int edges) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder();
+        for (int v = 0; v < vertices; v++) {
+            builder.addVertex("v" + v);
+        }
+        for (int i = 0; i < edges; i++) {
+            builder.addEdge(random.nextInt(vertices), random.nextInt(vertices),
+                    1 + random.nextInt(3));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Lists every loopless path from source to target by brute force.
+     */
+    private static void simplePaths(CompactGraph g, int[] path, int depth, int target,
+                                    List<int[]> out) {
+        int u = path[depth];
+        if (u == target) {
+            out.add(Arrays.copyOf(path, depth + 1));
+            return;
+        }
+        for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+            int v = g.targets[e];
+            boolean seen = false;
+            for (int i = 0; i <= depth; i++) {
+                seen |= path[i] == v;
+            }
+            if (!seen) {
+                path[depth + 1] = v;
+                simplePaths(g, path, depth + 1, target, out);
+            }
+        }
+    }
+
+    private static void assertValid(CompactGraph g, int[] path, int source, int target) {
+        assertEquals(source, path[0]);
+        assertEquals(target, path[path.length - 1]);
+        assertEquals(path.length, Arrays.stream(path).distinct().count());
+        for (int i = 0; i + 1 < path.length; i++) {
+            assertTrue(g.edgeIndex(path[i], path[i + 1]) >= 0);
+        }
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        CompactGraph g = randomGraph(21, 12, 40);
+        PathEnumerator enumerator = new PathEnumerator(g);
+        for (PathMode mode : PathMode.values()) {
+            for (int source = 0; source < 12; source++) {
+                for (int target = 0; target < 12; target += 3) {
+                    List<int[]> all = new ArrayList<>();
+                    int[] start = new int[12];
+                    start[0] = source;
+                    simplePaths(g, start, 0, target, all);
+                    double[] lengths = all.stream().mapToDouble(p -> enumerator.length(p, mode))
+                            .sorted().toArray();
+
+                    // K 条最短路径：长度序列与穷举一致，且互不相同
+                    PathEnumerator.Paths paths =
+                            enumerator.kShortestPaths(source, target, mode, 8, NO_TIME_LIMIT);
+                    Set<String> distinct = new HashSet<>();
+                    int count = 0;
+                    double previous = 0;
+                    while (paths.hasNext()) {
+                        int[] path = paths.next();
+                        assertValid(g, path, source, target);
+                        assertTrue(distinct.add(Arrays.toString(path)));
+                        assertEquals(lengths[count], paths.lastLength(), 1e-9);
+                        assertTrue(paths.lastLength() >= previous - 1e-9);
+                        previous = paths.lastLength();
+                        count++;
+                    }
+                    assertEquals(Math.min(8, lengths.length), count);
+                    assertFalse(paths.timedOut());
+
+                    // 所有最短路径：按编号的字典序，与穷举结果完全相同
+                    List<int[]> tied = all.stream()
+                            .filter(p -> enumerator.length(p, mode) <= lengths[0] + 1e-9)
+                            .sorted(Arrays::compare).collect(Collectors.toList());
+                    List<int[]> found = enumerator.allShortestPaths(source, target, mode,
+                            Integer.MAX_VALUE, NO_TIME_LIMIT).stream()
+                            .collect(Collectors.toList());
+                    assertEquals(tied.size(), found.size());
+                    for (int i = 0; i < tied.size(); i++) {
+                        assertArrayEquals(tied.get(i), found.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCombinatorialTiesAreBounded() {
+        // 30 层、每层两个顶点的梯子：2^30 条同样短的路径
+        GraphBuilder builder = new GraphBuilder();
+        int source = builder.addVertex("s");
+        int[] previous = {source};
+        for (int layer = 0; layer < 30; layer++) {
+            int[] current = {builder.addVertex("a" + layer), builder.addVertex("b" + layer)};
+            for (int from : previous) {
+                for (int to : current) {
+                    builder.addEdge(from, to);
+                }
+            }
+            previous = current;
+        }
+        int target = builder.addVertex("t");
+        for (int from : previous) {
+            builder.addEdge(from, target);
+        }
+        CompactGraph g = builder.build();
+        PathEnumerator enumerator = new PathEnumerator(g);
+        PathEnumerator.Paths tied =
+                enumerator.allShortestPaths(source, target, PathMode.HOPS, 1000, NO_TIME_LIMIT);
+        assertEquals(1000, tied.stream().count());
+        assertEquals(31, tied.lastLength(), 0);
+        assertFalse(tied.timedOut());
+
+        List<int[]> shortest = enumerator.kShortestPaths(source, target, PathMode.HOPS, 50,
+                NO_TIME_LIMIT).stream().collect(Collectors.toList());
+        assertEquals(50, shortest.size());
+        assertEquals(50, shortest.stream().map(Arrays::toString).distinct().count());
+        assertTrue(shortest.stream().allMatch(path -> path.length == 32));
+
+        // 时间用完时不再产生路径
+        PathEnumerator.Paths expired =
+                enumerator.allShortestPaths(source, target, PathMode.HOPS, 1000, 0);
+        assertFalse(expired.hasNext());
+        assertTrue(expired.timedOut());
+    }
+
+    @Test
+    public void testTimeLimitStartsWhenConsumed() throws InterruptedException {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("the cat sat on the mat and the dog sat on the rug");
+        CompactGraph g = graph.graph();
+        PathEnumerator.Paths paths = new PathEnumerator(g).kShortestPaths(g.id("the"),
+                g.id("sat"), PathMode.HOPS, 3, 50_000_000L);
+        // 创建后迟迟不取路径也不会超时
+        Thread.sleep(100);
+        assertEquals(2, paths.stream().count());
+        assertFalse(paths.timedOut());
+
+        CustomGraph.AlternativePaths listed =
+                graph.alternativePaths("the", "sat", PathMode.HOPS, 3, false);
+        assertEquals(2, listed.paths.size());
+        assertEquals(graph.queryAlternativePaths("the", "sat", PathMode.HOPS, 3, false),
+                listed.toString());
+    }
+
+    @Test
+    public void testCustomGraphAlternatives() {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("the cat sat on the mat and the dog sat on the rug");
+        // 与 calcShortestPath 一样，等长时取编号较大的前驱
+        assertEquals(Arrays.asList("the", "dog", "sat"),
+                graph.kShortestPaths("The", "sat", PathMode.HOPS, 1).findFirst().get());
+        List<List<String>> tied = graph.allShortestPaths("the", "sat", PathMode.HOPS, 10)
+                .sorted(Comparator.comparing(List::toString)).collect(Collectors.toList());
+        assertEquals(Arrays.asList(Arrays.asList("the", "cat", "sat"),
+                Arrays.asList("the", "dog", "sat")), tied);
+        // 不经过重复顶点的路径只有两条
+        assertEquals("1. the -> dog -> sat (length 2)\n2. the -> cat -> sat (length 2)",
+                graph.queryAlternativePaths("the", "sat", PathMode.HOPS, 3, false));
+        assertEquals("No path from the to unicorn",
+                graph.queryAlternativePaths("the", "unicorn", PathMode.HOPS, 3, true));
+        assertEquals(0, graph.kShortestPaths("rug", "the", PathMode.HOPS, 3).count());
+
+        BatchQueryRunner runner = new BatchQueryRunner(graph, 1, 0);
+        assertEquals("1. the -> cat -> sat (length 2)\n2. the -> dog -> sat (length 2)",
+                runner.answer("ties the sat", 1));
+        assertEquals("1. on -> the (length 2)", runner.answer("paths on the 1 weight", 1));
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * PathMode selects how the length of a path is measured by {@link ShortestPathEngine}.
+ */
+public enum PathMode {
+
+    /**
+     * Every edge costs 1: the path with the fewest words.
+     */
+    HOPS,
+
+    /**
+     * Every edge costs its count: the path whose summed edge weights are the smallest, as
+     * reported by {@code showDirectedGraph(word1, word2)}.
+     */
+    WEIGHT,
+
+    /**
+     * An edge {@code u -> v} costs {@code -log(count(u, v) / count(u, *))}: the most probable
+     * word sequence, so frequent transitions are cheap.
+     */
+    FREQUENCY;
+
+    /**
+     * Returns the cost of edge {@code e} of {@code graph}.
+     */
+    double cost(CompactGraph graph, int from, int e) {
+        switch (this) {
+            case HOPS:
+                return 1;
+            case WEIGHT:
+                return graph.weights[e];
+            default:
+                return Math.log((double) graph.outWeight(from) / graph.weights[e]);
+        }
+    }
+}
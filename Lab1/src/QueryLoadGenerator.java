@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QueryLoadGenerator drives a {@link QueryServer} on loopback: {@code clients} concurrent
+ * clients post the query lines to {@code /batch}, {@code batchSize} lines per request, until
+ * every line has been sent {@code rounds} times.
+ * A request answered with {@code 503} is counted as rejected and retried after an
+ * exponential, jittered pause; the latency of a request covers its retries.
+ * Usage: {@code QueryLoadGenerator PORT QUERY_FILE [CLIENTS] [BATCH_SIZE] [ROUNDS]}.
+ */
+public class QueryLoadGenerator {
+
+    private static final int MAX_RETRIES = 50;
+    private static final int MAX_BACKOFF_MILLIS = 200;
+
+    private final int port;
+    private final int clients;
+    private final int batchSize;
+    private final LongAdder rejected = new LongAdder();
+
+    public QueryLoadGenerator(int port, int clients, int batchSize) {
+        this.port = port;
+        this.clients = Math.max(1, clients);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Returns the number of 503 answers seen by the last run.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Sends every query {@code rounds} times.
+     *
+     * @return The summary; its query count is the number of requests and its errors the
+     *     requests that failed for good.
+     * @throws IOException If the clients cannot be started.
+     */
+    public BatchQueryRunner.Summary run(List<String> queries, int rounds) throws IOException {
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i += batchSize) {
+            bodies.add(String.join("\n", queries.subList(i, Math.min(queries.size(),
+                    i + batchSize))) + "\n");
+        }
+        int requests = bodies.size() * rounds;
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        LongAdder failed = new LongAdder();
+        rejected.reset();
+        ExecutorService executor = QueryServer.newRequestExecutor();
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                running.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests;
+                            i = next.getAndIncrement()) {
+                        long begin = System.nanoTime();
+                        if (!post(bodies.get(i % bodies.size()))) {
+                            failed.increment();
+                        }
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                }));
+            }
+            for (Future<?> client : running) {
+                client.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the clients", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new BatchQueryRunner.Summary(requests, failed.sum(), elapsed, latencies);
+    }
+
+    /**
+     * Posts one batch, retrying while the server is busy.
+     *
+     * @return Whether the server answered {@code 200}.
+     */
+    private boolean post(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection)
+                        URI.create("http://127.0.0.1:" + port + "/batch").toURL().openConnection();
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(bytes.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(bytes);
+                }
+                int status = connection.getResponseCode();
+                InputStream in = status == 200
+                        ? connection.getInputStream() : connection.getErrorStream();
+                if (in != null) {
+                    // 读完响应体，连接才能被复用
+                    try (in) {
+                        in.readAllBytes();
+                    }
+                }
+                if (status != 503) {
+                    return status == 200;
+                }
+                rejected.increment();
+                // 指数退避并加入随机抖动，避免被拒绝的客户端同时重试
+                int backoff = Math.min(MAX_BACKOFF_MILLIS, 1 << Math.min(attempt, 16));
+                Thread.sleep(1 + ThreadLocalRandom.current().nextInt(backoff));
+            } catch (IOException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: QueryLoadGenerator PORT QUERY_FILE [CLIENTS] [BATCH_SIZE]"
+                    + " [ROUNDS]");
+            return;
+        }
+        int port = Integer.parseInt(args[0]);
+        List<String> queries = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                queries.add(line);
+            }
+        }
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        QueryLoadGenerator generator = new QueryLoadGenerator(port, clients, batchSize);
+        BatchQueryRunner.Summary summary = generator.run(queries, rounds);
+        System.out.println(summary.toString().replace("queries", "requests")
+                + "; " + generator.rejected() + " answered 503");
+    }
+}
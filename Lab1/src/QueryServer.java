@@ -0,0 +1,279 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QueryServer keeps one {@link CustomGraph} in memory and answers queries over HTTP on the
+ * loopback interface, so a graph is built once and queried by many short-lived clients.
+ * Endpoints (UTF-8 plain text):
+ * <pre>
+ *   GET  /bridge?from=W1&amp;to=W2
+ *   GET  /predict?word=W[&amp;k=K]
+ *   GET  /path?from=W1&amp;to=W2[&amp;mode=hops|weight|frequency]   (no "to": all paths)
+ *   GET  /generate?text=TEXT        or POST /generate with the text as body
+ *   GET  /walk[?steps=N][&amp;seed=S]
+ *   POST /batch                      query lines as read by {@link BatchQueryRunner}
+ *   GET  /stats
+ *   GET  /metrics                    latency histograms, see {@link GraphMetrics}
+ * </pre>
+ * Every request runs on its own virtual thread when the JVM offers them (a cached thread
+ * pool otherwise); the O(V) search buffers and O(E) walkers a query needs are borrowed from
+ * pools of the graph rather than kept per thread, so a request reuses those of earlier ones
+ * and each pool holds no more than the most queries ever in flight at once.
+ * At most {@code maxInFlight} requests are served at once; beyond that the server answers
+ * {@code 503} with {@code Retry-After} at once instead of queueing, so an
+ * overloaded server sheds load rather than building up latency.
+ */
+public class QueryServer implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    static {
+        // 响应头和响应体分两次写出，开启 Nagle 算法时每个请求会多等一次延迟确认（约 40 ms）
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final CustomGraph graph;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    final Semaphore permits; // 包内可见，测试用来模拟过载
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a server; call {@link #start()} to accept requests.
+     *
+     * @param graph The graph to query; it must not be modified while the server runs unless
+     *     it is a {@linkplain CustomGraph#concurrent() concurrent} graph.
+     * @param port The port to listen on, or 0 for any free port.
+     * @param maxInFlight The maximum number of requests served at once.
+     * @throws IOException If the port cannot be bound.
+     */
+    public QueryServer(CustomGraph graph, int port, int maxInFlight) throws IOException {
+        this.graph = graph;
+        this.permits = new Semaphore(Math.max(1, maxInFlight));
+        this.server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/bridge", exchange -> serve(exchange, this::bridge));
+        server.createContext("/predict", exchange -> serve(exchange, this::predict));
+        server.createContext("/path", exchange -> serve(exchange, this::path));
+        server.createContext("/generate", exchange -> serve(exchange, this::generate));
+        server.createContext("/walk", exchange -> serve(exchange, this::walk));
+        server.createContext("/batch", exchange -> serve(exchange, this::batch));
+        server.createContext("/stats", exchange -> serve(exchange, this::stats));
+        server.createContext("/metrics",
+                exchange -> serve(exchange, (ex, params) -> graph.metricsSnapshot()));
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor if the JVM has one, else a cached pool.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // JDK 21 之前（或未开启预览特性）没有虚拟线程
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        // 先构建好共享的只读结构，避免第一批请求并发构建
+        graph.graph();
+        graph.bridgeIndex();
+        graph.randomWalkEngine();
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public long served() {
+        return served.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        String handle(HttpExchange exchange, Map<String, String> params) throws IOException;
+    }
+
+    private void serve(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            if (!permits.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, "Server busy, retry later\n");
+                return;
+            }
+            try {
+                String body = handler.handle(exchange, parameters(exchange));
+                served.increment();
+                send(exchange, 200, body);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, e.getMessage() + "\n");
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private String bridge(HttpExchange exchange, Map<String, String> params) {
+        return graph.queryBridgeWords(required(params, "from"), required(params, "to")) + "\n";
+    }
+
+    private String predict(HttpExchange exchange, Map<String, String> params) {
+        long k = number(params, "k", CustomGraph.DEFAULT_PREDICTIONS);
+        if (k <= 0 || k > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad value for k: " + k);
+        }
+        return graph.queryNextWords(required(params, "word"), (int) k) + "\n";
+    }
+
+    private String path(HttpExchange exchange, Map<String, String> params) {
+        String from = required(params, "from");
+        String to = params.get("to");
+        if (to == null) {
+            return graph.calcShortestPath(from) + "\n";
+        }
+        String mode = params.getOrDefault("mode", "hops");
+        try {
+            return graph.calcShortestPath(from, to,
+                    PathMode.valueOf(mode.toUpperCase(Locale.ROOT)), false) + "\n";
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown path mode " + mode);
+        }
+    }
+
+    private String generate(HttpExchange exchange, Map<String, String> params)
+            throws IOException {
+        String text = params.get("text");
+        if (text == null) {
+            text = new String(readBody(exchange), StandardCharsets.UTF_8);
+        }
+        return graph.generateNewText(text.trim()) + "\n";
+    }
+
+    private String walk(HttpExchange exchange, Map<String, String> params) {
+        long steps = number(params, "steps", 0);
+        if (steps < 0 || steps > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad value for steps: " + steps);
+        }
+        long seed = number(params, "seed", ThreadLocalRandom.current().nextLong());
+        RandomWalkEngine engine = graph.randomWalkEngine();
+        CompactGraph g = engine.graph();
+        if (g.vertexCount() == 0) {
+            return "The graph is empty.\n";
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder text = new StringBuilder();
+        for (int vertex : graph.walk(engine, engine.randomVertex(random), (int) steps, random)) {
+            if (text.length() > 0) {
+                text.append(" -> ");
+            }
+            text.append(g.word(vertex));
+        }
+        return text.append('\n').toString();
+    }
+
+    private String batch(HttpExchange exchange, Map<String, String> params) throws IOException {
+        BatchQueryRunner runner = new BatchQueryRunner(graph, 1,
+                number(params, "seed", ThreadLocalRandom.current().nextLong()));
+        Reader in = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        runner.run(in, out);
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private String stats(HttpExchange exchange, Map<String, String> params) {
+        CompactGraph g = graph.graph();
+        return String.format(Locale.ROOT, "words %d%nedges %d%nserved %d%nrejected %d%n",
+                g.vertexCount(), g.edgeCount(), served(), rejected());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("missing parameter " + name);
+        }
+        return value;
+    }
+
+    private static long number(Map<String, String> params, String name, long defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad value for " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryServerTest {
+
+    private CustomGraph graph;
+    private QueryServer server;
+    private int lastStatus;
+
+    @Before
+    public void setUp() throws IOException {
+        graph = new CustomGraph();
+        String[] words = "the quick fox jumps over the lazy dog and the quick cat".split(" ");
+        for (int i = 0; i < words.length - 1; i++) {
+            graph.addEdge(words[i], words[i + 1]);
+        }
+        server = new QueryServer(graph, 0, 8);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    private String request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                URI.create("http://127.0.0.1:" + server.port() + path).toURL().openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        lastStatus = connection.getResponseCode();
+        InputStream in = lastStatus == 200
+                ? connection.getInputStream() : connection.getErrorStream();
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testEndpointsMatchDirectCalls() throws IOException {
+        assertEquals(graph.queryBridgeWords("the", "fox") + "\n",
+                request("GET", "/bridge?from=the&to=fox", null));
+        assertEquals(graph.calcShortestPath("fox", "dog", PathMode.WEIGHT, false) + "\n",
+                request("GET", "/path?from=fox&to=dog&mode=weight", null));
+        assertEquals(graph.calcShortestPath("over") + "\n",
+                request("GET", "/path?from=over", null));
+        String text = "the fox jumps the dog";
+        assertEquals(graph.generateNewText(text) + "\n", request("GET",
+                "/generate?text=" + URLEncoder.encode(text, StandardCharsets.UTF_8), null));
+        assertEquals(graph.generateNewText(text) + "\n", request("POST", "/generate", text));
+        assertEquals(request("GET", "/walk?steps=5&seed=3", null),
+                request("GET", "/walk?steps=5&seed=3", null));
+
+        request("GET", "/path?from=fox&to=dog&mode=fastest", null);
+        assertEquals(400, lastStatus);
+        request("GET", "/bridge?from=the", null);
+        assertEquals(400, lastStatus);
+        assertTrue(request("GET", "/stats", null).contains("words 9"));
+    }
+
+    @Test
+    public void testBatchAndBackpressure() throws IOException {
+        StringBuilder queries = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            queries.append(i % 2 == 0 ? "bridge the fox\n" : "path fox dog\n");
+            expected.append(i % 2 == 0 ? graph.queryBridgeWords("the", "fox")
+                    : graph.calcShortestPath("fox", "dog", PathMode.HOPS, false)).append('\n');
+        }
+        assertEquals(expected.toString(), request("POST", "/batch", queries.toString()));
+
+        // 占满所有许可，新请求应立即被拒绝而不是排队
+        server.permits.acquireUninterruptibly(8);
+        request("GET", "/bridge?from=the&to=fox", null);
+        assertEquals(503, lastStatus);
+        assertEquals(1, server.rejected());
+        server.permits.release(8);
+        request("GET", "/bridge?from=the&to=fox", null);
+        assertEquals(200, lastStatus);
+    }
+
+    @Test
+    public void testLoadGenerator() throws IOException {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            queries.add("bridge the fox");
+            queries.add("walk 4");
+        }
+        long before = server.served();
+        QueryLoadGenerator generator = new QueryLoadGenerator(server.port(), 16, 5);
+        BatchQueryRunner.Summary summary = generator.run(queries, 3);
+        assertEquals(60, summary.queries());
+        assertEquals(0, summary.errors());
+        assertEquals(60, server.served() - before);
+    }
+
+    @Test
+    public void testWalkFollowsTheNGramModel() throws IOException {
+        server.close();
+        CustomGraph nGrams = CustomGraph.withOrder(3, 1 << 20);
+        nGrams.ingestText("alpha the big dog");
+        nGrams.ingestText("beta the small dog");
+        server = new QueryServer(nGrams, 0, 8);
+        server.start();
+        int conditioned = 0;
+        for (int seed = 0; seed < 100; seed++) {
+            String walk = request("GET", "/walk?seed=" + seed, null);
+            // 二元图中 the 之后 big 和 small 都可能出现，三元模型则由前一个词决定
+            if (walk.startsWith("alpha") || walk.startsWith("beta")) {
+                conditioned++;
+                assertTrue(walk, walk.equals("alpha -> the -> big -> dog\n")
+                        || walk.equals("beta -> the -> small -> dog\n"));
+            }
+        }
+        assertTrue(conditioned > 0);
+    }
+}
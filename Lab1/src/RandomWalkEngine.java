@@ -0,0 +1,338 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * RandomWalkEngine runs random walks on a {@link CompactGraph} without any interaction.
+ * The next hop is drawn in proportion to the edge weights from a per-vertex alias table
+ * (Vose's method), so every step costs one random index and one random double whatever
+ * the out-degree; the start vertex is drawn uniformly in O(1).
+ * A walk stops at a vertex without out-edges, before it would take an edge a second time,
+ * or after a maximum number of steps.
+ * The engine itself is immutable and can be shared; a {@link Walker} holds the state of one
+ * walk at a time and is used by one thread at a time. Idle walkers are pooled, so a walk on a
+ * fresh thread (e.g. a virtual thread per request) does not allocate its O(E) marks again.
+ */
+public class RandomWalkEngine {
+
+    static final int BATCH_WALKS = 1024;
+
+    /**
+     * Returned by {@link Walker#step(SplittableRandom)} when the current vertex has no
+     * out-edges.
+     */
+    public static final int DEAD_END = -1;
+
+    /**
+     * Returned by {@link Walker#step(SplittableRandom)} when the drawn edge was already
+     * taken by the walk.
+     */
+    public static final int REPEATED_EDGE = -2;
+
+    /**
+     * Draws the steps of one walk at a time; implemented by {@link Walker} and by
+     * {@link NGramModel.Walker}, so that walks can be written the same way with either.
+     */
+    public interface Stepper {
+        void start(int vertex);
+
+        int step(SplittableRandom random);
+    }
+
+    private final CompactGraph graph;
+    // 按边存放的别名表：边 e 被抽中时以 probability[e] 保留，否则换成 alias[e]
+    private final double[] probability;
+    private final int[] alias;
+    // 空闲的行走器，数量不超过同时进行的行走数
+    private final Queue<Walker> walkers = new ConcurrentLinkedQueue<>();
+
+    public RandomWalkEngine(CompactGraph graph) {
+        this.graph = graph;
+        int edgeCount = graph.targets.length;
+        this.probability = new double[edgeCount];
+        this.alias = new int[edgeCount];
+        int maxDegree = 0;
+        for (int v = 0; v < graph.vertexCount; v++) {
+            maxDegree = Math.max(maxDegree, graph.outDegree(v));
+        }
+        int[] small = new int[maxDegree];
+        int[] large = new int[maxDegree];
+        for (int v = 0; v < graph.vertexCount; v++) {
+            buildRow(v, small, large);
+        }
+    }
+
+    private void buildRow(int v, int[] small, int[] large) {
+        int begin = graph.offsets[v];
+        int degree = graph.offsets[v + 1] - begin;
+        if (degree == 0) {
+            return;
+        }
+        double scale = (double) degree / graph.outWeight(v);
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int e = begin; e < begin + degree; e++) {
+            probability[e] = graph.weights[e] * scale;
+            alias[e] = e;
+            if (probability[e] < 1) {
+                small[smallCount++] = e;
+            } else {
+                large[largeCount++] = e;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[largeCount - 1];
+            alias[less] = more;
+            probability[more] += probability[less] - 1;
+            if (probability[more] < 1) {
+                largeCount--;
+                small[smallCount++] = more;
+            }
+        }
+        // 剩下的只差浮点误差，直接取整为 1
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Draws a start vertex uniformly.
+     */
+    public int randomVertex(SplittableRandom random) {
+        return random.nextInt(graph.vertexCount);
+    }
+
+    /**
+     * Draws an out-edge of {@code v} with probability proportional to its weight.
+     *
+     * @return The edge index, or -1 if {@code v} has no out-edges.
+     */
+    public int sampleEdge(int v, SplittableRandom random) {
+        int begin = graph.offsets[v];
+        int degree = graph.offsets[v + 1] - begin;
+        if (degree == 0) {
+            return -1;
+        }
+        int e = begin + random.nextInt(degree);
+        return random.nextDouble() < probability[e] ? e : alias[e];
+    }
+
+    /**
+     * Lends an idle walker, or a new one if all are in use. Pass it to {@link #release} when
+     * done so that later walks reuse it.
+     */
+    public Walker walker() {
+        Walker walker = walkers.poll();
+        return walker != null ? walker : new Walker();
+    }
+
+    /**
+     * Returns a walker obtained from {@link #walker()}; it must not be used afterwards.
+     */
+    public void release(Walker walker) {
+        walkers.offer(walker);
+    }
+
+    /**
+     * Runs one walk.
+     *
+     * @param start The start vertex.
+     * @param maxSteps The maximum number of edges taken, or 0 for no limit.
+     * @param random The source of randomness.
+     * @return The ids of the vertices visited, the start included.
+     */
+    public int[] walk(int start, int maxSteps, SplittableRandom random) {
+        Walker walker = walker();
+        try {
+            walker.start(start);
+            int[] path = new int[16];
+            path[0] = start;
+            int length = 1;
+            while (maxSteps == 0 || length <= maxSteps) {
+                int next = walker.step(random);
+                if (next < 0) {
+                    break;
+                }
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = next;
+            }
+            return Arrays.copyOf(path, length);
+        } finally {
+            release(walker);
+        }
+    }
+
+    /**
+     * Runs {@code count} walks from uniformly drawn start vertices and writes one walk per
+     * line, its words separated by single spaces.
+     * Walks are produced in batches of {@link #BATCH_WALKS}, each with its own generator
+     * seeded from {@code seed} and the batch number, and written in batch order, so a seed
+     * gives the same file whatever the parallelism.
+     *
+     * @param count The number of walks.
+     * @param maxSteps The maximum number of edges per walk, or 0 for no limit.
+     * @param seed The seed.
+     * @param parallelism The number of worker threads; 1 runs the walks on the caller.
+     * @param out Where the walks are written.
+     * @return The total number of edges taken.
+     * @throws IOException If writing fails.
+     */
+    public long writeWalks(long count, int maxSteps, long seed, int parallelism, Writer out)
+            throws IOException {
+        return writeWalks(count, maxSteps, seed, parallelism, null, out);
+    }
+
+    /**
+     * Writes walks like {@link #writeWalks(long, int, long, int, Writer)}, drawing every step
+     * from {@code nGrams}, with this engine as its backoff, unless it is null.
+     */
+    public long writeWalks(long count, int maxSteps, long seed, int parallelism,
+                           NGramModel nGrams, Writer out) throws IOException {
+        if (graph.vertexCount == 0) {
+            return 0;
+        }
+        if (nGrams != null) {
+            // 在调用线程上先建好查询行，工作线程不再各建一份
+            nGrams.release(nGrams.walker(this));
+        }
+        ExecutorService executor =
+                parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        long[] steps = new long[1];
+        OrderedPipeline<Batch> pipeline = new OrderedPipeline<>(executor, 2 * parallelism,
+                batch -> {
+                    out.append(batch.text);
+                    steps[0] += batch.steps;
+                });
+        try {
+            long batchIndex = 0;
+            for (long done = 0; done < count; done += BATCH_WALKS) {
+                int walks = (int) Math.min(BATCH_WALKS, count - done);
+                SplittableRandom random =
+                        new SplittableRandom(TextGenerator.mix(seed, batchIndex++));
+                pipeline.submit(() -> writeBatch(walks, maxSteps, random, nGrams));
+            }
+            pipeline.finish();
+        } finally {
+            pipeline.cancel();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        out.flush();
+        return steps[0];
+    }
+
+    private Batch writeBatch(int walks, int maxSteps, SplittableRandom random,
+                             NGramModel nGrams) {
+        Walker walker = nGrams == null ? walker() : null;
+        NGramModel.Walker contextWalker = nGrams == null ? null : nGrams.walker(this);
+        Stepper stepper = contextWalker != null ? contextWalker : walker;
+        try {
+            StringBuilder text = new StringBuilder(walks * 64);
+            long steps = 0;
+            for (int i = 0; i < walks; i++) {
+                int current = randomVertex(random);
+                stepper.start(current);
+                text.append(graph.word(current));
+                for (int taken = 0; maxSteps == 0 || taken < maxSteps; taken++) {
+                    current = stepper.step(random);
+                    if (current < 0) {
+                        break;
+                    }
+                    text.append(' ').append(graph.word(current));
+                    steps++;
+                }
+                text.append('\n');
+            }
+            return new Batch(text, steps);
+        } finally {
+            if (contextWalker != null) {
+                nGrams.release(contextWalker);
+            } else {
+                release(walker);
+            }
+        }
+    }
+
+    private static final class Batch {
+        final CharSequence text;
+        final long steps;
+
+        Batch(CharSequence text, long steps) {
+            this.text = text;
+            this.steps = steps;
+        }
+    }
+
+    /**
+     * The state of one walk: the current vertex and the edges taken so far, marked with a
+     * generation stamp so that starting a new walk clears nothing.
+     */
+    public final class Walker implements Stepper {
+        private final int[] taken = new int[graph.targets.length];
+        private int generation;
+        private int current = -1;
+        private int lastEdge = -1;
+
+        /**
+         * Starts a new walk at {@code vertex}.
+         */
+        @Override
+        public void start(int vertex) {
+            generation++;
+            if (generation == 0) {
+                Arrays.fill(taken, 0);
+                generation = 1;
+            }
+            current = vertex;
+            lastEdge = -1;
+        }
+
+        public int current() {
+            return current;
+        }
+
+        /**
+         * Returns the edge drawn by the last step, or -1 if there was none.
+         */
+        public int lastEdge() {
+            return lastEdge;
+        }
+
+        /**
+         * Draws the next edge and moves along it.
+         *
+         * @return The new current vertex, {@link #DEAD_END}, or {@link #REPEATED_EDGE} if the
+         *     drawn edge was already taken; the walk does not move in the last two cases.
+         */
+        @Override
+        public int step(SplittableRandom random) {
+            int e = sampleEdge(current, random);
+            lastEdge = e;
+            if (e < 0) {
+                return DEAD_END;
+            }
+            if (taken[e] == generation) {
+                return REPEATED_EDGE;
+            }
+            taken[e] = generation;
+            current = graph.targets[e];
+            return current;
+        }
+    }
+}
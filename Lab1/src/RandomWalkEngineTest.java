@@ -0,0 +1,86 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class RandomWalkEngineTest {
+
+    private CompactGraph weightedStar() {
+        // a -> b 权重 1，a -> c 权重 3，a -> d 权重 6
+        GraphBuilder builder = new GraphBuilder();
+        int a = builder.addVertex("a");
+        builder.addEdge(a, builder.addVertex("b"), 1);
+        builder.addEdge(a, builder.addVertex("c"), 3);
+        builder.addEdge(a, builder.addVertex("d"), 6);
+        return builder.build();
+    }
+
+    @Test
+    public void testSamplingFollowsEdgeWeights() {
+        CompactGraph graph = weightedStar();
+        RandomWalkEngine engine = new RandomWalkEngine(graph);
+        SplittableRandom random = new SplittableRandom(1);
+        int a = graph.id("a");
+        int[] counts = new int[graph.vertexCount];
+        int draws = 100000;
+        for (int i = 0; i < draws; i++) {
+            counts[graph.targets[engine.sampleEdge(a, random)]]++;
+        }
+        assertEquals(0.1, counts[graph.id("b")] / (double) draws, 0.01);
+        assertEquals(0.3, counts[graph.id("c")] / (double) draws, 0.01);
+        assertEquals(0.6, counts[graph.id("d")] / (double) draws, 0.01);
+        assertEquals(-1, engine.sampleEdge(graph.id("b"), random));
+    }
+
+    @Test
+    public void testWalksStopOnRepeatedEdgeAndLimit() {
+        CustomGraph custom = new CustomGraph();
+        custom.addEdge("x", "y");
+        custom.addEdge("y", "x");
+        CompactGraph graph = custom.graph();
+        RandomWalkEngine engine = new RandomWalkEngine(graph);
+        SplittableRandom random = new SplittableRandom(2);
+        int x = graph.id("x");
+        int y = graph.id("y");
+        // x -> y -> x 之后只能再走 x -> y，这条边已经走过
+        assertEquals(3, engine.walk(x, 0, random).length);
+        assertEquals(2, engine.walk(x, 1, random).length);
+
+        RandomWalkEngine.Walker walker = engine.walker();
+        walker.start(x);
+        assertEquals(y, walker.step(random));
+        assertEquals(x, walker.step(random));
+        assertEquals(RandomWalkEngine.REPEATED_EDGE, walker.step(random));
+        assertEquals(x, walker.current());
+    }
+
+    @Test
+    public void testBulkWalksAreReproducible() throws IOException {
+        CustomGraph custom = new CustomGraph();
+        String[] words = "the cat sat on the mat and the dog sat on the cat".split(" ");
+        for (int i = 0; i < words.length - 1; i++) {
+            custom.addEdge(words[i], words[i + 1]);
+        }
+        RandomWalkEngine engine = custom.randomWalkEngine();
+        int walks = 3 * RandomWalkEngine.BATCH_WALKS + 17;
+        StringWriter serial = new StringWriter();
+        long steps = engine.writeWalks(walks, 5, 42, 1, serial);
+        StringWriter parallel = new StringWriter();
+        assertEquals(steps, engine.writeWalks(walks, 5, 42, 4, parallel));
+        assertEquals(serial.toString(), parallel.toString());
+
+        String[] lines = serial.toString().split("\n");
+        assertEquals(walks, lines.length);
+        for (String line : lines) {
+            String[] walk = line.split(" ");
+            assertTrue(walk.length <= 6);
+            for (int i = 0; i < walk.length - 1; i++) {
+                assertTrue(custom.graph().edgeIndex(custom.graph().id(walk[i]),
+                        custom.graph().id(walk[i + 1])) >= 0);
+            }
+        }
+    }
+}
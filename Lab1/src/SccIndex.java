@@ -0,0 +1,368 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * SccIndex splits a graph into strongly connected components (iterative Tarjan) and labels
+ * the condensation DAG so that most unreachable pairs are recognised in constant time:
+ * <ul>
+ *   <li>a topological rank: a component only reaches components of lower rank;</li>
+ *   <li>{@link #LABELS} GRAIL interval labels: each is a randomized DFS of the DAG in which a
+ *   component's interval {@code [low, post]} contains the interval of every component it
+ *   reaches.</li>
+ * </ul>
+ * {@link #mayReach(int, int)} never answers false for a reachable pair; when it answers
+ * true a search is still needed. Instances are immutable.
+ */
+public class SccIndex {
+
+    static final int LABELS = 2;
+    private static final long LABEL_SEED = 0x5CC1DL;
+
+    private final CompactGraph graph;
+    private final int[] component;
+    private final int componentCount;
+    private final int[] componentSizes;
+    private final int[] rank;
+    // 凝聚图（DAG）的 CSR 表示，边已去重
+    private final int[] dagOffsets;
+    private final int[] dagTargets;
+    // 按分量优先存放：low[c * LABELS + k] 与 post[c * LABELS + k]
+    private final int[] low;
+    private final int[] post;
+
+    private SccIndex(CompactGraph graph, int[] component, int componentCount, int[] rank) {
+        this.graph = graph;
+        this.component = component;
+        this.componentCount = componentCount;
+        this.rank = rank;
+        this.componentSizes = new int[componentCount];
+        for (int v = 0; v < graph.vertexCount; v++) {
+            componentSizes[component[v]]++;
+        }
+        int[][] dag = condense(graph, component, componentCount, componentSizes);
+        this.dagOffsets = dag[0];
+        this.dagTargets = dag[1];
+        this.low = new int[componentCount * LABELS];
+        this.post = new int[componentCount * LABELS];
+        SplittableRandom random = new SplittableRandom(LABEL_SEED);
+        for (int k = 0; k < LABELS; k++) {
+            label(k, random);
+        }
+    }
+
+    /**
+     * Computes the components of {@code graph} from scratch.
+     */
+    public static SccIndex build(CompactGraph graph) {
+        int n = graph.vertexCount;
+        int[] component = new int[n];
+        int count = tarjan(graph, component);
+        // Tarjan 按逆拓扑序产生分量：边只会从编号大的分量指向编号小的分量
+        int[] rank = new int[count];
+        for (int c = 0; c < count; c++) {
+            rank[c] = c;
+        }
+        return new SccIndex(graph, component, count, rank);
+    }
+
+    /**
+     * Returns the index of {@code next}, a later version of this graph that only gained
+     * vertices and edges. The components are kept when the new edges cannot close a cycle,
+     * i.e. every edge between components still goes down in rank and every new vertex has no
+     * in-edges or no out-edges; only the DAG and its labels are recomputed then.
+     * Otherwise the components are computed from scratch.
+     */
+    public SccIndex update(CompactGraph next) {
+        if (next == graph) {
+            return this;
+        }
+        int oldCount = graph.vertexCount;
+        int n = next.vertexCount;
+        if (n < oldCount) {
+            return build(next);
+        }
+        boolean[] hasIn = new boolean[n - oldCount];
+        for (int e = 0; e < next.targets.length; e++) {
+            if (next.targets[e] >= oldCount) {
+                hasIn[next.targets[e] - oldCount] = true;
+            }
+        }
+        // 新顶点只有出边则成为新的源点（秩最大），否则成为新的汇点（秩最小）
+        int[] component = Arrays.copyOf(this.component, n);
+        int[] newRank = Arrays.copyOf(rank, componentCount + (n - oldCount));
+        int count = componentCount;
+        // 秩在增量更新后不再是 0..count-1，须从现有的最小、最大秩继续分配
+        int minRank = 0;
+        int maxRank = -1;
+        if (componentCount > 0) {
+            minRank = Integer.MAX_VALUE;
+            maxRank = Integer.MIN_VALUE;
+            for (int c = 0; c < componentCount; c++) {
+                minRank = Math.min(minRank, rank[c]);
+                maxRank = Math.max(maxRank, rank[c]);
+            }
+        }
+        for (int v = oldCount; v < n; v++) {
+            boolean hasOut = next.offsets[v + 1] > next.offsets[v];
+            if (hasOut && hasIn[v - oldCount]) {
+                return build(next);
+            }
+            component[v] = count;
+            newRank[count++] = hasOut ? ++maxRank : --minRank;
+        }
+        for (int v = 0; v < n; v++) {
+            int from = newRank[component[v]];
+            for (int e = next.offsets[v]; e < next.offsets[v + 1]; e++) {
+                int to = component[next.targets[e]];
+                // 秩相同的两个分量之间也不能确定方向，保守地重建
+                if (to != component[v] && newRank[to] >= from) {
+                    return build(next);
+                }
+            }
+        }
+        return new SccIndex(next, component, count, newRank);
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns false only if {@code target} is not reachable from {@code source}.
+     */
+    public boolean mayReach(int source, int target) {
+        int s = component[source];
+        int t = component[target];
+        if (s == t) {
+            return true;
+        }
+        if (rank[s] < rank[t] || dagOffsets[s] == dagOffsets[s + 1]) {
+            return false;
+        }
+        for (int k = 0; k < LABELS; k++) {
+            int i = s * LABELS + k;
+            int j = t * LABELS + k;
+            if (low[j] < low[i] || post[j] > post[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int componentCount() {
+        return componentCount;
+    }
+
+    public int componentOf(int vertex) {
+        return component[vertex];
+    }
+
+    public int componentSize(int component) {
+        return componentSizes[component];
+    }
+
+    /**
+     * Returns the component with the most vertices, or -1 for an empty graph.
+     */
+    public int largestComponent() {
+        int best = -1;
+        for (int c = 0; c < componentCount; c++) {
+            if (best < 0 || componentSizes[c] > componentSizes[best]) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    public int largestComponentSize() {
+        int largest = largestComponent();
+        return largest < 0 ? 0 : componentSizes[largest];
+    }
+
+    /**
+     * Returns the vertices of a component in ascending id order.
+     */
+    public int[] members(int component) {
+        int[] members = new int[componentSizes[component]];
+        int size = 0;
+        for (int v = 0; v < graph.vertexCount && size < members.length; v++) {
+            if (this.component[v] == component) {
+                members[size++] = v;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Returns the number of edges of the condensation DAG.
+     */
+    public int dagEdgeCount() {
+        return dagTargets.length;
+    }
+
+    /**
+     * Labels the components of {@code graph} with Tarjan's algorithm, using explicit stacks.
+     *
+     * @return The number of components.
+     */
+    private static int tarjan(CompactGraph graph, int[] component) {
+        int n = graph.vertexCount;
+        int[] index = new int[n]; // 0 表示尚未访问，否则为访问序号 + 1
+        int[] lowLink = new int[n];
+        int[] nextEdge = new int[n];
+        int[] callStack = new int[n];
+        int[] sccStack = new int[n];
+        Arrays.fill(component, -1);
+        int counter = 0;
+        int count = 0;
+        int sccTop = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != 0) {
+                continue;
+            }
+            int callTop = 0;
+            callStack[callTop++] = root;
+            index[root] = lowLink[root] = ++counter;
+            nextEdge[root] = graph.offsets[root];
+            sccStack[sccTop++] = root;
+            while (callTop > 0) {
+                int v = callStack[callTop - 1];
+                int e = nextEdge[v];
+                if (e < graph.offsets[v + 1]) {
+                    // 每次处理一条出边，遇到未访问的顶点就“递归”进去
+                    nextEdge[v] = e + 1;
+                    int w = graph.targets[e];
+                    if (index[w] == 0) {
+                        index[w] = lowLink[w] = ++counter;
+                        nextEdge[w] = graph.offsets[w];
+                        sccStack[sccTop++] = w;
+                        callStack[callTop++] = w;
+                    } else if (component[w] < 0) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
+                    }
+                    continue;
+                }
+                if (lowLink[v] == index[v]) {
+                    int w;
+                    do {
+                        w = sccStack[--sccTop];
+                        component[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+                callTop--;
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Builds the condensation DAG, one row per component without duplicate edges.
+     */
+    private static int[][] condense(CompactGraph graph, int[] component, int count,
+                                    int[] sizes) {
+        // 按分量把顶点排好，逐个分量收集去重后的出边
+        int[] start = new int[count + 1];
+        for (int c = 0; c < count; c++) {
+            start[c + 1] = start[c] + sizes[c];
+        }
+        int[] cursor = Arrays.copyOf(start, count);
+        int[] members = new int[graph.vertexCount];
+        for (int v = 0; v < graph.vertexCount; v++) {
+            members[cursor[component[v]]++] = v;
+        }
+        int[] offsets = new int[count + 1];
+        int[] targets = new int[Math.max(16, count)];
+        int[] seen = new int[count];
+        Arrays.fill(seen, -1);
+        int size = 0;
+        for (int c = 0; c < count; c++) {
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                int v = members[i];
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    int d = component[graph.targets[e]];
+                    if (d != c && seen[d] != c) {
+                        seen[d] = c;
+                        if (size == targets.length) {
+                            targets = Arrays.copyOf(targets, 2 * size);
+                        }
+                        targets[size++] = d;
+                    }
+                }
+            }
+            offsets[c + 1] = size;
+        }
+        return new int[][] {offsets, Arrays.copyOf(targets, size)};
+    }
+
+    /**
+     * Computes GRAIL label {@code k}: a DFS over the DAG from its roots in random order,
+     * visiting the children of every component from a random starting edge.
+     */
+    private void label(int k, SplittableRandom random) {
+        int count = componentCount;
+        boolean[] hasIn = new boolean[count];
+        for (int target : dagTargets) {
+            hasIn[target] = true;
+        }
+        int[] roots = new int[count];
+        int rootCount = 0;
+        for (int c = 0; c < count; c++) {
+            if (!hasIn[c]) {
+                roots[rootCount++] = c;
+            }
+        }
+        for (int i = rootCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int root = roots[i];
+            roots[i] = roots[j];
+            roots[j] = root;
+        }
+        boolean[] visited = new boolean[count];
+        int[] stack = new int[count];
+        int[] first = new int[count];
+        int[] step = new int[count];
+        int counter = 0;
+        for (int r = 0; r < rootCount; r++) {
+            int top = 0;
+            stack[top++] = roots[r];
+            start(roots[r], k, visited, first, step, random);
+            while (top > 0) {
+                int c = stack[top - 1];
+                int degree = dagOffsets[c + 1] - dagOffsets[c];
+                if (step[c] < degree) {
+                    int child = dagTargets[dagOffsets[c] + (first[c] + step[c]++) % degree];
+                    if (!visited[child]) {
+                        start(child, k, visited, first, step, random);
+                        stack[top++] = child;
+                    } else {
+                        low[c * LABELS + k] = Math.min(low[c * LABELS + k],
+                                low[child * LABELS + k]);
+                    }
+                    continue;
+                }
+                post[c * LABELS + k] = ++counter;
+                low[c * LABELS + k] = Math.min(low[c * LABELS + k], counter);
+                top--;
+                if (top > 0) {
+                    int parent = stack[top - 1];
+                    low[parent * LABELS + k] = Math.min(low[parent * LABELS + k],
+                            low[c * LABELS + k]);
+                }
+            }
+        }
+    }
+
+    private void start(int c, int k, boolean[] visited, int[] first, int[] step,
+                       SplittableRandom random) {
+        visited[c] = true;
+        int degree = dagOffsets[c + 1] - dagOffsets[c];
+        first[c] = degree == 0 ? 0 : random.nextInt(degree);
+        step[c] = 0;
+        low[c * LABELS + k] = Integer.MAX_VALUE;
+    }
+}
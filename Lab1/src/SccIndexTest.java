@@ -0,0 +1,149 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class SccIndexTest {
+
+    private static GraphBuilder randomBuilder(long seed, int vertices, int edges) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder();
+        for (int v = 0; v < vertices; v++) {
+            builder.addVertex("v" + v);
+        }
+        for (int i = 0; i < edges; i++) {
+            builder.addEdge(random.nextInt(vertices), random.nextInt(vertices), 1);
+        }
+        return builder;
+    }
+
+    private static boolean[][] reachability(CompactGraph g) {
+        int n = g.vertexCount();
+        boolean[][] reach = new boolean[n][n];
+        int[] queue = new int[n];
+        for (int s = 0; s < n; s++) {
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = s;
+            reach[s][s] = true;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = g.offsets[v]; e < g.offsets[v + 1]; e++) {
+                    if (!reach[s][g.targets[e]]) {
+                        reach[s][g.targets[e]] = true;
+                        queue[tail++] = g.targets[e];
+                    }
+                }
+            }
+        }
+        return reach;
+    }
+
+    private static void checkAgainstBruteForce(SccIndex index) {
+        CompactGraph g = index.graph();
+        boolean[][] reach = reachability(g);
+        int rejected = 0;
+        int unreachable = 0;
+        for (int s = 0; s < g.vertexCount(); s++) {
+            for (int t = 0; t < g.vertexCount(); t++) {
+                boolean same = index.componentOf(s) == index.componentOf(t);
+                assertEquals(reach[s][t] && reach[t][s], same);
+                if (reach[s][t]) {
+                    assertTrue(index.mayReach(s, t));
+                } else {
+                    unreachable++;
+                    rejected += index.mayReach(s, t) ? 0 : 1;
+                }
+            }
+        }
+        // 标签是近似的，但应拒绝绝大多数不可达的点对
+        assertTrue(rejected >= 0.9 * unreachable);
+    }
+
+    @Test
+    public void testComponentsAndLabelsMatchBruteForce() {
+        for (int seed = 0; seed < 5; seed++) {
+            // 稀疏图有很多小分量，稠密一些的图有一个大分量
+            checkAgainstBruteForce(SccIndex.build(randomBuilder(seed, 300, 320).build()));
+            checkAgainstBruteForce(SccIndex.build(randomBuilder(seed, 300, 600).build()));
+        }
+        SccIndex empty = SccIndex.build(new GraphBuilder().build());
+        assertEquals(0, empty.componentCount());
+        assertEquals(0, empty.largestComponentSize());
+    }
+
+    @Test
+    public void testUpdateAfterAddingEdges() {
+        GraphBuilder builder = randomBuilder(3, 300, 330);
+        SccIndex index = SccIndex.build(builder.build());
+        // 只加不会形成环的边：沿拓扑序向下的边，以及新的源点和汇点
+        Random random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            int from = random.nextInt(300);
+            int to = random.nextInt(300);
+            if (index.componentOf(from) > index.componentOf(to)) {
+                builder.addEdge(from, to, 1);
+            }
+        }
+        builder.addEdge(builder.addVertex("source"), 7, 1);
+        builder.addEdge(11, builder.addVertex("sink"), 1);
+        SccIndex updated = index.update(builder.build());
+        checkAgainstBruteForce(updated);
+        assertEquals(index.componentCount() + 2, updated.componentCount());
+
+        // 形成环的边会合并分量，需要重新计算
+        int member = updated.members(updated.largestComponent())[0];
+        int sink = builder.dictionary().size() - 1;
+        builder.addEdge(member, sink, 1);
+        builder.addEdge(sink, member, 1);
+        SccIndex merged = updated.update(builder.build());
+        checkAgainstBruteForce(merged);
+        assertEquals(updated.largestComponentSize() + 1, merged.largestComponentSize());
+    }
+
+    @Test
+    public void testUnreachablePairsSkipTheSearch() {
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText("the cat sat on the mat and the dog ran off");
+        assertEquals("No path from off to cat", graph.calcShortestPath("off", "cat"));
+        assertEquals("No path from dog to mat", graph.calcShortestPath("dog", "mat"));
+        assertEquals("the -> cat", graph.calcShortestPath("the", "cat"));
+        SccIndex components = graph.stronglyConnectedComponents();
+        // the -> cat -> sat -> on -> the 与 the -> mat -> and -> the 构成一个分量
+        assertEquals(6, components.largestComponentSize());
+        CompactGraph g = components.graph();
+        assertArrayEquals(new int[] {g.id("the"), g.id("cat"), g.id("sat"), g.id("on"),
+                g.id("mat"), g.id("and")}, components.members(components.largestComponent()));
+        assertFalse(components.mayReach(g.id("dog"), g.id("the")));
+
+        graph.addEdge("off", "the");
+        assertEquals("off -> the -> cat", graph.calcShortestPath("off", "cat"));
+        assertEquals(9, graph.stronglyConnectedComponents().largestComponentSize());
+    }
+
+    @Test
+    public void testSuccessiveUpdatesKeepRanksDistinct() {
+        CustomGraph graph = new CustomGraph();
+        graph.addEdge("a", "b");
+        assertEquals(2, graph.stronglyConnectedComponents().componentCount());
+        // 两次保留分量的增量更新各加入一个新汇点
+        graph.addEdge("b", "c");
+        assertEquals(3, graph.stronglyConnectedComponents().componentCount());
+        graph.addEdge("a", "d");
+        SccIndex kept = graph.stronglyConnectedComponents();
+        assertEquals(4, kept.componentCount());
+        checkAgainstBruteForce(kept);
+
+        // 在这两次加入的分量之间成环，必须重建
+        graph.addEdge("c", "d");
+        graph.addEdge("d", "c");
+        assertEquals("c -> d", graph.calcShortestPath("c", "d"));
+        SccIndex merged = graph.stronglyConnectedComponents();
+        checkAgainstBruteForce(merged);
+        assertEquals(SccIndex.build(merged.graph()).componentCount(), merged.componentCount());
+        assertEquals(3, merged.componentCount());
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ShortestPathCache keeps the most recently used {@link ShortestPathTree}s, keyed by source
+ * vertex and {@link PathMode}, and evicts the least recently used one beyond its capacity.
+ * Hits and misses are counted so the capacity can be sized from real traffic.
+ * All methods are thread-safe.
+ */
+public class ShortestPathCache {
+
+    private final Map<Long, ShortestPathTree> trees;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int capacity;
+
+    public ShortestPathCache(int capacity) {
+        this.capacity = capacity;
+        this.trees = new LinkedHashMap<Long, ShortestPathTree>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ShortestPathTree> eldest) {
+                return size() > ShortestPathCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached tree of {@code source}, counting a hit or a miss.
+     *
+     * @return The tree, or null if it is not cached.
+     */
+    public ShortestPathTree get(int source, PathMode mode) {
+        ShortestPathTree tree = peek(source, mode);
+        if (tree == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the cached tree of {@code source} without touching the counters.
+     *
+     * @return The tree, or null if it is not cached.
+     */
+    public synchronized ShortestPathTree peek(int source, PathMode mode) {
+        return trees.get(key(source, mode));
+    }
+
+    public synchronized void put(ShortestPathTree tree) {
+        if (capacity > 0) {
+            trees.put(key(tree.source(), tree.mode()), tree);
+        }
+    }
+
+    /**
+     * Drops every cached tree; the counters are kept.
+     */
+    public synchronized void clear() {
+        trees.clear();
+    }
+
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * Changes the capacity, evicting the least recently used trees if it shrinks.
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        while (trees.size() > capacity) {
+            trees.remove(trees.keySet().iterator().next());
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private static Long key(int source, PathMode mode) {
+        return ((long) source << 8) | mode.ordinal();
+    }
+}
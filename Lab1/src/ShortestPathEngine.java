@@ -0,0 +1,455 @@
+import java.util.Arrays;
+
+/**
+ * ShortestPathEngine runs Dijkstra searches on the int vertex ids of a {@link CompactGraph}.
+ * Tentative distances live in primitive arrays that are reused from one query to the next:
+ * a generation stamp marks which entries belong to the current query, so nothing is cleared
+ * or allocated per search. The queue is an indexed 4-ary heap with decrease-key, so every
+ * vertex is in the queue at most once.
+ * An engine is not thread-safe; use one per thread.
+ */
+public class ShortestPathEngine {
+
+    private final CompactGraph graph;
+    private final Side forward;
+    private Side backward;
+    private double[] potential;
+    private double lastDistance;
+    private int lastSettled;
+
+    public ShortestPathEngine(CompactGraph graph) {
+        this.graph = graph;
+        this.forward = new Side(graph.vertexCount);
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the length of the last path found, or infinity if there was none.
+     */
+    public double lastDistance() {
+        return lastDistance;
+    }
+
+    /**
+     * Returns the number of vertices settled by the last query.
+     */
+    public int lastSettled() {
+        return lastSettled;
+    }
+
+    /**
+     * Finds a shortest path from {@code source} to {@code target}, stopping as soon as the
+     * target is settled.
+     * When several predecessors of a vertex lie on equally short paths, the one with the
+     * largest id is kept, so the result does not depend on the order of the search.
+     *
+     * @param source The id of the first word.
+     * @param target The id of the last word.
+     * @param mode How edges are measured.
+     * @return The ids along the path, or null if {@code target} is unreachable.
+     */
+    public int[] shortestPath(int source, int target, PathMode mode) {
+        Side side = forward;
+        side.reset();
+        side.reach(source, 0, -1);
+        lastSettled = 0;
+        while (!side.heap.isEmpty()) {
+            int u = side.heap.poll();
+            lastSettled++;
+            if (u == target) {
+                lastDistance = side.dist[u];
+                side.heap.clear();
+                return side.path(target);
+            }
+            relaxOut(side, u, mode);
+        }
+        lastDistance = Double.POSITIVE_INFINITY;
+        return null;
+    }
+
+    /**
+     * Runs a complete search from {@code source} and returns the distances and predecessors
+     * of every vertex, with the same tie-breaking as {@link #shortestPath}.
+     */
+    public ShortestPathTree shortestPathTree(int source, PathMode mode) {
+        Side side = forward;
+        side.reset();
+        side.reach(source, 0, -1);
+        lastSettled = 0;
+        while (!side.heap.isEmpty()) {
+            relaxOut(side, side.heap.poll(), mode);
+            lastSettled++;
+        }
+        double[] dist = new double[graph.vertexCount];
+        int[] pred = new int[graph.vertexCount];
+        for (int v = 0; v < graph.vertexCount; v++) {
+            if (side.isReached(v)) {
+                dist[v] = side.dist[v];
+                pred[v] = side.pred[v];
+            } else {
+                dist[v] = Double.POSITIVE_INFINITY;
+                pred[v] = -1;
+            }
+        }
+        lastDistance = Double.POSITIVE_INFINITY;
+        return new ShortestPathTree(graph, source, mode, dist, pred, lastSettled);
+    }
+
+    /**
+     * Finds a shortest path with A*, guided by the landmark distances of {@code landmarks}
+     * (ALT); vertices that the landmarks prove cannot reach the target are never queued.
+     * Among equally short paths, which one is returned is unspecified: unlike
+     * {@link #shortestPath(int, int, PathMode)} it does not always keep the predecessor with
+     * the largest id, since A* may settle a vertex before some of its predecessors on equally
+     * short paths. Enforcing that rule would mean settling every vertex whose estimate equals
+     * the distance to the target, which on word graphs about doubles the vertices settled.
+     *
+     * @return The ids along the path, or null if {@code target} is unreachable.
+     */
+    public int[] shortestPath(int source, int target, LandmarkIndex landmarks) {
+        PathMode mode = landmarks.mode();
+        Side side = forward;
+        side.reset();
+        lastSettled = 0;
+        lastDistance = Double.POSITIVE_INFINITY;
+        double estimate = landmarks.lowerBound(source, target);
+        if (estimate == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        if (potential == null) {
+            potential = new double[graph.vertexCount];
+        }
+        // 每个顶点的下界在本次查询中只算一次，之后随 dist 一起由代数戳标记为有效
+        potential[source] = estimate;
+        side.reach(source, 0, -1, estimate);
+        while (!side.heap.isEmpty()) {
+            int u = side.heap.poll();
+            lastSettled++;
+            if (u == target) {
+                lastDistance = side.dist[u];
+                side.heap.clear();
+                return side.path(target);
+            }
+            double base = side.dist[u];
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int v = graph.targets[e];
+                double alt = base + mode.cost(graph, u, e);
+                if (side.isReached(v)) {
+                    if (alt <= side.dist[v]) {
+                        side.relax(v, alt, u, potential[v]);
+                    }
+                    continue;
+                }
+                estimate = landmarks.lowerBound(v, target);
+                if (estimate != Double.POSITIVE_INFINITY) {
+                    potential[v] = estimate;
+                    side.relax(v, alt, u, estimate);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the distance from {@code source} to every vertex, infinity where unreachable.
+     */
+    public double[] distancesFrom(int source, PathMode mode) {
+        return fullSearch(source, mode, false);
+    }
+
+    /**
+     * Returns the distance from every vertex to {@code target}, infinity where unreachable.
+     */
+    public double[] distancesTo(int target, PathMode mode) {
+        return fullSearch(target, mode, true);
+    }
+
+    private double[] fullSearch(int origin, PathMode mode, boolean reverse) {
+        CompactGraph.InEdges in = reverse ? graph.inEdges() : null;
+        Side side = forward;
+        side.reset();
+        side.reach(origin, 0, -1);
+        while (!side.heap.isEmpty()) {
+            int u = side.heap.poll();
+            if (!reverse) {
+                relaxOut(side, u, mode);
+                continue;
+            }
+            for (int i = in.offsets[u]; i < in.offsets[u + 1]; i++) {
+                int v = in.sources[i];
+                side.relax(v, side.dist[u] + mode.cost(graph, v, in.edges[i]), u);
+            }
+        }
+        double[] dist = new double[graph.vertexCount];
+        for (int v = 0; v < dist.length; v++) {
+            dist[v] = side.isReached(v) ? side.dist[v] : Double.POSITIVE_INFINITY;
+        }
+        return dist;
+    }
+
+    /**
+     * Finds a shortest path by searching forward from {@code source} and backward from
+     * {@code target} at the same time, stopping once the two frontiers prove that no shorter
+     * connection is possible.
+     * Among equally short paths, which one is returned is unspecified.
+     *
+     * @return The ids along the path, or null if {@code target} is unreachable.
+     */
+    public int[] shortestPathBidirectional(int source, int target, PathMode mode) {
+        if (backward == null) {
+            backward = new Side(graph.vertexCount);
+        }
+        CompactGraph.InEdges in = graph.inEdges();
+        forward.reset();
+        backward.reset();
+        forward.reach(source, 0, -1);
+        backward.reach(target, 0, -1);
+        lastSettled = 0;
+        double best = source == target ? 0 : Double.POSITIVE_INFINITY;
+        int meeting = source == target ? source : -1;
+
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            if (forward.heap.minKey() + backward.heap.minKey() >= best) {
+                break;
+            }
+            lastSettled++;
+            if (forward.heap.size() <= backward.heap.size()) {
+                int u = forward.heap.poll();
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                    int v = graph.targets[e];
+                    double alt = forward.dist[u] + mode.cost(graph, u, e);
+                    forward.relax(v, alt, u);
+                    if (backward.isReached(v) && alt + backward.dist[v] < best) {
+                        best = alt + backward.dist[v];
+                        meeting = v;
+                    }
+                }
+            } else {
+                int u = backward.heap.poll();
+                for (int i = in.offsets[u]; i < in.offsets[u + 1]; i++) {
+                    int v = in.sources[i];
+                    double alt = backward.dist[u] + mode.cost(graph, v, in.edges[i]);
+                    backward.relax(v, alt, u);
+                    if (forward.isReached(v) && alt + forward.dist[v] < best) {
+                        best = alt + forward.dist[v];
+                        meeting = v;
+                    }
+                }
+            }
+        }
+        forward.heap.clear();
+        backward.heap.clear();
+        lastDistance = best;
+        if (meeting < 0) {
+            return null;
+        }
+        // 前向部分 source..meeting，再沿反向前驱走到 target
+        int[] head = forward.path(meeting);
+        int length = head.length;
+        for (int v = backward.pred[meeting]; v >= 0; v = backward.pred[v]) {
+            length++;
+        }
+        int[] path = Arrays.copyOf(head, length);
+        int i = head.length;
+        for (int v = backward.pred[meeting]; v >= 0; v = backward.pred[v]) {
+            path[i++] = v;
+        }
+        return path;
+    }
+
+    private void relaxOut(Side side, int u, PathMode mode) {
+        double base = side.dist[u];
+        for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+            side.relax(graph.targets[e], base + mode.cost(graph, u, e), u);
+        }
+    }
+
+    /**
+     * The scratch state of one search direction.
+     */
+    static final class Side {
+        final double[] dist;
+        final int[] pred;
+        final int[] stamp;
+        final IndexedHeap heap;
+        int generation;
+
+        Side(int vertexCount) {
+            dist = new double[vertexCount];
+            pred = new int[vertexCount];
+            stamp = new int[vertexCount];
+            heap = new IndexedHeap(vertexCount);
+        }
+
+        void reset() {
+            generation++;
+            if (generation == 0) {
+                // 计数回绕时才真正清零
+                Arrays.fill(stamp, 0);
+                generation = 1;
+            }
+        }
+
+        boolean isReached(int v) {
+            return stamp[v] == generation;
+        }
+
+        void reach(int v, double distance, int predecessor) {
+            reach(v, distance, predecessor, 0);
+        }
+
+        void reach(int v, double distance, int predecessor, double potential) {
+            stamp[v] = generation;
+            dist[v] = distance;
+            pred[v] = predecessor;
+            heap.insert(v, distance + potential);
+        }
+
+        void relax(int v, double alt, int u) {
+            relax(v, alt, u, 0);
+        }
+
+        /**
+         * Offers the path through {@code u} to {@code v}; the heap is keyed by the distance
+         * plus {@code potential}, an A* estimate of the remaining distance.
+         */
+        void relax(int v, double alt, int u, double potential) {
+            if (stamp[v] != generation) {
+                reach(v, alt, u, potential);
+            } else if (alt < dist[v]) {
+                dist[v] = alt;
+                pred[v] = u;
+                if (heap.contains(v)) {
+                    heap.decreaseKey(v, alt + potential);
+                } else {
+                    // 只有启发函数因浮点误差略不一致时才会重新打开已确定的顶点
+                    heap.insert(v, alt + potential);
+                }
+            } else if (alt == dist[v] && u > pred[v] && heap.contains(v)) {
+                pred[v] = u;
+            }
+        }
+
+        int[] path(int target) {
+            int length = 0;
+            for (int v = target; v >= 0; v = pred[v]) {
+                length++;
+            }
+            int[] path = new int[length];
+            for (int v = target; v >= 0; v = pred[v]) {
+                path[--length] = v;
+            }
+            return path;
+        }
+    }
+
+    /**
+     * A 4-ary min-heap of vertex ids with decrease-key; {@code position} maps every vertex to
+     * its slot in the heap, or -1 if it is not queued.
+     */
+    static final class IndexedHeap {
+        private final int[] heap;
+        private final double[] keys;
+        private final int[] position;
+        private int size;
+
+        IndexedHeap(int capacity) {
+            heap = new int[capacity];
+            keys = new double[capacity];
+            position = new int[capacity];
+            Arrays.fill(position, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int v) {
+            return position[v] >= 0;
+        }
+
+        double minKey() {
+            return keys[heap[0]];
+        }
+
+        void insert(int v, double key) {
+            keys[v] = key;
+            heap[size] = v;
+            position[v] = size;
+            siftUp(size++);
+        }
+
+        void decreaseKey(int v, double key) {
+            keys[v] = key;
+            siftUp(position[v]);
+        }
+
+        int poll() {
+            int top = heap[0];
+            position[top] = -1;
+            if (--size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                position[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            double key = keys[v];
+            while (i > 0) {
+                int parent = (i - 1) >> 2;
+                int p = heap[parent];
+                if (keys[p] <= key) {
+                    break;
+                }
+                heap[i] = p;
+                position[p] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            double key = keys[v];
+            while (true) {
+                int first = (i << 2) + 1;
+                if (first >= size) {
+                    break;
+                }
+                int best = first;
+                int last = Math.min(first + 4, size);
+                for (int c = first + 1; c < last; c++) {
+                    if (keys[heap[c]] < keys[heap[best]]) {
+                        best = c;
+                    }
+                }
+                if (keys[heap[best]] >= key) {
+                    break;
+                }
+                heap[i] = heap[best];
+                position[heap[i]] = i;
+                i = best;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+    }
+}
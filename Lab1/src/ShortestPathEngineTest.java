@@ -0,0 +1,194 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ShortestPathEngineTest {
+
+    private CustomGraph weightedDiamond() {
+        // a -> b -> d 两跳但边权大，a -> c -> e -> d 三跳但边权小
+        CustomGraph graph = new CustomGraph();
+        for (int i = 0; i < 5; i++) {
+            graph.addEdge("a", "b");
+            graph.addEdge("b", "d");
+        }
+        graph.addEdge("a", "c");
+        graph.addEdge("c", "e");
+        graph.addEdge("e", "d");
+        return graph;
+    }
+
+    private CompactGraph randomGraph(long seed, int vertices, int edges) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder();
+        for (int v = 0; v < vertices; v++) {
+            builder.addVertex("v" + v);
+        }
+        for (int i = 0; i < edges; i++) {
+            int from = random.nextInt(vertices);
+            builder.addEdge(from, random.nextInt(vertices), 1 + random.nextInt(5));
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testHopsAndWeightModesDiffer() {
+        CustomGraph graph = weightedDiamond();
+        assertEquals("a -> b -> d", graph.calcShortestPath("a", "d", PathMode.HOPS, false));
+        assertEquals("a -> c -> e -> d", graph.calcShortestPath("a", "d", PathMode.WEIGHT, false));
+        // 频繁的转移代价更低：a 的出边中 a -> b 占 5/6
+        assertEquals("a -> b -> d", graph.calcShortestPath("a", "d", PathMode.FREQUENCY, false));
+    }
+
+    @Test
+    public void testBidirectionalFindsEquallyShortPaths() {
+        CompactGraph graph = randomGraph(7, 200, 800);
+        ShortestPathEngine engine = new ShortestPathEngine(graph);
+        for (PathMode mode : PathMode.values()) {
+            for (int source = 0; source < 200; source += 7) {
+                for (int target = 0; target < 200; target += 11) {
+                    int[] single = engine.shortestPath(source, target, mode);
+                    double expected = engine.lastDistance();
+                    int[] both = engine.shortestPathBidirectional(source, target, mode);
+                    if (single == null) {
+                        assertNull(both);
+                        continue;
+                    }
+                    assertEquals(expected, engine.lastDistance(), 1e-9);
+                    assertEquals(source, both[0]);
+                    assertEquals(target, both[both.length - 1]);
+                    assertEquals(expected, length(graph, both, mode), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEngineIsReusedAcrossQueries() {
+        CompactGraph graph = randomGraph(3, 50, 150);
+        ShortestPathEngine engine = new ShortestPathEngine(graph);
+        int[] first = engine.shortestPath(0, 1, PathMode.WEIGHT);
+        for (int i = 0; i < 100; i++) {
+            engine.shortestPath(i % 50, (i * 7) % 50, PathMode.HOPS);
+        }
+        assertArrayEquals(first, engine.shortestPath(0, 1, PathMode.WEIGHT));
+    }
+
+    private static double length(CompactGraph graph, int[] path, PathMode mode) {
+        double length = 0;
+        for (int i = 0; i < path.length - 1; i++) {
+            length += mode.cost(graph, path[i], graph.edgeIndex(path[i], path[i + 1]));
+        }
+        return length;
+    }
+
+    @Test
+    public void testSingleSourcePaths() {
+        CustomGraph graph = weightedDiamond();
+        assertEquals("a -> b\na -> b -> d\na -> c\na -> c -> e", graph.calcShortestPath("a"));
+        assertEquals("No path from d", graph.calcShortestPath("d"));
+        assertEquals("No path from zzz", graph.calcShortestPath("zzz"));
+    }
+
+    @Test
+    public void testTreeMatchesPointToPoint() {
+        CompactGraph graph = randomGraph(11, 100, 400);
+        ShortestPathEngine engine = new ShortestPathEngine(graph);
+        for (PathMode mode : PathMode.values()) {
+            ShortestPathTree tree = engine.shortestPathTree(5, mode);
+            for (int target = 0; target < 100; target++) {
+                int[] path = new ShortestPathEngine(graph).shortestPath(5, target, mode);
+                assertArrayEquals(path, tree.pathTo(target));
+            }
+        }
+    }
+
+    @Test
+    public void testPathCacheCountsAndInvalidates() {
+        CustomGraph graph = weightedDiamond();
+        ShortestPathCache cache = graph.pathCache();
+        graph.shortestPathTree("a", PathMode.HOPS);
+        graph.shortestPathTree("a", PathMode.HOPS);
+        graph.shortestPathTree("a", PathMode.WEIGHT);
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(2, cache.size());
+
+        graph.addEdge("a", "d");
+        assertEquals(0, cache.size());
+        assertEquals("a -> d", graph.calcShortestPath("a", "d"));
+        ShortestPathTree tree = graph.shortestPathTree("a", PathMode.HOPS);
+        assertEquals(1.0, tree.distanceTo(graph.graph().id("d")), 0);
+
+        cache.setCapacity(1);
+        graph.shortestPathTree("b", PathMode.HOPS);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLandmarkSearchFindsShortestPaths() {
+        CompactGraph graph = randomGraph(5, 300, 900);
+        ShortestPathEngine engine = new ShortestPathEngine(graph);
+        for (PathMode mode : PathMode.values()) {
+            LandmarkIndex landmarks = LandmarkIndex.build(graph, 4, mode, 2);
+            long plainSettled = 0;
+            long altSettled = 0;
+            for (int source = 0; source < 300; source += 13) {
+                for (int target = 0; target < 300; target += 17) {
+                    int[] plain = engine.shortestPath(source, target, mode);
+                    double expected = engine.lastDistance();
+                    plainSettled += engine.lastSettled();
+                    int[] alt = engine.shortestPath(source, target, landmarks);
+                    altSettled += engine.lastSettled();
+                    if (plain == null) {
+                        assertNull(alt);
+                        continue;
+                    }
+                    assertEquals(expected, engine.lastDistance(), 1e-9);
+                    assertEquals(expected, length(graph, alt, mode), 1e-9);
+                }
+            }
+            // 相同距离的顶点出堆次序可能不同，所以只比较总数
+            assertTrue(altSettled < plainSettled);
+        }
+    }
+
+    @Test
+    public void testLandmarksKeepPathLengths() {
+        // 有地标时相同长度的路径中返回哪一条可能不同，但长度不变
+        CustomGraph text = new CustomGraph();
+        text.ingestText("the cat sat on the mat and the dog sat on the rug by the cat");
+        String[] words = {"the", "cat", "sat", "on", "mat", "and", "dog", "rug", "by"};
+        String[] expected = new String[words.length * words.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = text.calcShortestPath(words[i / words.length], words[i % words.length]);
+        }
+        text.prepareLandmarks(2, PathMode.HOPS);
+        for (int i = 0; i < expected.length; i++) {
+            String path = text.calcShortestPath(words[i / words.length], words[i % words.length]);
+            if (expected[i].startsWith("No path")) {
+                assertEquals(expected[i], path);
+            } else {
+                String[] want = expected[i].split(" -> ");
+                String[] got = path.split(" -> ");
+                assertEquals(want.length, got.length);
+                assertEquals(want[0], got[0]);
+                assertEquals(want[want.length - 1], got[got.length - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void testLandmarksFollowGraphChanges() {
+        CustomGraph graph = weightedDiamond();
+        graph.prepareLandmarks(2, PathMode.WEIGHT);
+        assertEquals("a -> c -> e -> d", graph.calcShortestPath("a", "d", PathMode.WEIGHT, false));
+        graph.addEdge("a", "d");
+        assertEquals("a -> d", graph.calcShortestPath("a", "d", PathMode.WEIGHT, false));
+        assertEquals("No path from d to a",
+                graph.calcShortestPath("d", "a", PathMode.WEIGHT, false));
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * ShortestPathTree holds the distances and predecessors of a complete single-source search,
+ * so the shortest paths from one word to every reachable word can be read off without
+ * searching again. Instances are immutable.
+ */
+public class ShortestPathTree {
+
+    private final CompactGraph graph;
+    private final int source;
+    private final PathMode mode;
+    private final double[] dist;
+    private final int[] pred;
+    private final int reachable;
+
+    ShortestPathTree(CompactGraph graph, int source, PathMode mode, double[] dist, int[] pred,
+                     int reachable) {
+        this.graph = graph;
+        this.source = source;
+        this.mode = mode;
+        this.dist = dist;
+        this.pred = pred;
+        this.reachable = reachable;
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    public int source() {
+        return source;
+    }
+
+    public PathMode mode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of vertices reachable from the source, the source included.
+     */
+    public int reachableCount() {
+        return reachable;
+    }
+
+    public boolean isReachable(int target) {
+        return dist[target] != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the length of the shortest path to {@code target}, or infinity if unreachable.
+     */
+    public double distanceTo(int target) {
+        return dist[target];
+    }
+
+    /**
+     * Returns the ids along the shortest path to {@code target}, or null if unreachable.
+     */
+    public int[] pathTo(int target) {
+        if (!isReachable(target)) {
+            return null;
+        }
+        int length = 0;
+        for (int v = target; v >= 0; v = pred[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = target; v >= 0; v = pred[v]) {
+            path[--length] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Returns an estimate of the heap used by the tree in bytes.
+     */
+    public long estimatedBytes() {
+        return 12L * dist.length;
+    }
+}
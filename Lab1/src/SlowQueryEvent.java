@@ -0,0 +1,28 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a graph operation slower than the threshold of its
+ * {@link GraphMetrics}; it is only created for slow operations, and only committed while a
+ * recording has it enabled.
+ */
+@Name("wordgraph.SlowQuery")
+@Label("Slow Query")
+@Category("Word Graph")
+@Description("A graph operation that took longer than the slow query threshold")
+class SlowQueryEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Arguments")
+    String arguments;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
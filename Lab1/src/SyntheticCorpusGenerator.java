@@ -0,0 +1,264 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SyntheticCorpusGenerator writes English-like text whose word frequencies follow a Zipf
+ * law: the word of rank {@code r} (counted from 1) appears with probability proportional to
+ * {@code 1 / r^exponent}, so a few short words dominate and most of the vocabulary is rare,
+ * as in real corpora.
+ * The output is split into chunks of about {@link #CHUNK_BYTES} bytes, each drawn from its
+ * own random stream derived from the seed and the chunk index, so the same arguments always
+ * give the same bytes whatever the parallelism, and chunks are generated concurrently.
+ */
+public class SyntheticCorpusGenerator {
+
+    static final int CHUNK_BYTES = 1 << 20;
+    private static final int LINE_WORDS = 12;
+    private static final int SENTENCE_ODDS = 15; // 平均每 15 个词结束一个句子
+
+    private final byte[][] words;
+    // 别名表：排名 r 被抽中时以 probability[r] 保留，否则换成 alias[r]
+    private final double[] probability;
+    private final int[] alias;
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     *
+     * @param vocabularySize The number of distinct words.
+     * @param exponent The Zipf exponent; about 1 for natural language.
+     * @param seed The seed of the text.
+     */
+    public SyntheticCorpusGenerator(int vocabularySize, double exponent, long seed) {
+        if (vocabularySize < 1 || exponent < 0) {
+            throw new IllegalArgumentException("bad vocabulary size or exponent");
+        }
+        this.seed = seed;
+        this.words = new byte[vocabularySize][];
+        this.probability = new double[vocabularySize];
+        this.alias = new int[vocabularySize];
+        char[] letters = shuffledLetters(seed);
+        double total = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            words[rank] = spell(rank, letters);
+            probability[rank] = Math.pow(rank + 1, -exponent);
+            total += probability[rank];
+        }
+        buildAliasTable(vocabularySize / total);
+    }
+
+    private void buildAliasTable(double scale) {
+        int[] small = new int[probability.length];
+        int[] large = new int[probability.length];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int rank = 0; rank < probability.length; rank++) {
+            probability[rank] *= scale;
+            alias[rank] = rank;
+            if (probability[rank] < 1) {
+                small[smallCount++] = rank;
+            } else {
+                large[largeCount++] = rank;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[largeCount - 1];
+            alias[less] = more;
+            probability[more] += probability[less] - 1;
+            if (probability[more] < 1) {
+                largeCount--;
+                small[smallCount++] = more;
+            }
+        }
+        // 剩下的只差浮点误差，直接取整为 1
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * Returns the word of the given rank (0 is the most frequent one).
+     */
+    public String word(int rank) {
+        return new String(words[rank], StandardCharsets.US_ASCII);
+    }
+
+    public int vocabularySize() {
+        return words.length;
+    }
+
+    /**
+     * Returns about {@code bytes} bytes of text, for small corpora.
+     */
+    public String text(int bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes);
+        try {
+            write(out, bytes, 1);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // 内存输出流不会抛出 IOException
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes a corpus of at most {@code bytes} bytes to a file.
+     *
+     * @return The number of bytes written.
+     * @throws IOException If writing fails.
+     */
+    public long write(Path file, long bytes, int parallelism) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            return write(out, bytes, parallelism);
+        }
+    }
+
+    /**
+     * Writes a corpus of at most {@code bytes} bytes; it ends at a word boundary, so it may be
+     * a few bytes shorter.
+     *
+     * @return The number of bytes written.
+     * @throws IOException If writing fails.
+     */
+    public long write(OutputStream out, long bytes, int parallelism) throws IOException {
+        ExecutorService executor =
+                parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        long[] written = new long[1];
+        OrderedPipeline<byte[]> pipeline = new OrderedPipeline<>(executor, 2 * parallelism,
+                chunk -> {
+                    out.write(chunk);
+                    written[0] += chunk.length;
+                });
+        try {
+            long chunkIndex = 0;
+            for (long done = 0; done < bytes; done += CHUNK_BYTES) {
+                int limit = (int) Math.min(CHUNK_BYTES, bytes - done);
+                SplittableRandom random =
+                        new SplittableRandom(TextGenerator.mix(seed, chunkIndex++));
+                pipeline.submit(() -> chunk(limit, random));
+            }
+            pipeline.finish();
+        } finally {
+            pipeline.cancel();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        out.flush();
+        return written[0];
+    }
+
+    private byte[] chunk(int limit, SplittableRandom random) {
+        byte[] chunk = new byte[limit];
+        int length = 0;
+        int wordsInLine = 0;
+        while (true) {
+            byte[] word = words[sample(random)];
+            boolean endsSentence = random.nextInt(SENTENCE_ODDS) == 0;
+            // 词本身、可能的句号和其后的分隔符
+            if (length + word.length + 2 > limit) {
+                break;
+            }
+            System.arraycopy(word, 0, chunk, length, word.length);
+            length += word.length;
+            if (endsSentence) {
+                chunk[length++] = '.';
+            }
+            chunk[length++] = (byte) (++wordsInLine == LINE_WORDS ? '\n' : ' ');
+            if (wordsInLine == LINE_WORDS) {
+                wordsInLine = 0;
+            }
+        }
+        return length == limit ? chunk : Arrays.copyOf(chunk, length);
+    }
+
+    private int sample(SplittableRandom random) {
+        int rank = random.nextInt(probability.length);
+        return random.nextDouble() < probability[rank] ? rank : alias[rank];
+    }
+
+    /**
+     * Spells a rank in bijective base 26 ("a", ..., "z", "aa", ...), so frequent words are
+     * short and every rank has its own word.
+     */
+    private static byte[] spell(int rank, char[] letters) {
+        byte[] buffer = new byte[8];
+        int start = buffer.length;
+        long n = rank + 1L;
+        while (n > 0) {
+            n--;
+            buffer[--start] = (byte) letters[(int) (n % 26)];
+            n /= 26;
+        }
+        return Arrays.copyOfRange(buffer, start, buffer.length);
+    }
+
+    private static char[] shuffledLetters(long seed) {
+        char[] letters = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = letters.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char c = letters[i];
+            letters[i] = letters[j];
+            letters[j] = c;
+        }
+        return letters;
+    }
+
+    /**
+     * Parses a size such as {@code 512K}, {@code 64M} or {@code 2G}.
+     */
+    static long parseSize(String text) {
+        String size = text.trim().toUpperCase(Locale.ROOT);
+        int shift = 0;
+        switch (size.isEmpty() ? ' ' : size.charAt(size.length() - 1)) {
+            case 'K':
+                shift = 10;
+                break;
+            case 'M':
+                shift = 20;
+                break;
+            case 'G':
+                shift = 30;
+                break;
+            default:
+                return Long.parseLong(size);
+        }
+        return Long.parseLong(size.substring(0, size.length() - 1)) << shift;
+    }
+
+    /**
+     * Usage: {@code SyntheticCorpusGenerator FILE SIZE [VOCABULARY] [EXPONENT] [SEED]},
+     * e.g. {@code corpus.txt 1G 200000 1.0 42}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticCorpusGenerator FILE SIZE [VOCABULARY]"
+                    + " [EXPONENT] [SEED]");
+            return;
+        }
+        long bytes = parseSize(args[1]);
+        int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        long start = System.nanoTime();
+        long written = new SyntheticCorpusGenerator(vocabulary, exponent, seed)
+                .write(Paths.get(args[0]), bytes, Runtime.getRuntime().availableProcessors());
+        System.out.printf("Wrote %d bytes in %d ms.%n", written,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,48 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class SyntheticCorpusGeneratorTest {
+
+    @Test
+    public void testOutputDoesNotDependOnParallelism() throws IOException {
+        long bytes = 3L * SyntheticCorpusGenerator.CHUNK_BYTES + 12345;
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        long written = new SyntheticCorpusGenerator(5000, 1.0, 7).write(serial, bytes, 1);
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        new SyntheticCorpusGenerator(5000, 1.0, 7).write(parallel, bytes, 4);
+        assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+        assertEquals(written, serial.size());
+        assertTrue(written <= bytes && written > bytes - 64);
+        assertEquals(8L << 30, SyntheticCorpusGenerator.parseSize("8g"));
+    }
+
+    @Test
+    public void testWordFrequenciesFollowZipf() {
+        SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(1000, 1.0, 3);
+        Map<String, Integer> counts = new HashMap<>();
+        long total = 0;
+        for (String word : generator.text(1 << 20).split("[^a-z]+")) {
+            if (!word.isEmpty()) {
+                counts.merge(word, 1, Integer::sum);
+                total++;
+            }
+        }
+        assertTrue(counts.size() <= 1000);
+        // 排名第 r 的词的频率约为排名第一的词的 1/r
+        double first = counts.get(generator.word(0));
+        assertEquals(1.0 / 7.485, first / total, 0.01); // H(1000) ≈ 7.485
+        assertEquals(0.5, counts.get(generator.word(1)) / first, 0.05);
+        assertEquals(0.1, counts.get(generator.word(9)) / first, 0.02);
+
+        CustomGraph graph = new CustomGraph();
+        graph.ingestText(generator.text(1 << 16));
+        assertTrue(graph.graph().vertexCount() > 100);
+    }
+}
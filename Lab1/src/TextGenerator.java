@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * TextGenerator inserts bridge words into text read from a {@link Reader} and writes the
+ * result to a {@link Writer} without holding the whole document in memory.
+ * The input is cut into segments of {@link #SEGMENT_WORDS} words; each segment also carries
+ * the first word of the next one so that the pair across the cut gets its bridge word.
+ * Segments can be processed concurrently and are written back in input order.
+ * Every segment draws from its own generator seeded from the caller's seed and the segment
+ * number, so a given seed produces the same text whatever the parallelism.
+ * With an {@link NGramModel}, bridge words are drawn given the words written before them
+ * in the same segment.
+ */
+public class TextGenerator {
+
+    static final int SEGMENT_WORDS = 8192;
+
+    private final BridgeIndex index;
+    private final NGramModel nGrams;
+
+    public TextGenerator(BridgeIndex index) {
+        this(index, null);
+    }
+
+    /**
+     * Creates a generator that chooses among bridge words by the n-gram counts of
+     * {@code nGrams}, or uniformly if it is null.
+     */
+    public TextGenerator(BridgeIndex index, NGramModel nGrams) {
+        this.index = index;
+        this.nGrams = nGrams;
+    }
+
+    /**
+     * Generates the new text of a whole stream.
+     * Letters are lower-cased, white space (line breaks included) separates words and every
+     * other character is dropped, as in {@link CustomGraph#generateNewText(String)}.
+     *
+     * @param in The input text.
+     * @param out Where the generated text is written.
+     * @param seed The seed for choosing among several bridge words.
+     * @param parallelism The number of worker threads; 1 processes segments on the caller.
+     * @throws IOException If reading or writing fails.
+     */
+    public void generate(Reader in, Writer out, long seed, int parallelism) throws IOException {
+        ExecutorService executor =
+                parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        OrderedPipeline<CharSequence> pipeline =
+                new OrderedPipeline<>(executor, 2 * parallelism, out::append);
+        try {
+            String[] segment = new String[SEGMENT_WORDS + 1];
+            int size = 0;
+            long segmentIndex = 0;
+            StringBuilder word = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                        word.append(Character.toLowerCase(c));
+                    } else if (Character.isWhitespace(c) && word.length() > 0) {
+                        segment[size++] = word.toString();
+                        word.setLength(0);
+                        if (size == segment.length) {
+                            submit(pipeline, segment, size, segmentIndex++, seed, false);
+                            String carried = segment[size - 1];
+                            segment = new String[SEGMENT_WORDS + 1];
+                            segment[0] = carried;
+                            size = 1;
+                        }
+                    }
+                }
+            }
+            if (word.length() > 0) {
+                segment[size++] = word.toString();
+            }
+            if (size > 0) {
+                submit(pipeline, segment, size, segmentIndex, seed, true);
+            }
+            pipeline.finish();
+        } finally {
+            pipeline.cancel();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        out.flush();
+    }
+
+    private void submit(OrderedPipeline<CharSequence> pipeline, String[] segment, int size,
+                        long segmentIndex, long seed, boolean last) throws IOException {
+        final String[] words = size == segment.length ? segment : Arrays.copyOf(segment, size);
+        SplittableRandom random = new SplittableRandom(mix(seed, segmentIndex));
+        pipeline.submit(() -> generateSegment(words, random, last));
+    }
+
+    /**
+     * Writes every word of a segment but the last one, each followed by a bridge word if the
+     * pair it starts has any; the last word is only written for the final segment.
+     */
+    private CharSequence generateSegment(String[] words, SplittableRandom random, boolean last) {
+        CompactGraph g = index.graph();
+        StringBuilder text = new StringBuilder(words.length * 12);
+        // 段内已写出的词，作为挑选桥接词的上下文
+        int[] history = nGrams == null ? null : new int[2 * words.length];
+        int historyLength = 0;
+        int next = g.id(words[0]);
+        for (int i = 0; i < words.length - 1; i++) {
+            int from = next;
+            next = g.id(words[i + 1]);
+            text.append(words[i]).append(' ');
+            if (history != null) {
+                history[historyLength++] = from;
+            }
+            if (from >= 0 && next >= 0) {
+                int[] bridges = index.bridges(from, next);
+                if (bridges.length > 0) {
+                    int bridge = bridges[history == null ? random.nextInt(bridges.length)
+                            : nGrams.chooseBridge(history, historyLength, bridges,
+                                    random.nextDouble())];
+                    text.append(g.word(bridge)).append(' ');
+                    if (history != null) {
+                        history[historyLength++] = bridge;
+                    }
+                }
+            }
+        }
+        if (last) {
+            text.append(words[words.length - 1]);
+        }
+        return text;
+    }
+
+    /**
+     * Derives the seed of one segment (or batch) from the caller's seed (SplitMix64).
+     */
+    static long mix(long seed, long segmentIndex) {
+        long z = seed + (segmentIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,208 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * VertexDictionary interns every word of the graph to a dense {@code int} id exactly once.
+ * Words are stored back to back in a single byte array (UTF-8) and looked up through an
+ * open-addressing table, so a vertex costs a few bytes of text plus three ints instead of a
+ * {@code String}, a boxed key and a {@code HashMap.Node}.
+ * Ids are handed out in order of first appearance and never change.
+ */
+public class VertexDictionary {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // 包内可见，供 GraphSnapshot 直接读写
+    byte[] chars;
+    int charLength;
+    int[] starts;
+    int[] hashes;
+    int[] table; // slot -> id + 1, 0 marks an empty slot
+    int size;
+
+    public VertexDictionary() {
+        this.chars = new byte[INITIAL_CAPACITY * 8];
+        this.starts = new int[INITIAL_CAPACITY + 1];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.table = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Adopts arrays read back from a snapshot; {@code table} must be a valid probe table for
+     * {@code hashes}.
+     */
+    VertexDictionary(byte[] chars, int charLength, int[] starts, int[] hashes, int[] table,
+                     int size) {
+        this.chars = chars;
+        this.charLength = charLength;
+        this.starts = starts;
+        this.hashes = hashes;
+        this.table = table;
+        this.size = size;
+    }
+
+    /**
+     * Returns an independent copy holding the same words under the same ids.
+     */
+    VertexDictionary copy() {
+        return new VertexDictionary(Arrays.copyOf(chars, charLength), charLength,
+                Arrays.copyOf(starts, size + 1), Arrays.copyOf(hashes, size), table.clone(),
+                size);
+    }
+
+    /**
+     * Returns the number of interned words.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Interns a word and returns its id, adding it if it has not been seen before.
+     *
+     * @param word The word to intern.
+     * @return The id of the word.
+     */
+    public int intern(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        return intern(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Interns the word held in {@code buf[off, off + len)}; no {@code String} is created unless
+     * the word is new to the dictionary.
+     *
+     * @param buf The buffer holding the UTF-8 bytes of the word.
+     * @param off The offset of the first byte.
+     * @param len The number of bytes.
+     * @return The id of the word.
+     */
+    public int intern(byte[] buf, int off, int len) {
+        int hash = hash(buf, off, len);
+        int slot = probe(buf, off, len, hash);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+        int id = append(buf, off, len, hash);
+        table[slot] = id + 1;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Interns the word that has id {@code id} in another dictionary, copying its bytes
+     * directly.
+     *
+     * @return The id of the word in this dictionary.
+     */
+    public int intern(VertexDictionary other, int id) {
+        int start = other.starts[id];
+        return intern(other.chars, start, other.starts[id + 1] - start);
+    }
+
+    /**
+     * Looks up a word without adding it.
+     *
+     * @param word The word to look up.
+     * @return The id of the word, or -1 if it is unknown.
+     */
+    public int find(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        return find(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Looks up the word held in {@code buf[off, off + len)} without adding it.
+     *
+     * @return The id of the word, or -1 if it is unknown.
+     */
+    public int find(byte[] buf, int off, int len) {
+        return table[probe(buf, off, len, hash(buf, off, len))] - 1;
+    }
+
+    /**
+     * Looks up the word that has id {@code id} in another dictionary without adding it.
+     *
+     * @return The id of the word in this dictionary, or -1 if it is unknown.
+     */
+    public int find(VertexDictionary other, int id) {
+        int start = other.starts[id];
+        return find(other.chars, start, other.starts[id + 1] - start);
+    }
+
+    /**
+     * Returns the word with the given id.
+     */
+    public String word(int id) {
+        return new String(chars, starts[id], starts[id + 1] - starts[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns an estimate of the heap used by the dictionary in bytes.
+     */
+    public long estimatedBytes() {
+        return chars.length + 4L * (starts.length + hashes.length + table.length);
+    }
+
+    private int probe(byte[] buf, int off, int len, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && sameBytes(id, buf, off, len)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean sameBytes(int id, byte[] buf, int off, int len) {
+        int start = starts[id];
+        return starts[id + 1] - start == len
+                && Arrays.equals(chars, start, start + len, buf, off, off + len);
+    }
+
+    private int append(byte[] buf, int off, int len, int hash) {
+        if (charLength + len > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charLength + len));
+        }
+        if (size == hashes.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            hashes = Arrays.copyOf(hashes, capacity);
+            starts = Arrays.copyOf(starts, capacity + 1);
+        }
+        System.arraycopy(buf, off, chars, charLength, len);
+        charLength += len;
+        hashes[size] = hash;
+        starts[size + 1] = charLength;
+        return size++;
+    }
+
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id + 1;
+        }
+        table = newTable;
+    }
+
+    private static int hash(byte[] buf, int off, int len) {
+        int h = 0x811c9dc5;
+        for (int i = off; i < off + len; i++) {
+            h = (h ^ buf[i]) * 0x01000193;
+        }
+        // 打散低位，线性探测依赖低位分布
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}